@@ -55,19 +55,21 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         mPatternLockView = (PatternLockView) findViewById(R.id.patter_lock_view);
-        mPatternLockView.setDotCount(3);
-        mPatternLockView.setDotNormalSize((int) ResourceUtils.getDimensionInPx(this, R.dimen.pattern_lock_dot_size));
-        mPatternLockView.setDotSelectedSize((int) ResourceUtils.getDimensionInPx(this, R.dimen.pattern_lock_dot_selected_size));
-        mPatternLockView.setPathWidth((int) ResourceUtils.getDimensionInPx(this, R.dimen.pattern_lock_path_width));
-        mPatternLockView.setAspectRatioEnabled(true);
-        mPatternLockView.setAspectRatio(PatternLockView.AspectRatio.ASPECT_RATIO_HEIGHT_BIAS);
+        mPatternLockView.edit()
+                .setDotCount(3)
+                .setDotNormalSize((int) ResourceUtils.getDimensionInPx(this, R.dimen.pattern_lock_dot_size))
+                .setDotSelectedSize((int) ResourceUtils.getDimensionInPx(this, R.dimen.pattern_lock_dot_selected_size))
+                .setPathWidth((int) ResourceUtils.getDimensionInPx(this, R.dimen.pattern_lock_path_width))
+                .setAspectRatioEnabled(true)
+                .setAspectRatio(PatternLockView.AspectRatio.ASPECT_RATIO_HEIGHT_BIAS)
+                .setDotAnimationDuration(150)
+                .setPathEndAnimationDuration(100)
+                .setCorrectStateColor(ResourceUtils.getColor(this, R.color.white))
+                .setInStealthMode(false)
+                .setTactileFeedbackEnabled(true)
+                .setInputEnabled(true)
+                .apply();
         mPatternLockView.setViewMode(PatternLockView.PatternViewMode.CORRECT);
-        mPatternLockView.setDotAnimationDuration(150);
-        mPatternLockView.setPathEndAnimationDuration(100);
-        mPatternLockView.setCorrectStateColor(ResourceUtils.getColor(this, R.color.white));
-        mPatternLockView.setInStealthMode(false);
-        mPatternLockView.setTactileFeedbackEnabled(true);
-        mPatternLockView.setInputEnabled(true);
         mPatternLockView.addPatternLockListener(mPatternLockViewListener);
 
         RxPatternLockView.patternComplete(mPatternLockView)
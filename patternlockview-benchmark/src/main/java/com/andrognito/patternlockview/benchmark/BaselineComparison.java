@@ -0,0 +1,136 @@
+package com.andrognito.patternlockview.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the CSV results of a JMH run against the checked-in baseline, and exits with a non
+ * zero status when a benchmark allocates more than a tolerance above it.
+ * <p>
+ * Only the allocations per operation reported by the GC profiler ({@code gc.alloc.rate.norm})
+ * can fail the comparison, as they are the same on every machine and barely vary between runs.
+ * Throughput depends on the machine and its load, and varies between runs by more than any
+ * useful tolerance, so a drop is reported but never fails. Benchmarks missing from either side
+ * are reported but don't fail the comparison either.
+ * <p>
+ * Usage: {@code BaselineComparison <baseline.csv> <results.csv> [tolerancePercent]}
+ */
+public class BaselineComparison {
+
+    private static final String ALLOCATION_SUFFIX = "gc.alloc.rate.norm";
+    // Allocations below this many bytes per operation are noise, such as a profiler sample
+    private static final double ALLOCATION_SLACK = 8d;
+
+    private BaselineComparison() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.csv> <results.csv> " +
+                    "[tolerancePercent]");
+            System.exit(1);
+        }
+        double tolerance = (args.length > 2 ? Double.parseDouble(args[2]) : 20d) / 100d;
+        Map<String, Double> baseline = readScores(new File(args[0]));
+        Map<String, Double> results = readScores(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : results.entrySet()) {
+            String key = entry.getKey();
+            Double expected = baseline.get(key);
+            if (expected == null) {
+                System.out.println("NEW        " + key);
+                continue;
+            }
+            double actual = entry.getValue();
+            String status;
+            if (key.contains(ALLOCATION_SUFFIX)) {
+                boolean regressed = actual > expected * (1d + tolerance) + ALLOCATION_SLACK;
+                if (regressed) {
+                    regressions++;
+                }
+                status = regressed ? "REGRESSED" : "OK";
+            } else {
+                status = actual < expected * (1d - tolerance) ? "SLOWER" : "OK";
+            }
+            System.out.println(String.format(Locale.US, "%-10s %s: %.3f -> %.3f",
+                    status, key, expected, actual));
+        }
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) {
+                System.out.println("MISSING    " + key);
+            }
+        }
+
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) allocate more than "
+                    + Math.round(tolerance * 100d) + "% above the baseline");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the throughput and allocation scores of a JMH CSV file, keyed by benchmark name and
+     * parameters
+     */
+    static Map<String, Double> readScores(File file) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), Charset.forName("UTF-8")));
+        try {
+            List<String> header = parseLine(reader.readLine());
+            int scoreColumn = header.indexOf("Score");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<String> fields = parseLine(line);
+                String benchmark = fields.get(0);
+                // The other secondary results of the GC profiler depend on the speed of the run
+                if (benchmark.contains(":") && !benchmark.endsWith(ALLOCATION_SUFFIX)) {
+                    continue;
+                }
+                StringBuilder key = new StringBuilder(benchmark);
+                for (int i = scoreColumn + 3; i < fields.size(); i++) {
+                    key.append(' ').append(header.get(i).replace("Param: ", ""))
+                            .append('=').append(fields.get(i));
+                }
+                scores.put(key.toString(), Double.parseDouble(fields.get(scoreColumn)));
+            }
+        } finally {
+            reader.close();
+        }
+        return scores;
+    }
+
+    /**
+     * Splits a CSV line, unquoting its fields. JMH never puts quotes inside of a field
+     */
+    private static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        boolean quoted = false;
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,146 @@
+package com.andrognito.patternlockview.benchmark;
+
+import com.andrognito.patternlockview.core.PatternGrid;
+import com.andrognito.patternlockview.core.PatternTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the per touch sample and per frame costs of the pattern engine grow with the size
+ * of the matrix, from {@code 3x3} to {@code 16x16}.
+ * <p>
+ * The gesture sweeps every row of the matrix back and forth, with a touch sample every few pixels,
+ * the way a finger moves across a large grid. A sample costs a hit test, a gap check and, for new
+ * dots, an append. A frame culls the dots against the area the last sample damaged, the way the
+ * view does before drawing. Both costs should stay flat as the matrix grows: hit tests are O(1)
+ * and the damaged area of a frame only covers a few dots, however many there are. Drawing itself
+ * needs a device, so this only covers the engine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridScalingBenchmark {
+
+    private static final float SIZE = 1080f;
+    private static final float SAMPLE_SPACING = 4f;
+    private static final float DOT_RADIUS = 12f;
+    private static final float PATH_WIDTH = 6f;
+
+    /**
+     * Feeds the next touch sample of the gesture to the tracker, starting over once the gesture is
+     * done
+     *
+     * @return The id of the dot hit by the sample, or -1
+     */
+    @Benchmark
+    public int trackSample(GestureState state) {
+        float[] samples = state.samples;
+        int position = state.nextSample();
+        if (position == 0) {
+            state.tracker.clear();
+        }
+        int id = state.tracker.checkForNewHit(samples[position], samples[position + 1]);
+        if (id >= 0) {
+            int fillInId = state.tracker.getGapFill(id);
+            if (fillInId >= 0) {
+                state.tracker.add(fillInId);
+            }
+            state.tracker.add(id);
+        }
+        return id;
+    }
+
+    /**
+     * Culls the dots against the area damaged between the previous and the next touch sample
+     *
+     * @return The number of dots that would be drawn
+     */
+    @Benchmark
+    public int cullFrame(GestureState state) {
+        float[] samples = state.samples;
+        int position = state.nextSample();
+        if (position == 0) {
+            position = 2;
+        }
+        PatternGrid grid = state.grid;
+        int columnCount = grid.getColumnCount();
+        float margin = PATH_WIDTH / 2f + DOT_RADIUS;
+        float left = Math.min(samples[position - 2], samples[position]) - margin;
+        float right = Math.max(samples[position - 2], samples[position]) + margin;
+        float top = Math.min(samples[position - 1], samples[position + 1]) - margin;
+        float bottom = Math.max(samples[position - 1], samples[position + 1]) + margin;
+        int lastRow = grid.getRowAt(bottom);
+        int lastColumn = grid.getColumnAt(right);
+        int drawn = 0;
+        for (int row = grid.getRowAt(top); row <= lastRow; row++) {
+            for (int column = grid.getColumnAt(left); column <= lastColumn; column++) {
+                int id = row * columnCount + column;
+                float centerX = grid.getDotCenterX(id);
+                float centerY = grid.getDotCenterY(id);
+                if (centerX >= left && centerX <= right && centerY >= top && centerY <= bottom) {
+                    drawn++;
+                }
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * A matrix of each measured size and a gesture sweeping all of its rows
+     */
+    @State(Scope.Thread)
+    public static class GestureState {
+
+        @Param({"3", "4", "6", "8", "12", "16"})
+        public int dotCount;
+
+        public PatternGrid grid;
+        public PatternTracker tracker;
+        // Interleaved x and y coordinates of the touch samples
+        public float[] samples;
+
+        private int mPosition;
+
+        @Setup
+        public void setUp() {
+            grid = new PatternGrid(dotCount);
+            grid.setBounds(0, 0, SIZE, SIZE);
+            tracker = new PatternTracker(grid);
+
+            int samplesPerRow = (int) (SIZE / SAMPLE_SPACING);
+            samples = new float[2 * samplesPerRow * dotCount];
+            int position = 0;
+            for (int row = 0; row < dotCount; row++) {
+                float y = grid.getCenterY(row);
+                for (int i = 0; i < samplesPerRow; i++) {
+                    float x = i * SAMPLE_SPACING;
+                    samples[position++] = row % 2 == 0 ? x : SIZE - x;
+                    samples[position++] = y;
+                }
+            }
+        }
+
+        /**
+         * @return The position of the next sample in {@link #samples}, wrapping around at the end
+         */
+        int nextSample() {
+            int position = mPosition;
+            mPosition = position + 2 == samples.length ? 0 : position + 2;
+            return position;
+        }
+    }
+}
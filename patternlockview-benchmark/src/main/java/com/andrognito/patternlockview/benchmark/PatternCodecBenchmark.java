@@ -0,0 +1,35 @@
+package com.andrognito.patternlockview.benchmark;
+
+import com.andrognito.patternlockview.core.PatternCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the string form that {@code PatternLockUtils.patternToString} and
+ * {@code stringToPattern} delegate to
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternCodecBenchmark {
+
+    @Benchmark
+    public String patternToString(PatternState state) {
+        return PatternCodec.patternToString(state.ids);
+    }
+
+    @Benchmark
+    public int[] stringToPattern(PatternState state) {
+        return PatternCodec.stringToPattern(state.serialized);
+    }
+}
@@ -0,0 +1,52 @@
+package com.andrognito.patternlockview.benchmark;
+
+import com.andrognito.patternlockview.core.PatternGenerator;
+import com.andrognito.patternlockview.utils.RandomUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the random pattern generation behind {@code PatternLockUtils.generateRandomPattern},
+ * and the shuffled arrays of {@link RandomUtils}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternGeneratorBenchmark {
+
+    @Benchmark
+    public int[] generateRandomPattern(PatternState state) {
+        return PatternGenerator.generateRandomPattern(state.dotCount, state.patternLength);
+    }
+
+    /**
+     * Shuffles every id of the matrix
+     */
+    @Benchmark
+    public int[] randIntArray(MatrixState state) {
+        return RandomUtils.randIntArray(state.dotCount * state.dotCount);
+    }
+
+    /**
+     * Only the size of the matrix, for what doesn't depend on a pattern
+     */
+    @State(Scope.Benchmark)
+    public static class MatrixState {
+
+        @Param({"3", "5", "9"})
+        public int dotCount;
+    }
+}
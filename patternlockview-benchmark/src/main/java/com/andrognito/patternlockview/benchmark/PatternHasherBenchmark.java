@@ -0,0 +1,36 @@
+package com.andrognito.patternlockview.benchmark;
+
+import com.andrognito.patternlockview.core.PatternCodec;
+import com.andrognito.patternlockview.core.PatternHasher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code PatternLockUtils.patternToSha1} and {@code patternToMD5}, which serialize the
+ * pattern and then hash its string form
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternHasherBenchmark {
+
+    @Benchmark
+    public String patternToSha1(PatternState state) {
+        return PatternHasher.sha1(PatternCodec.patternToString(state.ids));
+    }
+
+    @Benchmark
+    public String patternToMD5(PatternState state) {
+        return PatternHasher.md5(PatternCodec.patternToString(state.ids));
+    }
+}
@@ -0,0 +1,32 @@
+package com.andrognito.patternlockview.benchmark;
+
+import com.andrognito.patternlockview.core.PatternCodec;
+import com.andrognito.patternlockview.core.PatternGenerator;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A pattern drawn on a matrix of each measured size. The default {@code 3x3} matrix is measured
+ * along with two larger ones, and short patterns along with ones that visit nine dots.
+ */
+@State(Scope.Benchmark)
+public class PatternState {
+
+    @Param({"3", "5", "9"})
+    public int dotCount;
+
+    @Param({"4", "9"})
+    public int patternLength;
+
+    public int[] ids;
+    public String serialized;
+
+    @Setup
+    public void setUp() {
+        ids = PatternGenerator.generateRandomPattern(dotCount, patternLength);
+        serialized = PatternCodec.patternToString(ids);
+    }
+}
@@ -0,0 +1,321 @@
+package com.andrognito.patternlockview.core;
+
+import java.util.Arrays;
+
+/**
+ * Lays dots out at arbitrary positions, such as on a circle or a hexagon. Positions are given in
+ * normalized coordinates, from {@code 0} to {@code 1} on both axes, and scaled uniformly to fit
+ * the bounds so the shape is never distorted. Dot ids are the indices of the positions.
+ * <p>
+ * Each dot gets a circular hit area whose diameter is the hit factor times the distance between
+ * the two closest dots, so hit areas never overlap with the default hit factor. Hit tests go
+ * through a uniform grid of buckets built when the bounds change: a bucket is about as large as a
+ * hit area and lists the dots whose hit areas overlap it, so a hit test only checks the few dots
+ * of one bucket, whatever the number of dots.
+ */
+public class FreeformLayout extends PatternLayout {
+
+    private final float[] mNormalizedX;
+    private final float[] mNormalizedY;
+    // The distance between the two closest dots, in normalized coordinates
+    private final float mMinSpacing;
+    private float mHitFactor = DEFAULT_HIT_FACTOR;
+
+    private float mLeft;
+    private float mTop;
+    private float mWidth;
+    private float mHeight;
+    private float mScale;
+    private float mOriginX;
+    private float mOriginY;
+    private float mHitRadius;
+
+    private final float[] mCenterX;
+    private final float[] mCenterY;
+
+    // The spatial index. The dots overlapping bucket i are mBucketIds[mBucketStart[i]] up to
+    // mBucketIds[mBucketStart[i + 1]] (exclusive), with buckets counted row by row
+    private float mIndexLeft;
+    private float mIndexTop;
+    private float mBucketSize;
+    private int mBucketColumns;
+    private int mBucketRows;
+    private int[] mBucketStart = new int[0];
+    private int[] mBucketIds = new int[0];
+
+    /**
+     * @param normalizedX The x coordinate of each dot, from {@code 0} (left) to {@code 1} (right)
+     * @param normalizedY The y coordinate of each dot, from {@code 0} (top) to {@code 1} (bottom)
+     */
+    public FreeformLayout(float[] normalizedX, float[] normalizedY) {
+        if (normalizedX == null || normalizedY == null
+                || normalizedX.length != normalizedY.length) {
+            throw new IllegalArgumentException("There must be as many x as y coordinates");
+        }
+        if (normalizedX.length == 0) {
+            throw new IllegalArgumentException("A layout needs at least one dot");
+        }
+        for (int i = 0; i < normalizedX.length; i++) {
+            if (!isNormalized(normalizedX[i]) || !isNormalized(normalizedY[i])) {
+                throw new IllegalArgumentException("Coordinates must be in range [0, 1]");
+            }
+        }
+        mNormalizedX = Arrays.copyOf(normalizedX, normalizedX.length);
+        mNormalizedY = Arrays.copyOf(normalizedY, normalizedY.length);
+        mMinSpacing = computeMinSpacing(mNormalizedX, mNormalizedY);
+        mCenterX = new float[normalizedX.length];
+        mCenterY = new float[normalizedY.length];
+    }
+
+    /**
+     * Creates a ring of dots, starting at the top and going clockwise
+     */
+    public static FreeformLayout circle(int dotCount) {
+        if (dotCount <= 0) {
+            throw new IllegalArgumentException("Dot count must be greater than 0");
+        }
+        float[] x = new float[dotCount];
+        float[] y = new float[dotCount];
+        for (int i = 0; i < dotCount; i++) {
+            double angle = 2 * Math.PI * i / dotCount;
+            x[i] = (float) (0.5 + 0.5 * Math.sin(angle));
+            y[i] = (float) (0.5 - 0.5 * Math.cos(angle));
+        }
+        return new FreeformLayout(x, y);
+    }
+
+    /**
+     * Creates a hexagon of dots on a triangular lattice, counted from left to right, top to
+     * bottom. A hexagon of one ring has 7 dots (a center and its 6 neighbours), of two rings 19
+     *
+     * @param rings The number of rings around the center dot
+     */
+    public static FreeformLayout hexagon(int rings) {
+        if (rings < 0) {
+            throw new IllegalArgumentException("Ring count must not be negative");
+        }
+        int dotCount = 3 * rings * (rings + 1) + 1;
+        float[] x = new float[dotCount];
+        float[] y = new float[dotCount];
+        // Both axes are divided by the width of the hexagon, which is its largest side
+        float span = Math.max(1, 2 * rings);
+        float rowHeight = (float) (Math.sqrt(3) / 2);
+        int id = 0;
+        for (int r = -rings; r <= rings; r++) {
+            int qStart = Math.max(-rings, -r - rings);
+            int qEnd = Math.min(rings, -r + rings);
+            for (int q = qStart; q <= qEnd; q++, id++) {
+                x[id] = 0.5f + (q + r / 2f) / span;
+                y[id] = 0.5f + r * rowHeight / span;
+            }
+        }
+        return new FreeformLayout(x, y);
+    }
+
+    private static boolean isNormalized(float value) {
+        return value >= 0f && value <= 1f;
+    }
+
+    private static float computeMinSpacing(float[] x, float[] y) {
+        if (x.length == 1) {
+            return 1f;
+        }
+        float minDistanceSquared = Float.MAX_VALUE;
+        for (int i = 0; i < x.length; i++) {
+            for (int j = i + 1; j < x.length; j++) {
+                float dx = x[i] - x[j];
+                float dy = y[i] - y[j];
+                minDistanceSquared = Math.min(minDistanceSquared, dx * dx + dy * dy);
+            }
+        }
+        if (minDistanceSquared == 0f) {
+            throw new IllegalArgumentException("Two dots can not share the same position");
+        }
+        return (float) Math.sqrt(minDistanceSquared);
+    }
+
+    @Override
+    public int getPatternSize() {
+        return mNormalizedX.length;
+    }
+
+    @Override
+    public float getHitFactor() {
+        return mHitFactor;
+    }
+
+    @Override
+    public void setHitFactor(float hitFactor) {
+        mHitFactor = hitFactor;
+        updateGeometry();
+    }
+
+    /**
+     * Lays the dots out inside the largest square that fits in the given rectangle, centered
+     */
+    @Override
+    public void setBounds(float left, float top, float width, float height) {
+        if (left == mLeft && top == mTop && width == mWidth && height == mHeight) {
+            return;
+        }
+        mLeft = left;
+        mTop = top;
+        mWidth = width;
+        mHeight = height;
+        mScale = Math.max(0f, Math.min(width, height));
+        mOriginX = left + (width - mScale) / 2f;
+        mOriginY = top + (height - mScale) / 2f;
+        for (int i = 0; i < mCenterX.length; i++) {
+            mCenterX[i] = mOriginX + mNormalizedX[i] * mScale;
+            mCenterY[i] = mOriginY + mNormalizedY[i] * mScale;
+        }
+        updateGeometry();
+    }
+
+    private void updateGeometry() {
+        mHitRadius = getCellWidth() * mHitFactor / 2f;
+        if (mHitRadius <= 0f) {
+            mBucketColumns = 0;
+            mBucketRows = 0;
+            return;
+        }
+
+        // Buckets at least as large as a hit area, so each dot overlaps at most 2x2 of them. Their
+        // number is capped for tiny hit areas, where buckets then get larger than needed
+        float extent = mScale + 2 * mHitRadius;
+        int maxBucketsPerSide = 2 * (int) Math.ceil(Math.sqrt(mCenterX.length)) + 1;
+        mBucketSize = Math.max(2 * mHitRadius, extent / maxBucketsPerSide);
+        mIndexLeft = mOriginX - mHitRadius;
+        mIndexTop = mOriginY - mHitRadius;
+        mBucketColumns = Math.max(1, (int) Math.ceil(extent / mBucketSize));
+        mBucketRows = mBucketColumns;
+
+        int bucketCount = mBucketColumns * mBucketRows;
+        if (mBucketStart.length < bucketCount + 1) {
+            mBucketStart = new int[bucketCount + 1];
+        } else {
+            Arrays.fill(mBucketStart, 0, bucketCount + 1, 0);
+        }
+
+        // Count the dots of each bucket, sum the counts up into offsets, then fill the buckets
+        int total = 0;
+        for (int id = 0; id < mCenterX.length; id++) {
+            total += forEachBucket(id, null);
+        }
+        for (int i = 1; i <= bucketCount; i++) {
+            mBucketStart[i] += mBucketStart[i - 1];
+        }
+        if (mBucketIds.length < total) {
+            mBucketIds = new int[total];
+        }
+        int[] fill = Arrays.copyOf(mBucketStart, bucketCount);
+        for (int id = 0; id < mCenterX.length; id++) {
+            forEachBucket(id, fill);
+        }
+    }
+
+    /**
+     * Visits the buckets the hit area of a dot overlaps. Without a fill cursor it counts the dot
+     * in each of them, otherwise it adds the dot to each of them
+     *
+     * @return The number of buckets visited
+     */
+    private int forEachBucket(int id, int[] fill) {
+        int firstColumn = getBucketColumn(mCenterX[id] - mHitRadius);
+        int lastColumn = getBucketColumn(mCenterX[id] + mHitRadius);
+        int firstRow = getBucketRow(mCenterY[id] - mHitRadius);
+        int lastRow = getBucketRow(mCenterY[id] + mHitRadius);
+        int visited = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++, visited++) {
+                int bucket = row * mBucketColumns + column;
+                if (fill == null) {
+                    // Counted one bucket ahead, so summing them up gives the start offsets
+                    mBucketStart[bucket + 1]++;
+                } else {
+                    mBucketIds[fill[bucket]++] = id;
+                }
+            }
+        }
+        return visited;
+    }
+
+    private int getBucketColumn(float x) {
+        int column = (int) Math.floor((x - mIndexLeft) / mBucketSize);
+        return Math.min(mBucketColumns - 1, Math.max(0, column));
+    }
+
+    private int getBucketRow(float y) {
+        int row = (int) Math.floor((y - mIndexTop) / mBucketSize);
+        return Math.min(mBucketRows - 1, Math.max(0, row));
+    }
+
+    /**
+     * The distance between the two closest dots, so the square cell around each dot touches the
+     * cells of its closest neighbours
+     */
+    @Override
+    public float getCellWidth() {
+        return mMinSpacing * mScale;
+    }
+
+    @Override
+    public float getCellHeight() {
+        return mMinSpacing * mScale;
+    }
+
+    public float getHitRadius() {
+        return mHitRadius;
+    }
+
+    @Override
+    public float getDotCenterX(int id) {
+        return mCenterX[id];
+    }
+
+    @Override
+    public float getDotCenterY(int id) {
+        return mCenterY[id];
+    }
+
+    @Override
+    public int getHit(float x, float y) {
+        if (mBucketColumns == 0) {
+            return -1;
+        }
+        float column = (float) Math.floor((x - mIndexLeft) / mBucketSize);
+        float row = (float) Math.floor((y - mIndexTop) / mBucketSize);
+        if (column < 0 || column >= mBucketColumns || row < 0 || row >= mBucketRows) {
+            return -1;
+        }
+
+        int bucket = (int) row * mBucketColumns + (int) column;
+        float radiusSquared = mHitRadius * mHitRadius;
+        int hit = -1;
+        float hitDistanceSquared = Float.MAX_VALUE;
+        for (int i = mBucketStart[bucket]; i < mBucketStart[bucket + 1]; i++) {
+            int id = mBucketIds[i];
+            float dx = x - mCenterX[id];
+            float dy = y - mCenterY[id];
+            float distanceSquared = dx * dx + dy * dy;
+            // Hit areas only overlap with a large hit factor, the closest dot wins then
+            if (distanceSquared <= radiusSquared && distanceSquared < hitDistanceSquared) {
+                hit = id;
+                hitDistanceSquared = distanceSquared;
+            }
+        }
+        return hit;
+    }
+
+    /**
+     * Finds the dot whose hit area contains the middle of the segment between two dots, which is
+     * where a dot lies when it is one dot apart from both of them
+     */
+    @Override
+    public int getGapDot(int fromId, int toId) {
+        float middleX = (mCenterX[fromId] + mCenterX[toId]) / 2f;
+        float middleY = (mCenterY[fromId] + mCenterY[toId]) / 2f;
+        int gapId = getHit(middleX, middleY);
+        return gapId < 0 || gapId == toId ? fromId : gapId;
+    }
+}
@@ -0,0 +1,63 @@
+package com.andrognito.patternlockview.core;
+
+/**
+ * Packs short patterns into a single {@code long}: the length in the lowest 5 bits followed by
+ * one 4 bit nibble per dot id. This fits patterns of up to {@link #MAX_LENGTH} dots on matrices
+ * of up to {@code 4x4}, which covers every pattern that can realistically be enumerated.
+ */
+public class PackedPattern {
+
+    public static final int MAX_LENGTH = 14;
+    public static final int MAX_DOT_ID = 15;
+
+    private static final int LENGTH_BITS = 5;
+    private static final int ID_BITS = 4;
+    private static final long LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+    private static final long ID_MASK = (1 << ID_BITS) - 1;
+
+    private PackedPattern() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    public static long pack(int[] ids, int length) {
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Can not pack more than " + MAX_LENGTH + " dots");
+        }
+        long packed = length;
+        for (int i = 0; i < length; i++) {
+            if (ids[i] < 0 || ids[i] > MAX_DOT_ID) {
+                throw new IllegalArgumentException("Dot id must be in range 0-" + MAX_DOT_ID);
+            }
+            packed |= (long) ids[i] << (LENGTH_BITS + i * ID_BITS);
+        }
+        return packed;
+    }
+
+    public static int length(long packed) {
+        return (int) (packed & LENGTH_MASK);
+    }
+
+    public static int get(long packed, int index) {
+        return (int) ((packed >>> (LENGTH_BITS + index * ID_BITS)) & ID_MASK);
+    }
+
+    /**
+     * Unpacks the dot ids into the given array
+     *
+     * @return The length of the pattern
+     */
+    public static int unpack(long packed, int[] ids) {
+        int length = length(packed);
+        for (int i = 0; i < length; i++) {
+            ids[i] = get(packed, i);
+        }
+        return length;
+    }
+
+    public static int[] unpack(long packed) {
+        int[] ids = new int[length(packed)];
+        unpack(packed, ids);
+        return ids;
+    }
+}
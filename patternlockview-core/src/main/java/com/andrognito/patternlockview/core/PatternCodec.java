@@ -0,0 +1,102 @@
+package com.andrognito.patternlockview.core;
+
+/**
+ * Converts patterns, given as dot ids, to and from the string form used for persistence and
+ * hashing. Each dot contributes its id in decimal, so the string of a {@code 3x3} pattern is a
+ * sequence of digits such as {@code "0124"}.
+ * <p>
+ * Past {@code 3x3}, ids take more than one digit and different patterns can share a string, so
+ * larger matrices should prefer {@link WidePattern}.
+ */
+public class PatternCodec {
+
+    private PatternCodec() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    /**
+     * Serializes a given pattern to its equivalent string representation
+     *
+     * @param ids    The dot ids of the pattern
+     * @param length The number of ids to use from the array
+     * @return The pattern in its string form
+     */
+    public static String patternToString(int[] ids, int length) {
+        if (ids == null) {
+            return "";
+        }
+        StringBuilder stringBuilder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            stringBuilder.append(ids[i]);
+        }
+        return stringBuilder.toString();
+    }
+
+    public static String patternToString(int[] ids) {
+        return patternToString(ids, ids == null ? 0 : ids.length);
+    }
+
+    /**
+     * The number of bytes {@link #patternToBytes} writes for a pattern
+     *
+     * @param ids    The dot ids of the pattern
+     * @param length The number of ids to use from the array
+     */
+    public static int getSerializedLength(int[] ids, int length) {
+        int serializedLength = 0;
+        for (int i = 0; i < length; i++) {
+            int id = ids[i];
+            do {
+                serializedLength++;
+                id /= 10;
+            } while (id > 0);
+        }
+        return serializedLength;
+    }
+
+    /**
+     * Writes the string form of a pattern as ASCII (and so UTF-8) bytes, without allocating
+     *
+     * @param ids    The dot ids of the pattern
+     * @param length The number of ids to use from the array
+     * @param buffer The buffer to write to, at least {@link #getSerializedLength} long
+     * @return The number of bytes written
+     */
+    public static int patternToBytes(int[] ids, int length, byte[] buffer) {
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            int id = ids[i];
+            if (id < 10) {
+                buffer[position++] = (byte) ('0' + id);
+                continue;
+            }
+            int start = position;
+            while (id > 0) {
+                buffer[position++] = (byte) ('0' + id % 10);
+                id /= 10;
+            }
+            // The digits were written least significant first
+            for (int low = start, high = position - 1; low < high; low++, high--) {
+                byte digit = buffer[low];
+                buffer[low] = buffer[high];
+                buffer[high] = digit;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * De-serializes a given string to the dot ids of its pattern
+     *
+     * @param string The pattern serialized with {@link #patternToString}
+     * @return The dot ids of the pattern
+     */
+    public static int[] stringToPattern(String string) {
+        int[] ids = new int[string.length()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Character.getNumericValue(string.charAt(i));
+        }
+        return ids;
+    }
+}
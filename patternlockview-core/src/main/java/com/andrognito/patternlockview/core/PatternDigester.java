@@ -0,0 +1,76 @@
+package com.andrognito.patternlockview.core;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the same digests as {@link PatternHasher}, straight from dot ids and into a caller
+ * owned buffer. Nothing is allocated per pattern, which is what bulk jobs hashing millions of
+ * patterns need.
+ * <p>
+ * Instances are not thread safe. Use one per thread.
+ */
+public class PatternDigester {
+
+    // Enough for the longest pattern of a 16x16 matrix, at three digits per dot id. Grown for
+    // longer patterns
+    private static final int INITIAL_BUFFER_LENGTH = 16 * 16 * 3;
+
+    private final MessageDigest mMessageDigest;
+    private byte[] mBuffer = new byte[INITIAL_BUFFER_LENGTH];
+
+    public PatternDigester(String algorithm) throws NoSuchAlgorithmException {
+        mMessageDigest = MessageDigest.getInstance(algorithm);
+    }
+
+    public String getAlgorithm() {
+        return mMessageDigest.getAlgorithm();
+    }
+
+    public int getDigestLength() {
+        return mMessageDigest.getDigestLength();
+    }
+
+    /**
+     * Digests the serialized form of a pattern
+     *
+     * @param ids    The dot ids of the pattern
+     * @param length The number of ids to use from the array
+     * @param output The buffer receiving the digest, at least {@link #getDigestLength()} long
+     */
+    public void digest(int[] ids, int length, byte[] output) {
+        int serializedLength = PatternCodec.getSerializedLength(ids, length);
+        if (mBuffer.length < serializedLength) {
+            mBuffer = new byte[serializedLength];
+        }
+        int byteCount = PatternCodec.patternToBytes(ids, length, mBuffer);
+        digest(byteCount, output);
+    }
+
+    /**
+     * Digests the {@link WidePattern} form of a pattern, for matrices larger than {@code 3x3}
+     * where the decimal form is ambiguous
+     *
+     * @param ids    The dot ids of the pattern
+     * @param length The number of ids to use from the array
+     * @param output The buffer receiving the digest, at least {@link #getDigestLength()} long
+     */
+    public void digestWide(int[] ids, int length, byte[] output) {
+        if (mBuffer.length < 2 * length) {
+            mBuffer = new byte[2 * length];
+        }
+        int byteCount = WidePattern.toBytes(ids, length, mBuffer);
+        digest(byteCount, output);
+    }
+
+    private void digest(int byteCount, byte[] output) {
+        mMessageDigest.update(mBuffer, 0, byteCount);
+        try {
+            mMessageDigest.digest(output, 0, output.length);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException("Output buffer is too small for "
+                    + getAlgorithm(), e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.andrognito.patternlockview.core;
+
+/**
+ * Enumerates every pattern of a matrix, that is every sequence of distinct dots within a range of
+ * lengths. This is a superset of the patterns a user can draw, so anything hashed from a drawn
+ * pattern can be found by walking it.
+ */
+public class PatternEnumerator {
+
+    /**
+     * Receives the enumerated patterns. The array is reused between calls, so copy it (for
+     * instance with {@link PackedPattern#pack}) to keep a pattern around
+     */
+    public interface Visitor {
+        void visit(int[] ids, int length);
+    }
+
+    private PatternEnumerator() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    /**
+     * Counts the patterns starting with one given dot
+     */
+    public static long countStartingWith(int dotCount, int minLength, int maxLength) {
+        int patternSize = dotCount * dotCount;
+        checkLengths(patternSize, minLength, maxLength);
+        long count = 0;
+        long sequences = 1;
+        for (int length = 1; length <= maxLength; length++) {
+            if (length > 1) {
+                sequences *= patternSize - length + 1;
+            }
+            if (length >= minLength) {
+                count += sequences;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts all the patterns of the matrix within the given lengths
+     */
+    public static long count(int dotCount, int minLength, int maxLength) {
+        return countStartingWith(dotCount, minLength, maxLength) * dotCount * dotCount;
+    }
+
+    public static void enumerate(int dotCount, int minLength, int maxLength, Visitor visitor) {
+        for (int firstId = 0; firstId < dotCount * dotCount; firstId++) {
+            enumerateStartingWith(dotCount, firstId, minLength, maxLength, visitor);
+        }
+    }
+
+    /**
+     * Enumerates the patterns starting with one given dot. Every dot has the same number of
+     * patterns, so this is the natural unit to split an enumeration across threads
+     */
+    public static void enumerateStartingWith(int dotCount, int firstId, int minLength,
+                                             int maxLength, Visitor visitor) {
+        int patternSize = dotCount * dotCount;
+        checkLengths(patternSize, minLength, maxLength);
+        int[] ids = new int[maxLength];
+        boolean[] used = new boolean[patternSize];
+        ids[0] = firstId;
+        used[firstId] = true;
+        walk(ids, 1, used, minLength, maxLength, visitor);
+    }
+
+    private static void walk(int[] ids, int length, boolean[] used, int minLength, int maxLength,
+                             Visitor visitor) {
+        if (length >= minLength) {
+            visitor.visit(ids, length);
+        }
+        if (length == maxLength) {
+            return;
+        }
+        for (int id = 0; id < used.length; id++) {
+            if (used[id]) {
+                continue;
+            }
+            used[id] = true;
+            ids[length] = id;
+            walk(ids, length + 1, used, minLength, maxLength, visitor);
+            used[id] = false;
+        }
+    }
+
+    private static void checkLengths(int patternSize, int minLength, int maxLength) {
+        if (minLength < 1 || maxLength < minLength || maxLength > patternSize) {
+            throw new IllegalArgumentException("Lengths must satisfy 1 <= minLength <= maxLength <= "
+                    + patternSize);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.andrognito.patternlockview.core;
+
+import com.andrognito.patternlockview.utils.RandomUtils;
+
+/**
+ * Generates random patterns on a matrix of dots
+ */
+public class PatternGenerator {
+
+    private PatternGenerator() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    /**
+     * Generates a random "CAPTCHA" pattern on a square matrix
+     *
+     * @param dotCount The number of dots in a row (or column) of the matrix
+     * @param size     The number of dots in the generated pattern
+     * @return The dot ids of the generated pattern
+     * @see #generateRandomPattern(int, int, int)
+     */
+    public static int[] generateRandomPattern(int dotCount, int size)
+            throws IndexOutOfBoundsException {
+        return generateRandomPattern(dotCount, dotCount, size);
+    }
+
+    /**
+     * Generates a random "CAPTCHA" pattern. The generated pattern is easy for the user to re-draw.
+     * <p>
+     * Each dot is picked from the closest ring of free dots around the previous one, and used dots
+     * are tracked in a bitset, so large matrices stay cheap. It is measured on matrices of up to
+     * {@code 9x9} by {@code PatternGeneratorBenchmark}. </p>
+     *
+     * @param rowCount    The number of rows of the matrix
+     * @param columnCount The number of columns of the matrix
+     * @param size        The number of dots in the generated pattern
+     * @return The dot ids of the generated pattern
+     */
+    public static int[] generateRandomPattern(int rowCount, int columnCount, int size)
+            throws IndexOutOfBoundsException {
+        int patternSize = rowCount * columnCount;
+        if (size <= 0 || size > patternSize) {
+            throw new IndexOutOfBoundsException("Size must be in range [1, " +
+                    patternSize + "]");
+        }
+
+        // The generated ids, and a bitset of them so that checking for a used id is O(1) on
+        // large matrices too
+        int[] result = new int[size];
+        long[] usedIds = new long[(patternSize + 63) >>> 6];
+        int lastId = RandomUtils.randInt(patternSize);
+        result[0] = lastId;
+        usedIds[lastId >>> 6] |= 1L << lastId;
+        int usedCount = 1;
+
+        while (usedCount < size) {
+            // We start from an empty matrix, so there's always a break point to
+            // exit this loop
+            final int lastRow = lastId / columnCount;
+            final int lastCol = lastId % columnCount;
+
+            // This is the max available rows/ columns that we can reach from
+            // the cell of `lastId` to the border of the matrix.
+            final int maxDistance = Math.max(
+                    Math.max(lastRow, rowCount - lastRow),
+                    Math.max(lastCol, columnCount - lastCol));
+
+            lastId = -1;
+
+            // Starting from `distance` = 1, find the closest-available
+            // neighbour value of the cell [lastRow, lastCol].
+            for (int distance = 1; distance <= maxDistance; distance++) {
+
+                // Now we have a square surrounding the current cell. We call it
+                // ABCD, in which A is top-left, and C is bottom-right.
+                final int rowA = lastRow - distance;
+                final int colA = lastCol - distance;
+                final int rowC = lastRow + distance;
+                final int colC = lastCol + distance;
+
+                int[] randomValues;
+
+                // Process randomly AB, BC, CD, and DA. Break the loop as soon
+                // as we find one value.
+                final int[] lines = RandomUtils.randIntArray(4);
+                for (int line : lines) {
+                    switch (line) {
+                        case 0: {
+                            if (rowA >= 0) {
+                                randomValues = RandomUtils.randIntArray(Math.max(0, colA),
+                                        Math.min(columnCount, colC + 1));
+                                for (int c : randomValues) {
+                                    lastId = rowA * columnCount + c;
+                                    if ((usedIds[lastId >>> 6] & (1L << lastId)) != 0)
+                                        lastId = -1;
+                                    else
+                                        break;
+                                }
+                            }
+
+                            break;
+                        }
+
+                        case 1: {
+                            if (colC < columnCount) {
+                                randomValues = RandomUtils.randIntArray(Math.max(0, rowA + 1),
+                                        Math.min(rowCount, rowC + 1));
+                                for (int r : randomValues) {
+                                    lastId = r * columnCount + colC;
+                                    if ((usedIds[lastId >>> 6] & (1L << lastId)) != 0)
+                                        lastId = -1;
+                                    else
+                                        break;
+                                }
+                            }
+
+                            break;
+                        }
+
+                        case 2: {
+                            if (rowC < rowCount) {
+                                randomValues = RandomUtils.randIntArray(Math.max(0, colA),
+                                        Math.min(columnCount, colC));
+                                for (int c : randomValues) {
+                                    lastId = rowC * columnCount + c;
+                                    if ((usedIds[lastId >>> 6] & (1L << lastId)) != 0)
+                                        lastId = -1;
+                                    else
+                                        break;
+                                }
+                            }
+
+                            break;
+                        }
+
+                        case 3: {
+                            if (colA >= 0) {
+                                randomValues = RandomUtils.randIntArray(Math.max(0, rowA + 1),
+                                        Math.min(rowCount, rowC));
+                                for (int r : randomValues) {
+                                    lastId = r * columnCount + colA;
+                                    if ((usedIds[lastId >>> 6] & (1L << lastId)) != 0)
+                                        lastId = -1;
+                                    else
+                                        break;
+                                }
+                            }
+
+                            break;
+                        }
+                    }
+
+                    if (lastId >= 0) break;
+                }
+
+                if (lastId >= 0) break;
+            }
+
+            result[usedCount++] = lastId;
+            usedIds[lastId >>> 6] |= 1L << lastId;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,257 @@
+package com.andrognito.patternlockview.core;
+
+/**
+ * The model of a matrix of dots with a number of rows and columns laid out inside a rectangle. It
+ * maps dot ids to their row, column and center, and touch coordinates back to the dots they hit.
+ * <p>
+ * Dot ids are counted from left to right, top to bottom of the matrix, starting by zero. This
+ * class has no dependency on Android, so the exact same geometry can be used on a plain JVM.
+ * <p>
+ * The centers and hit bands of every row and column are computed when the bounds or the hit
+ * factor change, so the lookups made while drawing and tracking touches are plain array reads.
+ * The cells of the matrix are their own spatial index: a hit test computes the cell a point falls
+ * in and only checks the band of that cell, whatever the size of the matrix.
+ */
+public class PatternGrid extends PatternLayout {
+
+    private final int mRowCount;
+    private final int mColumnCount;
+    private float mHitFactor = DEFAULT_HIT_FACTOR;
+
+    private float mLeft;
+    private float mTop;
+    private float mWidth;
+    private float mHeight;
+    private float mCellWidth;
+    private float mCellHeight;
+
+    private final float[] mCenterX;
+    private final float[] mCenterY;
+    // The left edge of the hit band of each column, and the top edge of the one of each row
+    private final float[] mHitLeft;
+    private final float[] mHitTop;
+    private float mHitWidth;
+    private float mHitHeight;
+
+    /**
+     * Creates a square matrix
+     *
+     * @param dotCount The number of dots in a row (or column) of the matrix
+     */
+    public PatternGrid(int dotCount) {
+        this(dotCount, dotCount);
+    }
+
+    public PatternGrid(int rowCount, int columnCount) {
+        if (rowCount <= 0 || columnCount <= 0) {
+            throw new IllegalArgumentException("Row and column counts must be greater than 0");
+        }
+        mRowCount = rowCount;
+        mColumnCount = columnCount;
+        mCenterX = new float[columnCount];
+        mCenterY = new float[rowCount];
+        mHitLeft = new float[columnCount];
+        mHitTop = new float[rowCount];
+    }
+
+    /**
+     * The number of dots in a row of the matrix, which is also the number of dots in a column
+     * when the matrix is square
+     */
+    public int getDotCount() {
+        return mColumnCount;
+    }
+
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    public int getColumnCount() {
+        return mColumnCount;
+    }
+
+    @Override
+    public int getPatternSize() {
+        return mRowCount * mColumnCount;
+    }
+
+    public int getId(int row, int column) {
+        return row * mColumnCount + column;
+    }
+
+    public int getRow(int id) {
+        return id / mColumnCount;
+    }
+
+    public int getColumn(int id) {
+        return id % mColumnCount;
+    }
+
+    @Override
+    public float getHitFactor() {
+        return mHitFactor;
+    }
+
+    @Override
+    public void setHitFactor(float hitFactor) {
+        mHitFactor = hitFactor;
+        updateGeometry();
+    }
+
+    /**
+     * Lays the matrix out inside the given rectangle. Each dot gets an equal cell and is drawn in
+     * the middle of it
+     */
+    @Override
+    public void setBounds(float left, float top, float width, float height) {
+        if (left == mLeft && top == mTop && width == mWidth && height == mHeight) {
+            return;
+        }
+        mLeft = left;
+        mTop = top;
+        mWidth = width;
+        mHeight = height;
+        mCellWidth = width / mColumnCount;
+        mCellHeight = height / mRowCount;
+        updateGeometry();
+    }
+
+    private void updateGeometry() {
+        mHitWidth = mCellWidth * mHitFactor;
+        mHitHeight = mCellHeight * mHitFactor;
+        float hitOffsetX = mLeft + (mCellWidth - mHitWidth) / 2f;
+        float hitOffsetY = mTop + (mCellHeight - mHitHeight) / 2f;
+        for (int i = 0; i < mColumnCount; i++) {
+            mCenterX[i] = mLeft + i * mCellWidth + mCellWidth / 2f;
+            mHitLeft[i] = hitOffsetX + mCellWidth * i;
+        }
+        for (int i = 0; i < mRowCount; i++) {
+            mCenterY[i] = mTop + i * mCellHeight + mCellHeight / 2f;
+            mHitTop[i] = hitOffsetY + mCellHeight * i;
+        }
+    }
+
+    @Override
+    public float getCellWidth() {
+        return mCellWidth;
+    }
+
+    @Override
+    public float getCellHeight() {
+        return mCellHeight;
+    }
+
+    public float getCenterX(int column) {
+        return mCenterX[column];
+    }
+
+    public float getCenterY(int row) {
+        return mCenterY[row];
+    }
+
+    @Override
+    public float getDotCenterX(int id) {
+        return mCenterX[id % mColumnCount];
+    }
+
+    @Override
+    public float getDotCenterY(int id) {
+        return mCenterY[id / mColumnCount];
+    }
+
+    /**
+     * Finds the row whose cell contains y, clamped to the rows of the matrix. Together with
+     * {@link #getColumnAt(float)} this bounds the dots that can touch a given area
+     */
+    public int getRowAt(float y) {
+        int row = (int) Math.floor((y - mTop) / mCellHeight);
+        return Math.min(mRowCount - 1, Math.max(0, row));
+    }
+
+    /**
+     * Finds the column whose cell contains x, clamped to the columns of the matrix
+     */
+    public int getColumnAt(float x) {
+        int column = (int) Math.floor((x - mLeft) / mCellWidth);
+        return Math.min(mColumnCount - 1, Math.max(0, column));
+    }
+
+    /**
+     * Helper method to find the row that y coordinate falls into
+     *
+     * @param y The y coordinate
+     * @return The row that y falls in, or -1 if it falls in no row
+     */
+    public int getRowHit(float y) {
+        return getBandHit(y, mTop, mCellHeight, mHitTop, mHitHeight);
+    }
+
+    /**
+     * Helper method to find the column x falls into
+     *
+     * @param x The x coordinate
+     * @return The column that x falls in, or -1 if it falls in no column
+     */
+    public int getColumnHit(float x) {
+        return getBandHit(x, mLeft, mCellWidth, mHitLeft, mHitWidth);
+    }
+
+    private int getBandHit(float position, float start, float cellSize, float[] hitStarts,
+                           float hitSize) {
+        if (mHitFactor <= 1f && cellSize > 0f) {
+            // Each band lies within its own cell, so only the cell of the position can be hit
+            int i = (int) Math.floor((position - start) / cellSize);
+            if (i < 0 || i >= hitStarts.length) {
+                return -1;
+            }
+            float hitStart = hitStarts[i];
+            return position >= hitStart && position <= hitStart + hitSize ? i : -1;
+        }
+
+        // Bands overlap their neighbouring cells, so the first band that contains it wins
+        for (int i = 0; i < hitStarts.length; i++) {
+            float hitStart = hitStarts[i];
+            if (position >= hitStart && position <= hitStart + hitSize) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getHit(float x, float y) {
+        final int rowHit = getRowHit(y);
+        if (rowHit < 0) {
+            return -1;
+        }
+        final int columnHit = getColumnHit(x);
+        if (columnHit < 0) {
+            return -1;
+        }
+        return getId(rowHit, columnHit);
+    }
+
+    /**
+     * Finds the dot which lies in between two dots that are one dot apart (horizontally,
+     * vertically or diagonally)
+     */
+    @Override
+    public int getGapDot(int fromId, int toId) {
+        int fromRow = getRow(fromId);
+        int fromColumn = getColumn(fromId);
+        int dRow = getRow(toId) - fromRow;
+        int dColumn = getColumn(toId) - fromColumn;
+
+        int fillInRow = fromRow;
+        int fillInColumn = fromColumn;
+
+        if (Math.abs(dRow) == 2 && Math.abs(dColumn) != 1) {
+            fillInRow = fromRow + ((dRow > 0) ? 1 : -1);
+        }
+
+        if (Math.abs(dColumn) == 2 && Math.abs(dRow) != 1) {
+            fillInColumn = fromColumn + ((dColumn > 0) ? 1 : -1);
+        }
+        return getId(fillInRow, fillInColumn);
+    }
+}
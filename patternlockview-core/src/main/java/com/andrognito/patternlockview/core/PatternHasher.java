@@ -0,0 +1,185 @@
+package com.andrognito.patternlockview.core;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes patterns the way {@code PatternLockUtils} does: the digest of the UTF-8 bytes of the
+ * pattern's string form (see {@link PatternCodec}), as a lowercase hex string.
+ * <p>
+ * A salt, when given, is digested right before the pattern. An empty salt therefore produces
+ * exactly the same hash as the unsalted methods. Digests are cached per thread, so all the methods
+ * can be called concurrently without paying for {@link MessageDigest#getInstance} on every call.
+ */
+public class PatternHasher {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public static final String SHA1 = "SHA-1";
+    public static final String MD5 = "MD5";
+
+    private static final ThreadLocal<MessageDigest> SHA1_DIGEST = newDigestCache(SHA1);
+    private static final ThreadLocal<MessageDigest> MD5_DIGEST = newDigestCache(MD5);
+
+    private PatternHasher() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    /**
+     * Returns the SHA-1 hex string of a serialized pattern
+     *
+     * @param serializedPattern The pattern serialized with {@link PatternCodec#patternToString}
+     * @return The SHA-1 string of the pattern
+     */
+    public static String sha1(String serializedPattern) {
+        return hash(SHA1, "", serializedPattern);
+    }
+
+    public static String sha1(String salt, String serializedPattern) {
+        return hash(SHA1, salt, serializedPattern);
+    }
+
+    /**
+     * Returns the MD5 hex string of a serialized pattern
+     *
+     * @param serializedPattern The pattern serialized with {@link PatternCodec#patternToString}
+     * @return The MD5 string of the pattern
+     */
+    public static String md5(String serializedPattern) {
+        return hash(MD5, "", serializedPattern);
+    }
+
+    public static String md5(String salt, String serializedPattern) {
+        return hash(MD5, salt, serializedPattern);
+    }
+
+    /**
+     * Returns the hex string of a serialized pattern for any digest algorithm
+     *
+     * @return The hash of the pattern, or {@code null} if the algorithm is not available
+     */
+    public static String hash(String algorithm, String serializedPattern) {
+        return hash(algorithm, "", serializedPattern);
+    }
+
+    public static String hash(String algorithm, String salt, String serializedPattern) {
+        byte[] digest = digest(algorithm, salt, serializedPattern);
+        return digest == null ? null : toHex(digest);
+    }
+
+    /**
+     * Returns the raw digest of a salted, serialized pattern
+     *
+     * @return The digest, or {@code null} if the algorithm is not available
+     */
+    public static byte[] digest(String algorithm, String salt, String serializedPattern) {
+        MessageDigest messageDigest = getDigest(algorithm);
+        if (messageDigest == null) {
+            return null;
+        }
+        if (salt != null && !salt.isEmpty()) {
+            messageDigest.update(salt.getBytes(UTF8));
+        }
+        messageDigest.update(serializedPattern.getBytes(UTF8));
+        return messageDigest.digest();
+    }
+
+    /**
+     * Checks a serialized pattern against a stored hash. The algorithm is picked from the length
+     * of the stored hash (40 hex digits for SHA-1, 32 for MD5) and the digests are compared in
+     * constant time.
+     *
+     * @param storedHash        The hex string produced by {@link #sha1} or {@link #md5}
+     * @param salt              The salt used for the stored hash, or an empty string
+     * @param serializedPattern The pattern serialized with {@link PatternCodec#patternToString}
+     * @return {@code true} if the pattern produces the stored hash
+     */
+    public static boolean matches(String storedHash, String salt, String serializedPattern) {
+        String algorithm = getAlgorithmForHash(storedHash);
+        if (algorithm == null) {
+            return false;
+        }
+        byte[] expected = fromHex(storedHash);
+        if (expected == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, digest(algorithm, salt, serializedPattern));
+    }
+
+    /**
+     * Guesses the algorithm of a hex hash from its length
+     *
+     * @return {@link #SHA1}, {@link #MD5} or {@code null} if the length matches neither
+     */
+    public static String getAlgorithmForHash(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        switch (hash.length()) {
+            case 40:
+                return SHA1;
+            case 32:
+                return MD5;
+            default:
+                return null;
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return The bytes of a hex string, or {@code null} if it is not valid hex
+     */
+    public static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    private static MessageDigest getDigest(String algorithm) {
+        if (SHA1.equals(algorithm)) {
+            return SHA1_DIGEST.get();
+        } else if (MD5.equals(algorithm)) {
+            return MD5_DIGEST.get();
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static ThreadLocal<MessageDigest> newDigestCache(final String algorithm) {
+        return new ThreadLocal<MessageDigest>() {
+
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance(algorithm);
+                } catch (NoSuchAlgorithmException e) {
+                    return null;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.andrognito.patternlockview.core;
+
+/**
+ * Places the dots of a pattern inside a rectangle. It maps dot ids to their centers, and touch
+ * coordinates back to the dots they hit.
+ * <p>
+ * Dot ids are counted from zero up to {@link #getPatternSize()} (exclusive). Everything that
+ * identifies dots, such as encoding, hashing and tracking patterns, only relies on these ids, so
+ * it works the same whatever the shape of the layout. Hit tests must not depend on the number of
+ * dots, since they run for every touch sample.
+ */
+public abstract class PatternLayout {
+
+    // The fraction of a cell (centered on the dot) that registers a hit
+    static final float DEFAULT_HIT_FACTOR = 0.6f;
+
+    /**
+     * The total number of dots in the layout
+     */
+    public abstract int getPatternSize();
+
+    public abstract float getHitFactor();
+
+    /**
+     * Changes how much of the cell around each dot registers a hit
+     */
+    public abstract void setHitFactor(float hitFactor);
+
+    /**
+     * Lays the dots out inside the given rectangle
+     *
+     * @param left   The left edge of the content area (usually the left padding)
+     * @param top    The top edge of the content area (usually the top padding)
+     * @param width  The width of the content area
+     * @param height The height of the content area
+     */
+    public abstract void setBounds(float left, float top, float width, float height);
+
+    /**
+     * The width of the area that belongs to each dot, which scales touch feedback
+     */
+    public abstract float getCellWidth();
+
+    /**
+     * The height of the area that belongs to each dot, which scales touch feedback
+     */
+    public abstract float getCellHeight();
+
+    public abstract float getDotCenterX(int id);
+
+    public abstract float getDotCenterY(int id);
+
+    /**
+     * Maps a given x, y to its corresponding dot
+     *
+     * @return The id of the dot, or -1 if the point hits no dot
+     */
+    public abstract int getHit(float x, float y);
+
+    /**
+     * Finds the dot the user's finger must have passed over when moving straight from one dot to
+     * another. Such a dot is automatically added to the pattern.
+     *
+     * @param fromId The last dot of the pattern
+     * @param toId   The dot being added to the pattern
+     * @return The dot in between, or {@code fromId} itself if there is none
+     */
+    public abstract int getGapDot(int fromId, int toId);
+}
@@ -0,0 +1,127 @@
+package com.andrognito.patternlockview.core;
+
+import java.util.Arrays;
+
+/**
+ * Turns a stream of touch samples into a pattern. It keeps the dots connected so far (as ids of
+ * the {@link PatternLayout}), a lookup table of the dots already visited and applies the same
+ * heuristics the view uses, such as filling in the gaps between dots that are one dot apart.
+ * <p>
+ * The visited dots are kept in a bitset, so clearing them stays cheap on large matrices.
+ */
+public class PatternTracker {
+
+    private final PatternLayout mLayout;
+    private final long[] mVisited;
+    private int[] mPattern;
+    private int mSize;
+
+    public PatternTracker(PatternLayout layout) {
+        if (layout == null) {
+            throw new IllegalArgumentException("PatternLayout can not be null.");
+        }
+        mLayout = layout;
+        mVisited = new long[(layout.getPatternSize() + 63) >>> 6];
+        mPattern = new int[layout.getPatternSize()];
+    }
+
+    public PatternLayout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * The number of dots in the pattern
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Returns the id of the dot at the given position of the pattern
+     */
+    public int get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return mPattern[index];
+    }
+
+    /**
+     * Returns a copy of the pattern as an array of dot ids
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(mPattern, mSize);
+    }
+
+    public boolean isVisited(int id) {
+        return (mVisited[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Marks a dot as visited (or not) without changing the pattern. This is what the view uses
+     * to reveal the pattern dot by dot while animating it
+     */
+    public void setVisited(int id, boolean visited) {
+        if (visited) {
+            mVisited[id >>> 6] |= 1L << id;
+        } else {
+            mVisited[id >>> 6] &= ~(1L << id);
+        }
+    }
+
+    public void clearVisited() {
+        Arrays.fill(mVisited, 0L);
+    }
+
+    /**
+     * Clears the pattern along with the lookup table of visited dots
+     */
+    public void clear() {
+        mSize = 0;
+        clearVisited();
+    }
+
+    /**
+     * Appends a dot to the pattern and marks it as visited
+     */
+    public void add(int id) {
+        if (mSize == mPattern.length) {
+            mPattern = Arrays.copyOf(mPattern, mPattern.length * 2);
+        }
+        setVisited(id, true);
+        mPattern[mSize++] = id;
+    }
+
+    /**
+     * Determines whether the point x, y hits a dot that is not part of the pattern yet
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return The id of the newly hit dot, or -1 if there is none
+     */
+    public int checkForNewHit(float x, float y) {
+        int id = mLayout.getHit(x, y);
+        if (id < 0 || isVisited(id)) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * Finds the dot that has to be filled in before the given dot is appended to the pattern
+     *
+     * @param id The dot about to be added
+     * @return The id of the dot to fill in, or -1 if there is no unvisited dot in between
+     */
+    public int getGapFill(int id) {
+        if (mSize == 0) {
+            return -1;
+        }
+        int fillInId = mLayout.getGapDot(mPattern[mSize - 1], id);
+        return isVisited(fillInId) ? -1 : fillInId;
+    }
+}
@@ -0,0 +1,56 @@
+package com.andrognito.patternlockview.core;
+
+/**
+ * Packs patterns into one 16 bit {@code char} per dot id, which fits matrices of up to
+ * {@code 256x256}. The decimal string of {@link PatternCodec} is only unambiguous while every id
+ * is a single digit, and {@link PackedPattern} stops at {@code 4x4}, so larger matrices are
+ * stored, parceled and digested in this form instead.
+ */
+public class WidePattern {
+
+    public static final int MAX_DOT_ID = 0xFFFF;
+
+    private WidePattern() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    public static char[] pack(int[] ids, int length) {
+        char[] packed = new char[length];
+        for (int i = 0; i < length; i++) {
+            if (ids[i] < 0 || ids[i] > MAX_DOT_ID) {
+                throw new IllegalArgumentException("Dot id must be in range 0-" + MAX_DOT_ID);
+            }
+            packed[i] = (char) ids[i];
+        }
+        return packed;
+    }
+
+    public static int[] unpack(char[] packed) {
+        int[] ids = new int[packed.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = packed[i];
+        }
+        return ids;
+    }
+
+    /**
+     * Writes the ids as big endian 16 bit values, which is what wide patterns are digested from
+     *
+     * @param ids    The dot ids of the pattern
+     * @param length The number of ids to use from the array
+     * @param buffer The buffer to write to, which must hold at least {@code 2 * length} bytes
+     * @return The number of bytes written
+     */
+    public static int toBytes(int[] ids, int length, byte[] buffer) {
+        for (int i = 0; i < length; i++) {
+            int id = ids[i];
+            if (id < 0 || id > MAX_DOT_ID) {
+                throw new IllegalArgumentException("Dot id must be in range 0-" + MAX_DOT_ID);
+            }
+            buffer[2 * i] = (byte) (id >>> 8);
+            buffer[2 * i + 1] = (byte) id;
+        }
+        return 2 * length;
+    }
+}
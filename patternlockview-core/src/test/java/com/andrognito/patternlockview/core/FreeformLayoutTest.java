@@ -0,0 +1,68 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FreeformLayoutTest {
+
+    @Test
+    public void dotsHitTheirOwnCenter() {
+        FreeformLayout layout = FreeformLayout.circle(8);
+        layout.setBounds(0, 0, 200, 100);
+        for (int id = 0; id < layout.getPatternSize(); id++) {
+            assertEquals(id, layout.getHit(layout.getDotCenterX(id), layout.getDotCenterY(id)));
+        }
+        // The middle of the ring is far from every dot
+        assertEquals(-1, layout.getHit(100, 50));
+        assertEquals(-1, layout.getHit(-10, -10));
+    }
+
+    @Test
+    public void bucketsHitLikeAScanOfEveryDot() {
+        FreeformLayout[] layouts = {FreeformLayout.circle(12), FreeformLayout.hexagon(2),
+                FreeformLayout.hexagon(5)};
+        for (FreeformLayout layout : layouts) {
+            for (float hitFactor : new float[]{0.6f, 1f, 1.5f}) {
+                layout.setHitFactor(hitFactor);
+                layout.setBounds(7, 3, 301, 257);
+                for (float x = 0; x < 320; x += 1.3f) {
+                    for (float y = 0; y < 270; y += 1.7f) {
+                        assertEquals(layout.getPatternSize() + " dots at " + x + ", " + y,
+                                scan(layout, x, y), layout.getHit(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void gapDotsLieHalfwayBetweenDots() {
+        // One ring: ids 0 and 1 on top, 2, 3 (the center) and 4 in the middle, 5 and 6 below
+        FreeformLayout layout = FreeformLayout.hexagon(1);
+        layout.setBounds(0, 0, 300, 300);
+        assertEquals(3, layout.getGapDot(2, 4));
+        assertEquals(3, layout.getGapDot(0, 6));
+        // Neighbours have nothing in between
+        assertEquals(2, layout.getGapDot(2, 3));
+    }
+
+    /**
+     * The closest dot whose hit area contains the point, checking every dot
+     */
+    private static int scan(FreeformLayout layout, float x, float y) {
+        float radiusSquared = layout.getHitRadius() * layout.getHitRadius();
+        int hit = -1;
+        float hitDistanceSquared = Float.MAX_VALUE;
+        for (int id = 0; id < layout.getPatternSize(); id++) {
+            float dx = x - layout.getDotCenterX(id);
+            float dy = y - layout.getDotCenterY(id);
+            float distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared <= radiusSquared && distanceSquared < hitDistanceSquared) {
+                hit = id;
+                hitDistanceSquared = distanceSquared;
+            }
+        }
+        return hit;
+    }
+}
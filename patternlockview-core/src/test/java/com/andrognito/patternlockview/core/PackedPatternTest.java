@@ -0,0 +1,50 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackedPatternTest {
+
+    @Test
+    public void roundTrip() {
+        int[] ids = {15, 0, 3, 14, 7, 1, 2, 4, 5, 6, 8, 9, 10, 11};
+        long packed = PackedPattern.pack(ids, ids.length);
+        assertEquals(PackedPattern.MAX_LENGTH, PackedPattern.length(packed));
+        assertEquals(15, PackedPattern.get(packed, 0));
+        assertEquals(11, PackedPattern.get(packed, 13));
+        assertArrayEquals(ids, PackedPattern.unpack(packed));
+
+        int[] unpacked = new int[PackedPattern.MAX_LENGTH];
+        assertEquals(3, PackedPattern.unpack(PackedPattern.pack(ids, 3), unpacked));
+        assertEquals(3, unpacked[2]);
+    }
+
+    @Test
+    public void packedPatternsAreNeverNegative() {
+        // Lookups return -1 for a miss, so no pattern may pack to a negative value
+        int[] ids = new int[PackedPattern.MAX_LENGTH];
+        Arrays.fill(ids, PackedPattern.MAX_DOT_ID);
+        assertTrue(PackedPattern.pack(ids, ids.length) >= 0);
+        assertEquals(0, PackedPattern.length(PackedPattern.pack(ids, 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLargeIds() {
+        PackedPattern.pack(new int[]{0, 16}, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeIds() {
+        PackedPattern.pack(new int[]{-1}, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLongPatterns() {
+        PackedPattern.pack(new int[PackedPattern.MAX_LENGTH + 1], PackedPattern.MAX_LENGTH + 1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PatternCodecTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void stringRoundTrip() {
+        int[] ids = {0, 1, 2, 4, 8, 7, 6};
+        String string = PatternCodec.patternToString(ids);
+        assertEquals("0124876", string);
+        assertArrayEquals(ids, PatternCodec.stringToPattern(string));
+    }
+
+    @Test
+    public void stringUsesOnlyTheGivenLength() {
+        assertEquals("35", PatternCodec.patternToString(new int[]{3, 5, 7}, 2));
+        assertEquals("", PatternCodec.patternToString(null));
+        assertEquals(0, PatternCodec.stringToPattern("").length);
+    }
+
+    @Test
+    public void bytesMatchTheString() {
+        // Ids past 9 take several digits, written most significant first
+        int[] ids = {0, 12, 7, 105, 10, 255};
+        byte[] buffer = new byte[32];
+        int length = PatternCodec.patternToBytes(ids, ids.length, buffer);
+        assertEquals("0127105" + "10255", new String(buffer, 0, length, UTF8));
+        assertArrayEquals(PatternCodec.patternToString(ids).getBytes(UTF8),
+                Arrays.copyOf(buffer, length));
+    }
+}
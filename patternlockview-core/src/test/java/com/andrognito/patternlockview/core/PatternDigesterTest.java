@@ -0,0 +1,54 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.assertEquals;
+
+public class PatternDigesterTest {
+
+    @Test
+    public void digestsLikeTheHasher() throws NoSuchAlgorithmException {
+        int[] ids = {0, 12, 7, 105};
+        for (String algorithm : new String[]{PatternHasher.SHA1, PatternHasher.MD5}) {
+            PatternDigester digester = new PatternDigester(algorithm);
+            byte[] digest = new byte[digester.getDigestLength()];
+            // Twice, as the digester is reused
+            for (int i = 0; i < 2; i++) {
+                digester.digest(ids, ids.length, digest);
+                assertEquals(PatternHasher.hash(algorithm, PatternCodec.patternToString(ids)),
+                        PatternHasher.toHex(digest));
+            }
+        }
+    }
+
+    @Test
+    public void digestsPatternsOfLargeMatrices() throws NoSuchAlgorithmException {
+        // Every dot of a 20x20 matrix, which serializes to 1090 bytes
+        int[] ids = new int[400];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        assertEquals(1090, PatternCodec.getSerializedLength(ids, ids.length));
+        PatternDigester digester = new PatternDigester(PatternHasher.SHA1);
+        byte[] digest = new byte[digester.getDigestLength()];
+        digester.digest(ids, ids.length, digest);
+        assertEquals(PatternHasher.sha1(PatternCodec.patternToString(ids)),
+                PatternHasher.toHex(digest));
+    }
+
+    @Test
+    public void wideDigestKnownAnswer() throws NoSuchAlgorithmException {
+        // The SHA-1 of the bytes 00 01 00 02 00 03
+        PatternDigester digester = new PatternDigester(PatternHasher.SHA1);
+        byte[] digest = new byte[digester.getDigestLength()];
+        digester.digestWide(new int[]{1, 2, 3}, 3, digest);
+        assertEquals("2a220613e4832175a6e84566f1e3e4f3745f93d7", PatternHasher.toHex(digest));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortOutput() throws NoSuchAlgorithmException {
+        new PatternDigester(PatternHasher.SHA1).digest(new int[]{0}, 1, new byte[8]);
+    }
+}
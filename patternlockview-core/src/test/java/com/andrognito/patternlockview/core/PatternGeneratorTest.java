@@ -0,0 +1,54 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PatternGeneratorTest {
+
+    private static final int RUNS = 50;
+
+    @Test
+    public void patternsHaveDistinctDotsOfTheMatrix() {
+        int[][] matrices = {{3, 3}, {4, 6}, {7, 2}, {1, 5}, {9, 9}};
+        for (int[] matrix : matrices) {
+            int patternSize = matrix[0] * matrix[1];
+            for (int size = 1; size <= patternSize; size++) {
+                for (int run = 0; run < RUNS; run++) {
+                    check(matrix[0], matrix[1], size);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void squareMatrices() {
+        for (int run = 0; run < RUNS; run++) {
+            assertEquals(16, PatternGenerator.generateRandomPattern(4, 16).length);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsEmptyPatterns() {
+        PatternGenerator.generateRandomPattern(3, 4, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsPatternsLargerThanTheMatrix() {
+        PatternGenerator.generateRandomPattern(3, 4, 13);
+    }
+
+    private static void check(int rowCount, int columnCount, int size) {
+        int[] ids = PatternGenerator.generateRandomPattern(rowCount, columnCount, size);
+        assertEquals(size, ids.length);
+        boolean[] used = new boolean[rowCount * columnCount];
+        for (int id : ids) {
+            assertTrue(rowCount + "x" + columnCount + " id " + id,
+                    id >= 0 && id < used.length);
+            assertFalse(rowCount + "x" + columnCount + " repeats " + id, used[id]);
+            used[id] = true;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PatternGridTest {
+
+    // 3 rows of 4 columns, with cells of 100x100 starting at (10, 20)
+    private final PatternGrid mGrid = new PatternGrid(3, 4);
+
+    @Before
+    public void setUp() {
+        mGrid.setBounds(10, 20, 400, 300);
+    }
+
+    @Test
+    public void idsGoRowByRow() {
+        assertEquals(12, mGrid.getPatternSize());
+        assertEquals(7, mGrid.getId(1, 3));
+        assertEquals(1, mGrid.getRow(7));
+        assertEquals(3, mGrid.getColumn(7));
+        assertEquals(360f, mGrid.getDotCenterX(7), 0f);
+        assertEquals(170f, mGrid.getDotCenterY(7), 0f);
+    }
+
+    @Test
+    public void hitsWithinTheBandOfTheirCell() {
+        // The default hit factor leaves 30 pixels on each side of a center
+        assertEquals(11, mGrid.getHit(360, 270));
+        assertEquals(11, mGrid.getHit(389, 299));
+        assertEquals(-1, mGrid.getHit(391, 270));
+        assertEquals(-1, mGrid.getHit(360, 301));
+        // Outside of the grid
+        assertEquals(-1, mGrid.getHit(5, 70));
+        assertEquals(-1, mGrid.getHit(60, 330));
+    }
+
+    @Test
+    public void overlappingBandsHitTheFirstOne() {
+        // Bands 150 pixels wide spill 25 pixels into the neighbouring cells, and past the bounds
+        mGrid.setHitFactor(1.5f);
+        assertEquals(0, mGrid.getColumnHit(120));
+        assertEquals(1, mGrid.getColumnHit(140));
+        assertEquals(0, mGrid.getColumnHit(0));
+        assertEquals(-1, mGrid.getColumnHit(-20));
+        assertEquals(0, mGrid.getRowHit(140));
+        assertEquals(mGrid.getId(0, 0), mGrid.getHit(120, 140));
+    }
+
+    @Test
+    public void gapDotsLieHalfwayBetweenDotsTwoApart() {
+        // Horizontally, vertically and diagonally
+        assertEquals(1, mGrid.getGapDot(0, 2));
+        assertEquals(4, mGrid.getGapDot(0, 8));
+        assertEquals(5, mGrid.getGapDot(0, 10));
+        assertEquals(6, mGrid.getGapDot(11, 1));
+        // Knight moves and dots three apart have no dot in between
+        assertEquals(0, mGrid.getGapDot(0, 9));
+        assertEquals(0, mGrid.getGapDot(0, 3));
+        assertEquals(0, mGrid.getGapDot(0, 1));
+    }
+}
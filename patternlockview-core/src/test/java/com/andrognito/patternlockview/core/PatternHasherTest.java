@@ -0,0 +1,80 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Known answers computed independently of the library, from the UTF-8 bytes of the string form
+ */
+public class PatternHasherTest {
+
+    private static final String PATTERN = "0124";
+    private static final String SHA1_0124 = "5ea0df5c7a2580d149b68754a35eab0c0dd18cc3";
+    private static final String MD5_0124 = "a4bab3ce420ea5342f99b468206738eb";
+    // Of "salt0124", as the salt is digested right before the pattern
+    private static final String SHA1_SALTED_0124 = "b075d6b0da30cc8b37661eb28993eee4859793d1";
+    private static final String MD5_SALTED_0124 = "c934b310df29d21e30767ce99a1fd4b1";
+
+    @Test
+    public void knownAnswers() {
+        assertEquals(SHA1_0124, PatternHasher.sha1(PATTERN));
+        assertEquals(MD5_0124, PatternHasher.md5(PATTERN));
+        assertEquals("9a7149a5a7786bb368e06d08c5d77774eb43a49e",
+                PatternHasher.sha1("012345678"));
+        assertEquals("22975d8a5ed1b91445f6c55ac121505b", PatternHasher.md5("012345678"));
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", PatternHasher.sha1(""));
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", PatternHasher.md5(""));
+    }
+
+    @Test
+    public void saltIsDigestedBeforeThePattern() {
+        assertEquals(SHA1_SALTED_0124, PatternHasher.sha1("salt", PATTERN));
+        assertEquals(MD5_SALTED_0124, PatternHasher.md5("salt", PATTERN));
+        // An empty salt is the same as none
+        assertEquals(SHA1_0124, PatternHasher.sha1("", PATTERN));
+        assertEquals(MD5_0124, PatternHasher.hash(PatternHasher.MD5, null, PATTERN));
+    }
+
+    @Test
+    public void unknownAlgorithmHasNoHash() {
+        assertNull(PatternHasher.hash("NO-SUCH-DIGEST", PATTERN));
+        assertEquals(SHA1_0124, PatternHasher.hash(PatternHasher.SHA1, PATTERN));
+    }
+
+    @Test
+    public void matchesPicksTheAlgorithmFromTheLength() {
+        assertTrue(PatternHasher.matches(SHA1_0124, "", PATTERN));
+        assertTrue(PatternHasher.matches(MD5_0124, "", PATTERN));
+        assertTrue(PatternHasher.matches(SHA1_SALTED_0124, "salt", PATTERN));
+        assertTrue(PatternHasher.matches(SHA1_0124.toUpperCase(), "", PATTERN));
+
+        assertFalse(PatternHasher.matches(SHA1_0124, "", "0125"));
+        assertFalse(PatternHasher.matches(SHA1_0124, "salt", PATTERN));
+        assertFalse(PatternHasher.matches(SHA1_SALTED_0124, "", PATTERN));
+    }
+
+    @Test
+    public void matchesRejectsMalformedHashes() {
+        assertFalse(PatternHasher.matches(null, "", PATTERN));
+        assertFalse(PatternHasher.matches("", "", PATTERN));
+        assertFalse(PatternHasher.matches(SHA1_0124.substring(1), "", PATTERN));
+        assertFalse(PatternHasher.matches(SHA1_0124 + "00", "", PATTERN));
+        assertFalse(PatternHasher.matches("z" + SHA1_0124.substring(1), "", PATTERN));
+    }
+
+    @Test
+    public void hexRoundTrip() {
+        byte[] bytes = {0, 1, (byte) 0x7f, (byte) 0x80, (byte) 0xff};
+        assertEquals("00017f80ff", PatternHasher.toHex(bytes));
+        assertEquals("00017f80ff", PatternHasher.toHex(PatternHasher.fromHex("00017F80FF")));
+        assertNull(PatternHasher.fromHex("abc"));
+        assertNull(PatternHasher.fromHex("0g"));
+        assertEquals(PatternHasher.SHA1, PatternHasher.getAlgorithmForHash(SHA1_0124));
+        assertEquals(PatternHasher.MD5, PatternHasher.getAlgorithmForHash(MD5_0124));
+        assertNull(PatternHasher.getAlgorithmForHash("abcd"));
+    }
+}
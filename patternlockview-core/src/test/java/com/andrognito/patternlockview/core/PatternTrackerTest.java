@@ -0,0 +1,59 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PatternTrackerTest {
+
+    @Test
+    public void visitedDotsPastTheFirstWordDontAlias() {
+        PatternTracker tracker = new PatternTracker(new PatternGrid(10));
+        tracker.add(70);
+        tracker.add(99);
+        tracker.add(3);
+        assertTrue(tracker.isVisited(70));
+        assertTrue(tracker.isVisited(99));
+        assertTrue(tracker.isVisited(3));
+        // The same bits of the other word
+        assertFalse(tracker.isVisited(6));
+        assertFalse(tracker.isVisited(35));
+        assertFalse(tracker.isVisited(67));
+        assertArrayEquals(new int[]{70, 99, 3}, tracker.toArray());
+
+        tracker.setVisited(99, false);
+        assertFalse(tracker.isVisited(99));
+        assertEquals(3, tracker.size());
+        tracker.clear();
+        assertTrue(tracker.isEmpty());
+        assertFalse(tracker.isVisited(70));
+    }
+
+    @Test
+    public void visitedDotsAreNotHitAgain() {
+        PatternGrid grid = new PatternGrid(3);
+        grid.setBounds(0, 0, 300, 300);
+        PatternTracker tracker = new PatternTracker(grid);
+        assertEquals(4, tracker.checkForNewHit(150, 150));
+        tracker.add(4);
+        assertEquals(-1, tracker.checkForNewHit(150, 150));
+        assertEquals(-1, tracker.checkForNewHit(100, 150));
+    }
+
+    @Test
+    public void gapsAreFilledOnlyWithUnvisitedDots() {
+        PatternTracker tracker = new PatternTracker(new PatternGrid(3));
+        assertEquals(-1, tracker.getGapFill(2));
+        tracker.add(0);
+        assertEquals(1, tracker.getGapFill(2));
+        assertEquals(4, tracker.getGapFill(8));
+        assertEquals(-1, tracker.getGapFill(5));
+        tracker.add(4);
+        tracker.add(8);
+        // The dot in between is already part of the pattern
+        assertEquals(-1, tracker.getGapFill(0));
+    }
+}
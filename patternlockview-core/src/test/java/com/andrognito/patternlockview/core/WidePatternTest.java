@@ -0,0 +1,35 @@
+package com.andrognito.patternlockview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class WidePatternTest {
+
+    @Test
+    public void roundTrip() {
+        int[] ids = {0, 255, 256, 4095, WidePattern.MAX_DOT_ID};
+        char[] packed = WidePattern.pack(ids, ids.length);
+        assertEquals(ids.length, packed.length);
+        assertArrayEquals(ids, WidePattern.unpack(packed));
+        assertArrayEquals(new int[]{0, 255}, WidePattern.unpack(WidePattern.pack(ids, 2)));
+    }
+
+    @Test
+    public void bytesAreBigEndian() {
+        byte[] buffer = new byte[8];
+        assertEquals(6, WidePattern.toBytes(new int[]{1, 0x1234, 0xFFFF, 7}, 3, buffer));
+        assertArrayEquals(new byte[]{0, 1, 0x12, 0x34, (byte) 0xFF, (byte) 0xFF, 0, 0}, buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packRejectsLargeIds() {
+        WidePattern.pack(new int[]{WidePattern.MAX_DOT_ID + 1}, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toBytesRejectsNegativeIds() {
+        WidePattern.toBytes(new int[]{-1}, 1, new byte[2]);
+    }
+}
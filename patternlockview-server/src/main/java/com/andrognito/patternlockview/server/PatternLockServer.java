@@ -0,0 +1,160 @@
+package com.andrognito.patternlockview.server;
+
+import com.andrognito.patternlockview.core.PackedPattern;
+import com.andrognito.patternlockview.core.PatternCodec;
+import com.andrognito.patternlockview.core.PatternHasher;
+import com.andrognito.patternlockview.server.index.LegacyHashIndexBuilder;
+import com.andrognito.patternlockview.server.index.LegacyHashIndexWriter;
+import com.andrognito.patternlockview.server.index.MappedLegacyHashIndex;
+import com.andrognito.patternlockview.server.migration.LegacyHashMigrator;
+import com.andrognito.patternlockview.server.migration.LegacyHashRecord;
+import com.andrognito.patternlockview.server.migration.LegacyHashRecordSource;
+import com.andrognito.patternlockview.server.migration.MigratedHashSink;
+import com.andrognito.patternlockview.server.migration.Pbkdf2PatternHashFormat;
+import com.andrognito.patternlockview.server.pipeline.ChunkSource;
+import com.andrognito.patternlockview.server.verifier.BatchVerifier;
+import com.andrognito.patternlockview.server.verifier.LineRecordSource;
+import com.andrognito.patternlockview.server.verifier.LineResultSink;
+import com.andrognito.patternlockview.server.verifier.RecordSource;
+import com.andrognito.patternlockview.server.verifier.ResultSink;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line entry point of the server side pattern tools.
+ * <p>
+ * {@code verify <records> <results> [threads]} verifies a file of
+ * {@code userId,salt,serializedPattern,storedHash} lines and writes {@code userId,verdict} lines.
+ * <p>
+ * {@code migrate <dotCount> <maxLength> <legacyHashes> <migrated> [iterations] [threads]} traces
+ * each {@code userId,legacyHash} line back to its pattern and writes {@code userId,newHash} lines
+ * in the PBKDF2 format.
+ * <p>
+ * {@code index-build <SHA-1|MD5> <dotCount> <maxLength> <index>} writes a lookup index of every
+ * pattern of the matrix, and {@code index-lookup <index> <hash>...} prints the pattern each legacy
+ * hash was computed from.
+ * <p>
+ * Use {@code -} to read from standard input or write to standard output.
+ */
+public class PatternLockServer {
+
+    private static final String STANDARD_STREAM = "-";
+
+    private PatternLockServer() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(1);
+        }
+
+        switch (args[0]) {
+            case "verify":
+                if (args.length < 3) {
+                    printUsage();
+                    System.exit(1);
+                }
+                verify(args[1], args[2],
+                        args.length > 3 ? Integer.parseInt(args[3])
+                                : Runtime.getRuntime().availableProcessors());
+                break;
+            case "migrate":
+                if (args.length < 5) {
+                    printUsage();
+                    System.exit(1);
+                }
+                migrate(Integer.parseInt(args[1]), Integer.parseInt(args[2]), args[3], args[4],
+                        args.length > 5 ? Integer.parseInt(args[5])
+                                : Pbkdf2PatternHashFormat.DEFAULT_ITERATIONS,
+                        args.length > 6 ? Integer.parseInt(args[6])
+                                : Runtime.getRuntime().availableProcessors());
+                break;
+            case "index-build":
+                if (args.length < 5) {
+                    printUsage();
+                    System.exit(1);
+                }
+                buildIndex(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                        args[4]);
+                break;
+            case "index-lookup":
+                if (args.length < 3) {
+                    printUsage();
+                    System.exit(1);
+                }
+                lookup(args[1], args, 2);
+                break;
+            default:
+                printUsage();
+                System.exit(1);
+        }
+    }
+
+    private static void verify(String recordsPath, String resultsPath, int threads)
+            throws IOException, InterruptedException {
+        BatchVerifier verifier = new BatchVerifier(threads, BatchVerifier.DEFAULT_CHUNK_SIZE);
+        try (RecordSource source = STANDARD_STREAM.equals(recordsPath)
+                ? new LineRecordSource(System.in) : LineRecordSource.fromFile(new File(recordsPath));
+             ResultSink sink = STANDARD_STREAM.equals(resultsPath)
+                     ? new LineResultSink(System.out)
+                     : LineResultSink.fromFile(new File(resultsPath))) {
+            BatchVerifier.Summary summary = verifier.verify(source, sink);
+            System.err.println(summary);
+        } finally {
+            verifier.shutdown();
+        }
+    }
+
+    private static void migrate(int dotCount, int maxLength, String legacyPath,
+                                String migratedPath, int iterations, int threads)
+            throws IOException, InterruptedException {
+        LegacyHashMigrator migrator = new LegacyHashMigrator(
+                new Pbkdf2PatternHashFormat(iterations), dotCount, 1, maxLength, threads);
+        try (ChunkSource<LegacyHashRecord> source = STANDARD_STREAM.equals(legacyPath)
+                ? new LegacyHashRecordSource(System.in)
+                : LegacyHashRecordSource.fromFile(new File(legacyPath));
+             MigratedHashSink sink = STANDARD_STREAM.equals(migratedPath)
+                     ? new MigratedHashSink(System.out)
+                     : MigratedHashSink.fromFile(new File(migratedPath))) {
+            LegacyHashMigrator.Summary summary = migrator.migrate(source, sink);
+            System.err.println(summary);
+        } finally {
+            migrator.shutdown();
+        }
+    }
+
+    private static void buildIndex(String algorithm, int dotCount, int maxLength,
+                                   String indexPath) throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        LegacyHashIndexWriter.write(
+                new LegacyHashIndexBuilder(algorithm, dotCount, 1, maxLength), new File(indexPath));
+        System.err.println("Indexed " + dotCount + "x" + dotCount + " patterns of up to "
+                + maxLength + " dots in " + (System.nanoTime() - startTime) / 1000000 + "ms");
+    }
+
+    private static void lookup(String indexPath, String[] hashes, int from) throws IOException {
+        try (MappedLegacyHashIndex index = MappedLegacyHashIndex.open(new File(indexPath))) {
+            for (int i = from; i < hashes.length; i++) {
+                String hash = hashes[i];
+                byte[] digest = PatternHasher.fromHex(hash);
+                long packed = digest == null || !index.getAlgorithm().equals(
+                        PatternHasher.getAlgorithmForHash(hash)) ? -1 : index.lookup(digest);
+                System.out.println(hash + "," + (packed < 0 ? MigratedHashSink.UNRESOLVED
+                        : PatternCodec.patternToString(PackedPattern.unpack(packed))));
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage:");
+        System.err.println("  verify <records|-> <results|-> [threads]");
+        System.err.println("  migrate <dotCount> <maxLength> <legacyHashes|-> <migrated|-> "
+                + "[iterations] [threads]");
+        System.err.println("  index-build <SHA-1|MD5> <dotCount> <maxLength> <index>");
+        System.err.println("  index-lookup <index> <hash>...");
+    }
+}
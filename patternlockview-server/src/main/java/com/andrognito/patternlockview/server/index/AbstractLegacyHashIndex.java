@@ -0,0 +1,116 @@
+package com.andrognito.patternlockview.server.index;
+
+import com.andrognito.patternlockview.core.PackedPattern;
+import com.andrognito.patternlockview.core.PatternDigester;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A {@link LegacyHashIndex} stored as entries sorted by key, where the key is the first 8 bytes of
+ * the digest read as a signed big endian {@code long} and the value is the packed pattern.
+ * <p>
+ * Lookups binary search the key, then re-hash the candidate patterns to rule out collisions of
+ * the truncated digests. The scratch buffers for that are kept per thread, so a lookup allocates
+ * nothing and any number of threads can share an index.
+ */
+abstract class AbstractLegacyHashIndex implements LegacyHashIndex {
+
+    private final String mAlgorithm;
+    private final int mDotCount;
+    private final ThreadLocal<Scratch> mScratch;
+
+    AbstractLegacyHashIndex(final String algorithm, int dotCount) {
+        mAlgorithm = algorithm;
+        mDotCount = dotCount;
+        mScratch = new ThreadLocal<Scratch>() {
+
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(algorithm);
+            }
+        };
+    }
+
+    /**
+     * @return The key of the entry at the given position
+     */
+    abstract long keyAt(long index);
+
+    /**
+     * @return The packed pattern of the entry at the given position
+     */
+    abstract long valueAt(long index);
+
+    @Override
+    public String getAlgorithm() {
+        return mAlgorithm;
+    }
+
+    @Override
+    public int getDotCount() {
+        return mDotCount;
+    }
+
+    @Override
+    public long lookup(byte[] digest) {
+        if (digest.length < 8) {
+            return -1;
+        }
+        long key = keyOf(digest);
+        Scratch scratch = mScratch.get();
+
+        for (long i = lowerBound(key); i < size() && keyAt(i) == key; i++) {
+            long packed = valueAt(i);
+            int length = PackedPattern.unpack(packed, scratch.mIds);
+            scratch.mDigester.digest(scratch.mIds, length, scratch.mDigest);
+            if (MessageDigest.isEqual(scratch.mDigest, digest)) {
+                return packed;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The key of a digest: its first 8 bytes as a big endian {@code long}
+     */
+    static long keyOf(byte[] digest) {
+        long key = 0;
+        for (int i = 0; i < 8; i++) {
+            key = (key << 8) | (digest[i] & 0xff);
+        }
+        return key;
+    }
+
+    /**
+     * @return The first position whose key is not less than the given key
+     */
+    private long lowerBound(long key) {
+        long low = 0;
+        long high = size();
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class Scratch {
+        private final PatternDigester mDigester;
+        private final int[] mIds = new int[PackedPattern.MAX_LENGTH];
+        private final byte[] mDigest;
+
+        private Scratch(String algorithm) {
+            try {
+                mDigester = new PatternDigester(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(algorithm + " is not available", e);
+            }
+            mDigest = new byte[mDigester.getDigestLength()];
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.andrognito.patternlockview.server.index;
+
+/**
+ * A {@link LegacyHashIndex} held in two parallel, sorted {@code long} arrays. Built with
+ * {@link LegacyHashIndexBuilder}
+ */
+public class InMemoryLegacyHashIndex extends AbstractLegacyHashIndex {
+
+    private final long[] mKeys;
+    private final long[] mValues;
+
+    InMemoryLegacyHashIndex(String algorithm, int dotCount, long[] keys, long[] values) {
+        super(algorithm, dotCount);
+        mKeys = keys;
+        mValues = values;
+    }
+
+    @Override
+    public long size() {
+        return mKeys.length;
+    }
+
+    @Override
+    long keyAt(long index) {
+        return mKeys[(int) index];
+    }
+
+    @Override
+    long valueAt(long index) {
+        return mValues[(int) index];
+    }
+}
@@ -0,0 +1,28 @@
+package com.andrognito.patternlockview.server.index;
+
+/**
+ * Maps legacy pattern hashes (as produced by {@code PatternLockUtils.patternToSha1} and
+ * {@code patternToMD5}) back to the pattern they were computed from
+ */
+public interface LegacyHashIndex {
+
+    /**
+     * The digest algorithm of the hashes in this index
+     */
+    String getAlgorithm();
+
+    int getDotCount();
+
+    /**
+     * The number of patterns in the index
+     */
+    long size();
+
+    /**
+     * Finds the pattern a digest was computed from
+     *
+     * @param digest The raw digest (not its hex string)
+     * @return The pattern packed with {@code PackedPattern}, or -1 if it is not in the index
+     */
+    long lookup(byte[] digest);
+}
@@ -0,0 +1,197 @@
+package com.andrognito.patternlockview.server.index;
+
+import com.andrognito.patternlockview.core.PackedPattern;
+import com.andrognito.patternlockview.core.PatternDigester;
+import com.andrognito.patternlockview.core.PatternEnumerator;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a {@link LegacyHashIndex} in one pass over every pattern of a matrix.
+ * <p>
+ * Each dot starts the same number of patterns, so the enumeration is split by first dot across a
+ * pool of threads. Every thread writes into its own slice of the key and value arrays with its own
+ * {@link PatternDigester}, so nothing is allocated per pattern and no locking is needed.
+ */
+public class LegacyHashIndexBuilder {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    // The largest array most VMs can allocate
+    private static final int MAX_ENTRY_COUNT = Integer.MAX_VALUE - 8;
+    // A key and a value per entry
+    private static final int BYTES_PER_ENTRY = 16;
+
+    private final String mAlgorithm;
+    private final int mDotCount;
+    private final int mMinLength;
+    private final int mMaxLength;
+    private final int mSlice;
+    private int mParallelism = Runtime.getRuntime().availableProcessors();
+    private long mMaxMemory = Runtime.getRuntime().maxMemory() / 2;
+
+    /**
+     * @param algorithm The digest algorithm of the legacy hashes, {@code SHA-1} or {@code MD5}
+     * @param dotCount  The number of dots in a row (or column) of the matrix
+     * @param minLength The length of the shortest pattern to index
+     * @param maxLength The length of the longest pattern to index
+     */
+    public LegacyHashIndexBuilder(String algorithm, int dotCount, int minLength, int maxLength) {
+        if (dotCount * dotCount > PackedPattern.MAX_DOT_ID + 1
+                || maxLength > PackedPattern.MAX_LENGTH) {
+            throw new IllegalArgumentException("Only patterns of up to " + PackedPattern.MAX_LENGTH
+                    + " dots on matrices of up to 4x4 can be indexed");
+        }
+        // Every dot starts the same number of patterns, each thread indexing the ones of a dot
+        long slice = PatternEnumerator.countStartingWith(dotCount, minLength, maxLength);
+        if (slice * dotCount * dotCount > MAX_ENTRY_COUNT) {
+            throw new IllegalArgumentException("Too many patterns to index, lower the maximum "
+                    + "length");
+        }
+        mSlice = (int) slice;
+        mAlgorithm = algorithm;
+        mDotCount = dotCount;
+        mMinLength = minLength;
+        mMaxLength = maxLength;
+    }
+
+    public LegacyHashIndexBuilder setParallelism(int parallelism) {
+        mParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Limits the memory the index may take, which is half of the maximum heap size by default
+     */
+    public LegacyHashIndexBuilder setMaxMemory(long maxMemory) {
+        mMaxMemory = maxMemory;
+        return this;
+    }
+
+    public String getAlgorithm() {
+        return mAlgorithm;
+    }
+
+    public int getDotCount() {
+        return mDotCount;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the index would take more than the maximum memory
+     */
+    public InMemoryLegacyHashIndex build() throws InterruptedException {
+        int patternSize = mDotCount * mDotCount;
+        final int slice = mSlice;
+        long requiredMemory = (long) slice * patternSize * BYTES_PER_ENTRY;
+        if (requiredMemory > mMaxMemory) {
+            throw new IllegalArgumentException("The index needs " + (requiredMemory >> 20)
+                    + " MB, more than the " + (mMaxMemory >> 20) + " MB allowed. Lower the "
+                    + "maximum length");
+        }
+        final long[] keys = new long[slice * patternSize];
+        final long[] values = new long[keys.length];
+
+        ExecutorService executor = Executors.newFixedThreadPool(mParallelism);
+        try {
+            List<Future<Void>> futures = new ArrayList<>(patternSize);
+            for (int firstId = 0; firstId < patternSize; firstId++) {
+                futures.add(executor.submit(new SliceTask(firstId, firstId * slice, keys,
+                        values)));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build the index", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        sort(keys, values, 0, keys.length - 1);
+        return new InMemoryLegacyHashIndex(mAlgorithm, mDotCount, keys, values);
+    }
+
+    /**
+     * Sorts the keys, moving the values along with them
+     */
+    static void sort(long[] keys, long[] values, int low, int high) {
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            int middle = (low + high) >>> 1;
+            long pivot = keys[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // Recurse into the smaller half so the stack stays logarithmic
+            if (j - low < high - i) {
+                sort(keys, values, low, j);
+                low = i;
+            } else {
+                sort(keys, values, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && keys[j - 1] > keys[j]; j--) {
+                swap(keys, values, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(long[] keys, long[] values, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    private final class SliceTask implements Callable<Void>, PatternEnumerator.Visitor {
+        private final int mFirstId;
+        private final long[] mKeys;
+        private final long[] mValues;
+        private int mPosition;
+        private PatternDigester mDigester;
+        private byte[] mDigest;
+
+        private SliceTask(int firstId, int offset, long[] keys, long[] values) {
+            mFirstId = firstId;
+            mPosition = offset;
+            mKeys = keys;
+            mValues = values;
+        }
+
+        @Override
+        public Void call() throws NoSuchAlgorithmException {
+            mDigester = new PatternDigester(mAlgorithm);
+            mDigest = new byte[mDigester.getDigestLength()];
+            PatternEnumerator.enumerateStartingWith(mDotCount, mFirstId, mMinLength, mMaxLength,
+                    this);
+            return null;
+        }
+
+        @Override
+        public void visit(int[] ids, int length) {
+            mDigester.digest(ids, length, mDigest);
+            mKeys[mPosition] = AbstractLegacyHashIndex.keyOf(mDigest);
+            mValues[mPosition] = PackedPattern.pack(ids, length);
+            mPosition++;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.andrognito.patternlockview.server.index;
+
+import com.andrognito.patternlockview.core.PatternHasher;
+
+/**
+ * The layout of a {@link LegacyHashIndex} on disk. All numbers are big endian.
+ * <pre>
+ * offset  size  field
+ *      0     8  magic, "PLVINDEX"
+ *      8     4  version
+ *     12     4  dot count
+ *     16     4  algorithm, 0 for SHA-1 and 1 for MD5
+ *     20     4  reserved
+ *     24     8  entry count
+ *     32   16n  entries sorted by key: the key (8 bytes) then the packed pattern (8 bytes)
+ * </pre>
+ */
+final class LegacyHashIndexFormat {
+
+    static final long MAGIC = 0x504C56494E444558L;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+    static final int ENTRY_SIZE = 16;
+
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 8;
+    static final int OFFSET_DOT_COUNT = 12;
+    static final int OFFSET_ALGORITHM = 16;
+    static final int OFFSET_ENTRY_COUNT = 24;
+
+    private static final int ALGORITHM_SHA1 = 0;
+    private static final int ALGORITHM_MD5 = 1;
+
+    private LegacyHashIndexFormat() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    static int encodeAlgorithm(String algorithm) {
+        if (PatternHasher.SHA1.equals(algorithm)) {
+            return ALGORITHM_SHA1;
+        } else if (PatternHasher.MD5.equals(algorithm)) {
+            return ALGORITHM_MD5;
+        }
+        throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+    }
+
+    static String decodeAlgorithm(int code) {
+        switch (code) {
+            case ALGORITHM_SHA1:
+                return PatternHasher.SHA1;
+            case ALGORITHM_MD5:
+                return PatternHasher.MD5;
+            default:
+                throw new IllegalArgumentException("Unsupported algorithm code " + code);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.andrognito.patternlockview.server.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a {@link LegacyHashIndex} to disk in the {@link LegacyHashIndexFormat}, to be opened
+ * later with {@link MappedLegacyHashIndex}
+ */
+public class LegacyHashIndexWriter {
+
+    // Entries are written through a buffer of this many bytes
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private LegacyHashIndexWriter() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    /**
+     * Builds the index and writes it straight to the given file
+     */
+    public static void write(LegacyHashIndexBuilder builder, File file)
+            throws IOException, InterruptedException {
+        write(builder.build(), file);
+    }
+
+    public static void write(InMemoryLegacyHashIndex index, File file) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(file);
+             FileChannel channel = outputStream.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(LegacyHashIndexFormat.HEADER_SIZE);
+            header.putLong(LegacyHashIndexFormat.OFFSET_MAGIC, LegacyHashIndexFormat.MAGIC);
+            header.putInt(LegacyHashIndexFormat.OFFSET_VERSION, LegacyHashIndexFormat.VERSION);
+            header.putInt(LegacyHashIndexFormat.OFFSET_DOT_COUNT, index.getDotCount());
+            header.putInt(LegacyHashIndexFormat.OFFSET_ALGORITHM,
+                    LegacyHashIndexFormat.encodeAlgorithm(index.getAlgorithm()));
+            header.putLong(LegacyHashIndexFormat.OFFSET_ENTRY_COUNT, index.size());
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            for (long i = 0; i < index.size(); i++) {
+                if (buffer.remaining() < LegacyHashIndexFormat.ENTRY_SIZE) {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                buffer.putLong(index.keyAt(i));
+                buffer.putLong(index.valueAt(i));
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.andrognito.patternlockview.server.index;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link LegacyHashIndex} read straight from a memory-mapped file written by
+ * {@link LegacyHashIndexWriter}.
+ * <p>
+ * Opening only reads the header, so it is instant whatever the size of the index, and the
+ * operating system pages the entries in as lookups touch them. Lookups binary search the mapped
+ * entries with absolute reads and allocate nothing. Files larger than 2GB are mapped in segments.
+ */
+public class MappedLegacyHashIndex extends AbstractLegacyHashIndex implements Closeable {
+
+    // A power of two multiple of the entry size, so no entry straddles two segments
+    private static final int SEGMENT_SHIFT = 30;
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer[] mSegments;
+    private final int mSegmentShift;
+    private final long mSegmentMask;
+    private final long mSize;
+
+    private MappedLegacyHashIndex(String algorithm, int dotCount, RandomAccessFile file,
+                                  MappedByteBuffer[] segments, int segmentShift, long size) {
+        super(algorithm, dotCount);
+        mFile = file;
+        mSegments = segments;
+        mSegmentShift = segmentShift;
+        mSegmentMask = (1L << segmentShift) - 1;
+        mSize = size;
+    }
+
+    public static MappedLegacyHashIndex open(File file) throws IOException {
+        return open(file, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Opens the index with segments of {@code 1 << segmentShift} bytes, so that tests can cross
+     * segment boundaries without gigabytes of entries
+     */
+    static MappedLegacyHashIndex open(File file, int segmentShift) throws IOException {
+        if ((1 << segmentShift) < LegacyHashIndexFormat.ENTRY_SIZE || segmentShift > 30) {
+            throw new IllegalArgumentException("Segments must hold whole entries and be at "
+                    + "most 1GB");
+        }
+        long segmentMask = (1L << segmentShift) - 1;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() < LegacyHashIndexFormat.HEADER_SIZE) {
+                throw new IOException(file + " is truncated");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    LegacyHashIndexFormat.HEADER_SIZE);
+            if (header.getLong(LegacyHashIndexFormat.OFFSET_MAGIC) != LegacyHashIndexFormat.MAGIC) {
+                throw new IOException(file + " is not a pattern hash index");
+            }
+            int version = header.getInt(LegacyHashIndexFormat.OFFSET_VERSION);
+            if (version != LegacyHashIndexFormat.VERSION) {
+                throw new IOException("Unsupported index version " + version);
+            }
+            int dotCount = header.getInt(LegacyHashIndexFormat.OFFSET_DOT_COUNT);
+            String algorithm;
+            try {
+                algorithm = LegacyHashIndexFormat.decodeAlgorithm(
+                        header.getInt(LegacyHashIndexFormat.OFFSET_ALGORITHM));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " has an unsupported algorithm", e);
+            }
+            long size = header.getLong(LegacyHashIndexFormat.OFFSET_ENTRY_COUNT);
+            // Checked against the file before multiplying, so a corrupt count can't overflow
+            long maxSize = (channel.size() - LegacyHashIndexFormat.HEADER_SIZE)
+                    / LegacyHashIndexFormat.ENTRY_SIZE;
+            if (size < 0 || size > maxSize) {
+                throw new IOException(file + " is truncated");
+            }
+
+            long entriesLength = size * LegacyHashIndexFormat.ENTRY_SIZE;
+            int segmentCount = (int) ((entriesLength + segmentMask) >>> segmentShift);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = (long) i << segmentShift;
+                long length = Math.min(segmentMask + 1, entriesLength - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        LegacyHashIndexFormat.HEADER_SIZE + start, length);
+            }
+            return new MappedLegacyHashIndex(algorithm, dotCount, randomAccessFile, segments,
+                    segmentShift, size);
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long size() {
+        return mSize;
+    }
+
+    @Override
+    long keyAt(long index) {
+        long offset = index * LegacyHashIndexFormat.ENTRY_SIZE;
+        return mSegments[(int) (offset >>> mSegmentShift)].getLong((int) (offset & mSegmentMask));
+    }
+
+    @Override
+    long valueAt(long index) {
+        long offset = index * LegacyHashIndexFormat.ENTRY_SIZE + 8;
+        return mSegments[(int) (offset >>> mSegmentShift)].getLong((int) (offset & mSegmentMask));
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once the index is garbage collected
+     */
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
@@ -0,0 +1,194 @@
+package com.andrognito.patternlockview.server.migration;
+
+import com.andrognito.patternlockview.core.PackedPattern;
+import com.andrognito.patternlockview.core.PatternCodec;
+import com.andrognito.patternlockview.core.PatternHasher;
+import com.andrognito.patternlockview.server.index.LegacyHashIndex;
+import com.andrognito.patternlockview.server.index.LegacyHashIndexBuilder;
+import com.andrognito.patternlockview.server.pipeline.ChunkProcessor;
+import com.andrognito.patternlockview.server.pipeline.ChunkSink;
+import com.andrognito.patternlockview.server.pipeline.ChunkSource;
+import com.andrognito.patternlockview.server.pipeline.ChunkedPipeline;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Migrates legacy SHA-1 and MD5 pattern hashes to a stronger {@link PatternHashFormat} without
+ * asking the users to re-draw their pattern.
+ * <p>
+ * Since every pattern of a small matrix can be enumerated, each legacy hash is traced back to its
+ * pattern through a precomputed {@link LegacyHashIndex}, then re-hashed in the new format. The
+ * index of an algorithm is built (in one parallel pass over the enumeration) the first time a
+ * record needs it, and the records are streamed through a {@link ChunkedPipeline}, so memory is
+ * bounded by the index and a handful of chunks however many records there are.
+ */
+public class LegacyHashMigrator {
+
+    private final ChunkedPipeline mPipeline;
+    private final PatternHashFormat mHashFormat;
+    private final int mDotCount;
+    private final int mMinLength;
+    private final int mMaxLength;
+    private final Map<String, LegacyHashIndex> mIndexes = new ConcurrentHashMap<>();
+
+    private final ChunkProcessor<LegacyHashRecord, String> mMigrate =
+            new ChunkProcessor<LegacyHashRecord, String>() {
+
+                @Override
+                public String process(LegacyHashRecord record) {
+                    return migrate(record);
+                }
+            };
+
+    /**
+     * @param hashFormat  The format to migrate to
+     * @param dotCount    The number of dots in a row (or column) of the matrix the patterns were
+     *                    drawn on
+     * @param minLength   The length of the shortest pattern that could have been stored
+     * @param maxLength   The length of the longest pattern that could have been stored
+     * @param parallelism The number of threads to use
+     */
+    public LegacyHashMigrator(PatternHashFormat hashFormat, int dotCount, int minLength,
+                              int maxLength, int parallelism) {
+        mHashFormat = hashFormat;
+        mDotCount = dotCount;
+        mMinLength = minLength;
+        mMaxLength = maxLength;
+        mPipeline = new ChunkedPipeline(parallelism, ChunkedPipeline.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Uses an existing index instead of building one, for instance one loaded from disk
+     */
+    public void addIndex(LegacyHashIndex index) {
+        if (index.getDotCount() != mDotCount) {
+            throw new IllegalArgumentException("The index is for a " + index.getDotCount()
+                    + "x" + index.getDotCount() + " matrix");
+        }
+        mIndexes.put(index.getAlgorithm(), index);
+    }
+
+    /**
+     * Migrates every record of the source and writes the new hashes to the sink. Neither the
+     * source nor the sink is closed
+     *
+     * @return The totals of the run
+     */
+    public Summary migrate(ChunkSource<LegacyHashRecord> source,
+                           final ChunkSink<LegacyHashRecord, String> sink)
+            throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        final Summary summary = new Summary();
+
+        mPipeline.run(source, mMigrate, new ChunkSink<LegacyHashRecord, String>() {
+
+            @Override
+            public void write(LegacyHashRecord record, String newHash) throws IOException {
+                sink.write(record, newHash);
+                if (newHash == null) {
+                    summary.mUnresolved++;
+                } else {
+                    summary.mMigrated++;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                sink.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                sink.close();
+            }
+        });
+
+        summary.mElapsedNanos = System.nanoTime() - startTime;
+        return summary;
+    }
+
+    /**
+     * Stops the worker threads. The migrator can not be used afterwards
+     */
+    public void shutdown() {
+        mPipeline.shutdown();
+    }
+
+    /**
+     * Migrates a single record
+     *
+     * @return The hash in the new format, or {@code null} if the legacy hash is malformed or does
+     * not belong to any pattern of the matrix
+     */
+    public String migrate(LegacyHashRecord record) {
+        String legacyHash = record.getLegacyHash();
+        String algorithm = PatternHasher.getAlgorithmForHash(legacyHash);
+        byte[] digest = algorithm == null ? null : PatternHasher.fromHex(legacyHash);
+        if (digest == null) {
+            return null;
+        }
+
+        long packed = getIndex(algorithm).lookup(digest);
+        if (packed < 0) {
+            return null;
+        }
+        return mHashFormat.hash(PatternCodec.patternToString(PackedPattern.unpack(packed)));
+    }
+
+    private LegacyHashIndex getIndex(String algorithm) {
+        LegacyHashIndex index = mIndexes.get(algorithm);
+        if (index != null) {
+            return index;
+        }
+        // Only the first record of each algorithm builds its index, the others wait for it
+        synchronized (mIndexes) {
+            index = mIndexes.get(algorithm);
+            if (index == null) {
+                try {
+                    index = new LegacyHashIndexBuilder(algorithm, mDotCount, mMinLength,
+                            mMaxLength)
+                            .setParallelism(mPipeline.getParallelism())
+                            .build();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while building the index", e);
+                }
+                mIndexes.put(algorithm, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * The totals of a migration run
+     */
+    public static final class Summary {
+        private long mMigrated;
+        private long mUnresolved;
+        private long mElapsedNanos;
+
+        public long getMigrated() {
+            return mMigrated;
+        }
+
+        public long getUnresolved() {
+            return mUnresolved;
+        }
+
+        public long getElapsedNanos() {
+            return mElapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = mElapsedNanos / 1e9;
+            long total = mMigrated + mUnresolved;
+            return "Migrated " + mMigrated + " of " + total + " records in "
+                    + String.format("%.2f", seconds) + "s ("
+                    + (long) (seconds > 0 ? total / seconds : 0) + " records/s), "
+                    + mUnresolved + " unresolved";
+        }
+    }
+}
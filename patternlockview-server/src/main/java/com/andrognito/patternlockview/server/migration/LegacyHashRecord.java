@@ -0,0 +1,44 @@
+package com.andrognito.patternlockview.server.migration;
+
+/**
+ * A stored legacy credential: the user it belongs to and the hex string produced by
+ * {@code PatternLockUtils.patternToSha1} or {@code patternToMD5}
+ */
+public final class LegacyHashRecord {
+
+    private static final char SEPARATOR = ',';
+
+    private final String mUserId;
+    private final String mLegacyHash;
+
+    public LegacyHashRecord(String userId, String legacyHash) {
+        mUserId = userId;
+        mLegacyHash = legacyHash;
+    }
+
+    /**
+     * Parses a record of the form {@code userId,legacyHash}. A missing hash is read as an empty
+     * string, so the record can still be reported back against its user id
+     */
+    public static LegacyHashRecord parse(String line) {
+        int separator = line.indexOf(SEPARATOR);
+        if (separator < 0) {
+            return new LegacyHashRecord(line.trim(), "");
+        }
+        return new LegacyHashRecord(line.substring(0, separator).trim(),
+                line.substring(separator + 1).trim());
+    }
+
+    public String getUserId() {
+        return mUserId;
+    }
+
+    public String getLegacyHash() {
+        return mLegacyHash;
+    }
+
+    @Override
+    public String toString() {
+        return mUserId + SEPARATOR + mLegacyHash;
+    }
+}
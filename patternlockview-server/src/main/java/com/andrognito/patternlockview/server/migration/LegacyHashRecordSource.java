@@ -0,0 +1,32 @@
+package com.andrognito.patternlockview.server.migration;
+
+import com.andrognito.patternlockview.server.pipeline.LineChunkSource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Reads one {@code userId,legacyHash} {@link LegacyHashRecord} per line
+ */
+public class LegacyHashRecordSource extends LineChunkSource<LegacyHashRecord> {
+
+    public LegacyHashRecordSource(Reader reader) {
+        super(reader);
+    }
+
+    public LegacyHashRecordSource(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    public static LegacyHashRecordSource fromFile(File file) throws IOException {
+        return new LegacyHashRecordSource(new FileInputStream(file));
+    }
+
+    @Override
+    protected LegacyHashRecord parse(String line) {
+        return LegacyHashRecord.parse(line);
+    }
+}
@@ -0,0 +1,38 @@
+package com.andrognito.patternlockview.server.migration;
+
+import com.andrognito.patternlockview.server.pipeline.LineChunkSink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writes one {@code userId,newHash} line per record, or {@code userId,UNRESOLVED} when the legacy
+ * hash could not be traced back to a pattern
+ */
+public class MigratedHashSink extends LineChunkSink<LegacyHashRecord, String> {
+
+    public static final String UNRESOLVED = "UNRESOLVED";
+
+    public MigratedHashSink(Writer writer) {
+        super(writer);
+    }
+
+    public MigratedHashSink(OutputStream outputStream) {
+        super(outputStream);
+    }
+
+    public static MigratedHashSink fromFile(File file) throws IOException {
+        return new MigratedHashSink(new FileOutputStream(file));
+    }
+
+    @Override
+    protected void writeLine(Writer writer, LegacyHashRecord record, String newHash)
+            throws IOException {
+        writer.write(record.getUserId());
+        writer.write(',');
+        writer.write(newHash == null ? UNRESOLVED : newHash);
+    }
+}
@@ -0,0 +1,19 @@
+package com.andrognito.patternlockview.server.migration;
+
+/**
+ * A scheme to store pattern credentials in. Implementations must be thread safe
+ */
+public interface PatternHashFormat {
+
+    /**
+     * Hashes a pattern serialized with {@code PatternCodec}
+     *
+     * @return The self-describing stored form of the hash
+     */
+    String hash(String serializedPattern);
+
+    /**
+     * Checks a pattern serialized with {@code PatternCodec} against a stored hash
+     */
+    boolean matches(String storedHash, String serializedPattern);
+}
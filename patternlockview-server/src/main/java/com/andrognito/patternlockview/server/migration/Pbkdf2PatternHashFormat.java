@@ -0,0 +1,98 @@
+package com.andrognito.patternlockview.server.migration;
+
+import com.andrognito.patternlockview.core.PatternHasher;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2 with HMAC-SHA256, stored as {@code pbkdf2-sha256$iterations$salt$hash} with the
+ * salt and the hash in hex. Unlike the legacy unsalted digests, this can not be reversed with a
+ * precomputed table of all the patterns.
+ * <p>
+ * Needs a Java 8 (or newer) runtime, which is the first to ship {@code PBKDF2WithHmacSHA256}.
+ */
+public class Pbkdf2PatternHashFormat implements PatternHashFormat {
+
+    public static final int DEFAULT_ITERATIONS = 10000;
+
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final char SEPARATOR = '$';
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH = 256;
+
+    private static final ThreadLocal<SecretKeyFactory> KEY_FACTORY =
+            new ThreadLocal<SecretKeyFactory>() {
+
+                @Override
+                protected SecretKeyFactory initialValue() {
+                    try {
+                        return SecretKeyFactory.getInstance(ALGORITHM);
+                    } catch (NoSuchAlgorithmException e) {
+                        throw new IllegalStateException(ALGORITHM + " is not available", e);
+                    }
+                }
+            };
+
+    private final SecureRandom mRandom = new SecureRandom();
+    private final int mIterations;
+
+    public Pbkdf2PatternHashFormat() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public Pbkdf2PatternHashFormat(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Iterations must be greater than 0");
+        }
+        mIterations = iterations;
+    }
+
+    @Override
+    public String hash(String serializedPattern) {
+        byte[] salt = new byte[SALT_LENGTH];
+        mRandom.nextBytes(salt);
+        byte[] hash = derive(serializedPattern, salt, mIterations);
+        return PREFIX + SEPARATOR + mIterations + SEPARATOR + PatternHasher.toHex(salt)
+                + SEPARATOR + PatternHasher.toHex(hash);
+    }
+
+    @Override
+    public boolean matches(String storedHash, String serializedPattern) {
+        // Trailing empty parts are kept, so that a record with extra separators is rejected
+        String[] parts = storedHash.split("\\" + SEPARATOR, -1);
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+        int iterations;
+        try {
+            iterations = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        byte[] salt = PatternHasher.fromHex(parts[2]);
+        byte[] expected = PatternHasher.fromHex(parts[3]);
+        if (iterations <= 0 || salt == null || expected == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, derive(serializedPattern, salt, iterations));
+    }
+
+    private static byte[] derive(String serializedPattern, byte[] salt, int iterations) {
+        PBEKeySpec keySpec = new PBEKeySpec(serializedPattern.toCharArray(), salt, iterations,
+                KEY_LENGTH);
+        try {
+            return KEY_FACTORY.get().generateSecret(keySpec).getEncoded();
+        } catch (InvalidKeySpecException e) {
+            throw new IllegalStateException("Failed to derive the pattern hash", e);
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+}
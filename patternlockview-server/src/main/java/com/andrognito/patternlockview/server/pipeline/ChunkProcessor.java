@@ -0,0 +1,10 @@
+package com.andrognito.patternlockview.server.pipeline;
+
+/**
+ * Processes a single item. Called concurrently from the worker threads of a
+ * {@link ChunkedPipeline}, so implementations must be thread safe
+ */
+public interface ChunkProcessor<T, R> {
+
+    R process(T item);
+}
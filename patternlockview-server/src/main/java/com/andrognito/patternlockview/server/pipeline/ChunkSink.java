@@ -0,0 +1,13 @@
+package com.andrognito.patternlockview.server.pipeline;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Receives the processed items, in the same order they were read
+ */
+public interface ChunkSink<T, R> extends Closeable, Flushable {
+
+    void write(T item, R result) throws IOException;
+}
@@ -0,0 +1,20 @@
+package com.andrognito.patternlockview.server.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A stream of items to process, such as the lines of a file or a socket
+ */
+public interface ChunkSource<T> extends Closeable {
+
+    /**
+     * Reads the next items of the stream
+     *
+     * @param items    The list to append the items to
+     * @param maxItems The maximum number of items to read
+     * @return The number of items read, or 0 once the stream is exhausted
+     */
+    int read(List<T> items, int maxItems) throws IOException;
+}
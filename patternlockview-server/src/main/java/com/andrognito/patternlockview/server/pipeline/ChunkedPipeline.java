@@ -0,0 +1,131 @@
+package com.andrognito.patternlockview.server.pipeline;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams items from a {@link ChunkSource} through a {@link ChunkProcessor} into a
+ * {@link ChunkSink}.
+ * <p>
+ * Items are read in chunks on the calling thread and processed in parallel on a fixed pool with
+ * one thread per core. Only a bounded number of chunks are in flight at any time, so memory stays
+ * flat however long the stream is, and the results are written in the same order as the items
+ * were read.
+ */
+public class ChunkedPipeline {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    // Chunks queued per worker, enough to keep every core busy while the previous chunk is written
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private final ExecutorService mExecutor;
+    private final int mParallelism;
+    private final int mChunkSize;
+
+    public ChunkedPipeline() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedPipeline(int parallelism, int chunkSize) {
+        if (parallelism <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be greater than 0");
+        }
+        mParallelism = parallelism;
+        mChunkSize = chunkSize;
+        mExecutor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * Processes every item of the source and writes the results to the sink. Neither the source
+     * nor the sink is closed
+     *
+     * @return The number of items processed
+     */
+    public <T, R> long run(ChunkSource<T> source, ChunkProcessor<T, R> processor,
+                           ChunkSink<T, R> sink) throws IOException, InterruptedException {
+        long count = 0;
+        ArrayDeque<Future<Chunk<T, R>>> inFlight = new ArrayDeque<>();
+        int maxInFlight = mParallelism * CHUNKS_IN_FLIGHT_PER_THREAD;
+
+        while (true) {
+            List<T> items = new ArrayList<>(mChunkSize);
+            if (source.read(items, mChunkSize) == 0) {
+                break;
+            }
+            inFlight.add(mExecutor.submit(new ProcessTask<>(items, processor)));
+            if (inFlight.size() >= maxInFlight) {
+                count += write(await(inFlight.poll()), sink);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            count += write(await(inFlight.poll()), sink);
+        }
+        sink.flush();
+        return count;
+    }
+
+    /**
+     * Stops the worker threads. The pipeline can not be used afterwards
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    private static <T, R> Chunk<T, R> await(Future<Chunk<T, R>> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Processing failed", e.getCause());
+        }
+    }
+
+    private static <T, R> int write(Chunk<T, R> chunk, ChunkSink<T, R> sink) throws IOException {
+        List<T> items = chunk.mItems;
+        for (int i = 0; i < items.size(); i++) {
+            sink.write(items.get(i), chunk.mResults.get(i));
+        }
+        return items.size();
+    }
+
+    private static final class Chunk<T, R> {
+        private final List<T> mItems;
+        private final List<R> mResults;
+
+        private Chunk(List<T> items) {
+            mItems = items;
+            mResults = new ArrayList<>(items.size());
+        }
+    }
+
+    private static final class ProcessTask<T, R> implements Callable<Chunk<T, R>> {
+        private final List<T> mItems;
+        private final ChunkProcessor<T, R> mProcessor;
+
+        private ProcessTask(List<T> items, ChunkProcessor<T, R> processor) {
+            mItems = items;
+            mProcessor = processor;
+        }
+
+        @Override
+        public Chunk<T, R> call() {
+            Chunk<T, R> chunk = new Chunk<>(mItems);
+            for (int i = 0; i < mItems.size(); i++) {
+                chunk.mResults.add(mProcessor.process(mItems.get(i)));
+            }
+            return chunk;
+        }
+    }
+}
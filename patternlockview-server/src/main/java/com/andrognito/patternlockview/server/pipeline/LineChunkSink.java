@@ -0,0 +1,47 @@
+package com.andrognito.patternlockview.server.pipeline;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes one line per processed item
+ */
+public abstract class LineChunkSink<T, R> implements ChunkSink<T, R> {
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Writer mWriter;
+
+    protected LineChunkSink(Writer writer) {
+        mWriter = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    }
+
+    protected LineChunkSink(OutputStream outputStream) {
+        this(new OutputStreamWriter(outputStream, UTF8));
+    }
+
+    /**
+     * Writes the line of an item, without the line separator
+     */
+    protected abstract void writeLine(Writer writer, T item, R result) throws IOException;
+
+    @Override
+    public void write(T item, R result) throws IOException {
+        writeLine(mWriter, item, result);
+        mWriter.write('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+}
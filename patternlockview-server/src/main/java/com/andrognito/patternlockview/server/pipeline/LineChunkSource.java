@@ -0,0 +1,53 @@
+package com.andrognito.patternlockview.server.pipeline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Reads one item per line. Blank lines and lines starting with {@code #} are skipped. Any
+ * {@link Reader} works, so the same source serves files, standard input and sockets.
+ */
+public abstract class LineChunkSource<T> implements ChunkSource<T> {
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final BufferedReader mReader;
+
+    protected LineChunkSource(Reader reader) {
+        mReader = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    protected LineChunkSource(InputStream inputStream) {
+        this(new InputStreamReader(inputStream, UTF8));
+    }
+
+    /**
+     * Parses a single, non blank line
+     */
+    protected abstract T parse(String line);
+
+    @Override
+    public int read(List<T> items, int maxItems) throws IOException {
+        int count = 0;
+        String line;
+        while (count < maxItems && (line = mReader.readLine()) != null) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            items.add(parse(line));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+}
@@ -0,0 +1,153 @@
+package com.andrognito.patternlockview.server.verifier;
+
+import com.andrognito.patternlockview.core.PatternHasher;
+import com.andrognito.patternlockview.server.pipeline.ChunkProcessor;
+import com.andrognito.patternlockview.server.pipeline.ChunkedPipeline;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+
+/**
+ * Verifies a stream of {@link PatternRecord}s against their stored hashes using the hashing rules
+ * of {@link PatternHasher}, the same code {@code PatternLockUtils} runs on the device.
+ * <p>
+ * Records are streamed through a {@link ChunkedPipeline}, so they are verified in parallel on all
+ * cores (each thread hashing with its own cached digests) with flat memory, and the verdicts are
+ * written in the same order as the records were read.
+ */
+public class BatchVerifier {
+
+    public static final int DEFAULT_CHUNK_SIZE = ChunkedPipeline.DEFAULT_CHUNK_SIZE;
+
+    private static final ChunkProcessor<PatternRecord, Verdict> VERIFY =
+            new ChunkProcessor<PatternRecord, Verdict>() {
+
+                @Override
+                public Verdict process(PatternRecord record) {
+                    return verify(record);
+                }
+            };
+
+    private final ChunkedPipeline mPipeline;
+
+    public BatchVerifier() {
+        mPipeline = new ChunkedPipeline();
+    }
+
+    public BatchVerifier(int parallelism, int chunkSize) {
+        mPipeline = new ChunkedPipeline(parallelism, chunkSize);
+    }
+
+    /**
+     * Verifies every record of the source and writes the verdicts to the sink. Neither the source
+     * nor the sink is closed
+     *
+     * @return The totals of the run
+     */
+    public Summary verify(RecordSource source, final ResultSink sink)
+            throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        final Summary summary = new Summary();
+
+        mPipeline.run(source, VERIFY, new ResultSink() {
+
+            @Override
+            public void write(PatternRecord record, Verdict verdict) throws IOException {
+                sink.write(record, verdict);
+                summary.count(verdict);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                sink.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                sink.close();
+            }
+        });
+
+        summary.mElapsedNanos = System.nanoTime() - startTime;
+        return summary;
+    }
+
+    /**
+     * Stops the worker threads. The verifier can not be used afterwards
+     */
+    public void shutdown() {
+        mPipeline.shutdown();
+    }
+
+    /**
+     * Verifies a single record. The stored hash is decoded once and compared with the digest of
+     * the pattern in constant time.
+     */
+    public static Verdict verify(PatternRecord record) {
+        String serializedPattern = record.getSerializedPattern();
+        String storedHash = record.getStoredHash();
+        String algorithm = PatternHasher.getAlgorithmForHash(storedHash);
+        if (serializedPattern.isEmpty() || algorithm == null) {
+            return Verdict.MALFORMED;
+        }
+        byte[] expected = PatternHasher.fromHex(storedHash);
+        if (expected == null) {
+            return Verdict.MALFORMED;
+        }
+        byte[] actual = PatternHasher.digest(algorithm, record.getSalt(), serializedPattern);
+        return MessageDigest.isEqual(expected, actual) ? Verdict.MATCH : Verdict.MISMATCH;
+    }
+
+    /**
+     * The totals of a verification run
+     */
+    public static final class Summary {
+        private long mMatched;
+        private long mMismatched;
+        private long mMalformed;
+        private long mElapsedNanos;
+
+        private void count(Verdict verdict) {
+            switch (verdict) {
+                case MATCH:
+                    mMatched++;
+                    break;
+                case MISMATCH:
+                    mMismatched++;
+                    break;
+                case MALFORMED:
+                    mMalformed++;
+                    break;
+            }
+        }
+
+        public long getMatched() {
+            return mMatched;
+        }
+
+        public long getMismatched() {
+            return mMismatched;
+        }
+
+        public long getMalformed() {
+            return mMalformed;
+        }
+
+        public long getTotal() {
+            return mMatched + mMismatched + mMalformed;
+        }
+
+        public long getElapsedNanos() {
+            return mElapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = mElapsedNanos / 1e9;
+            return "Verified " + getTotal() + " records in " + String.format("%.2f", seconds)
+                    + "s (" + (long) (seconds > 0 ? getTotal() / seconds : 0) + " records/s): "
+                    + mMatched + " matched, " + mMismatched + " mismatched, " + mMalformed
+                    + " malformed";
+        }
+    }
+}
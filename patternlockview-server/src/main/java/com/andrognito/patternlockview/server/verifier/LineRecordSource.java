@@ -0,0 +1,32 @@
+package com.andrognito.patternlockview.server.verifier;
+
+import com.andrognito.patternlockview.server.pipeline.LineChunkSource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Reads one {@code userId,salt,serializedPattern,storedHash} {@link PatternRecord} per line
+ */
+public class LineRecordSource extends LineChunkSource<PatternRecord> implements RecordSource {
+
+    public LineRecordSource(Reader reader) {
+        super(reader);
+    }
+
+    public LineRecordSource(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    public static LineRecordSource fromFile(File file) throws IOException {
+        return new LineRecordSource(new FileInputStream(file));
+    }
+
+    @Override
+    protected PatternRecord parse(String line) {
+        return PatternRecord.parse(line);
+    }
+}
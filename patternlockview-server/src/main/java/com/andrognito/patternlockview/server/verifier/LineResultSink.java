@@ -0,0 +1,35 @@
+package com.andrognito.patternlockview.server.verifier;
+
+import com.andrognito.patternlockview.server.pipeline.LineChunkSink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writes one {@code userId,verdict} line per record
+ */
+public class LineResultSink extends LineChunkSink<PatternRecord, Verdict> implements ResultSink {
+
+    public LineResultSink(Writer writer) {
+        super(writer);
+    }
+
+    public LineResultSink(OutputStream outputStream) {
+        super(outputStream);
+    }
+
+    public static LineResultSink fromFile(File file) throws IOException {
+        return new LineResultSink(new FileOutputStream(file));
+    }
+
+    @Override
+    protected void writeLine(Writer writer, PatternRecord record, Verdict verdict)
+            throws IOException {
+        writer.write(record.getUserId());
+        writer.write(',');
+        writer.write(verdict.name());
+    }
+}
@@ -0,0 +1,66 @@
+package com.andrognito.patternlockview.server.verifier;
+
+/**
+ * A stored pattern credential to verify: the user it belongs to, the salt used for hashing, the
+ * pattern as submitted (serialized with {@code PatternCodec}) and the stored hash
+ */
+public final class PatternRecord {
+
+    private static final char SEPARATOR = ',';
+
+    private final String mUserId;
+    private final String mSalt;
+    private final String mSerializedPattern;
+    private final String mStoredHash;
+
+    public PatternRecord(String userId, String salt, String serializedPattern,
+                         String storedHash) {
+        mUserId = userId;
+        mSalt = salt;
+        mSerializedPattern = serializedPattern;
+        mStoredHash = storedHash;
+    }
+
+    /**
+     * Parses a record of the form {@code userId,salt,serializedPattern,storedHash}. Missing fields
+     * are read as empty strings, so a malformed line still yields a record that can be reported
+     * back against its user id.
+     */
+    public static PatternRecord parse(String line) {
+        String[] fields = new String[4];
+        int start = 0;
+        for (int i = 0; i < fields.length; i++) {
+            int end = i == fields.length - 1 ? -1 : line.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                fields[i] = start <= line.length() ? line.substring(start).trim() : "";
+                start = line.length() + 1;
+            } else {
+                fields[i] = line.substring(start, end).trim();
+                start = end + 1;
+            }
+        }
+        return new PatternRecord(fields[0], fields[1], fields[2], fields[3]);
+    }
+
+    public String getUserId() {
+        return mUserId;
+    }
+
+    public String getSalt() {
+        return mSalt;
+    }
+
+    public String getSerializedPattern() {
+        return mSerializedPattern;
+    }
+
+    public String getStoredHash() {
+        return mStoredHash;
+    }
+
+    @Override
+    public String toString() {
+        return mUserId + SEPARATOR + mSalt + SEPARATOR + mSerializedPattern + SEPARATOR
+                + mStoredHash;
+    }
+}
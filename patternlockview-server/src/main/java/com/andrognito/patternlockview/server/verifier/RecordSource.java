@@ -0,0 +1,9 @@
+package com.andrognito.patternlockview.server.verifier;
+
+import com.andrognito.patternlockview.server.pipeline.ChunkSource;
+
+/**
+ * A stream of records to verify, such as a file or a socket
+ */
+public interface RecordSource extends ChunkSource<PatternRecord> {
+}
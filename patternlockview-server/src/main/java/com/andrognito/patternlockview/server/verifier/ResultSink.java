@@ -0,0 +1,9 @@
+package com.andrognito.patternlockview.server.verifier;
+
+import com.andrognito.patternlockview.server.pipeline.ChunkSink;
+
+/**
+ * Receives the verdicts, in the same order the records were read
+ */
+public interface ResultSink extends ChunkSink<PatternRecord, Verdict> {
+}
@@ -0,0 +1,19 @@
+package com.andrognito.patternlockview.server.verifier;
+
+/**
+ * The outcome of verifying a single {@link PatternRecord}
+ */
+public enum Verdict {
+    /**
+     * The pattern produces the stored hash
+     */
+    MATCH,
+    /**
+     * The pattern does not produce the stored hash
+     */
+    MISMATCH,
+    /**
+     * The record is missing its pattern or its stored hash is neither SHA-1 nor MD5 hex
+     */
+    MALFORMED
+}
@@ -0,0 +1,189 @@
+package com.andrognito.patternlockview.server.index;
+
+import com.andrognito.patternlockview.core.PackedPattern;
+import com.andrognito.patternlockview.core.PatternDigester;
+import com.andrognito.patternlockview.core.PatternHasher;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the in-memory index and the mapped one against the same SHA-1 index of the 3x3 patterns
+ * of 4 dots
+ */
+public class LegacyHashIndexTest {
+
+    private static final int[][] PATTERNS = {{0, 1, 2, 4}, {8, 4, 0, 3}, {6, 7, 8, 5}};
+
+    private static InMemoryLegacyHashIndex sIndex;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void buildIndex() throws InterruptedException {
+        sIndex = new LegacyHashIndexBuilder(PatternHasher.SHA1, 3, 4, 4)
+                .setParallelism(2)
+                .build();
+    }
+
+    @Test
+    public void inMemoryIndex() throws NoSuchAlgorithmException {
+        assertEquals(9 * 8 * 7 * 6, sIndex.size());
+        assertEquals(PatternHasher.SHA1, sIndex.getAlgorithm());
+        assertEquals(3, sIndex.getDotCount());
+        for (long i = 1; i < sIndex.size(); i++) {
+            if (sIndex.keyAt(i - 1) > sIndex.keyAt(i)) {
+                fail("Keys are not sorted at " + i);
+            }
+        }
+        checkLookups(sIndex);
+    }
+
+    @Test
+    public void mappedIndexMatchesInMemoryIndex() throws IOException, NoSuchAlgorithmException {
+        File file = write(sIndex);
+        // The default segments, then segments of two entries and of a single entry
+        MappedLegacyHashIndex[] indexes = {MappedLegacyHashIndex.open(file),
+                MappedLegacyHashIndex.open(file, 5), MappedLegacyHashIndex.open(file, 4)};
+        for (MappedLegacyHashIndex index : indexes) {
+            try {
+                assertEquals(sIndex.size(), index.size());
+                assertEquals(PatternHasher.SHA1, index.getAlgorithm());
+                assertEquals(3, index.getDotCount());
+                for (long i = 0; i < sIndex.size(); i++) {
+                    assertEquals(sIndex.keyAt(i), index.keyAt(i));
+                    assertEquals(sIndex.valueAt(i), index.valueAt(i));
+                }
+                checkLookups(index);
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    @Test
+    public void truncatedKeyCollisionsAreCheckedAgainstTheFullDigest()
+            throws IOException, NoSuchAlgorithmException {
+        byte[] digest = digest(PATTERNS[0]);
+        long key = AbstractLegacyHashIndex.keyOf(digest);
+        // Other patterns forced under the same 8 byte key, before and after the right one
+        long[] keys = {key - 1, key, key, key, key, key + 1};
+        long[] values = {pack(2, 4, 6, 8), pack(PATTERNS[1]), pack(PATTERNS[2]),
+                pack(PATTERNS[0]), pack(3, 4, 5, 6), pack(0, 4, 8, 7)};
+        InMemoryLegacyHashIndex inMemory = new InMemoryLegacyHashIndex(PatternHasher.SHA1, 3,
+                keys, values);
+        MappedLegacyHashIndex mapped = MappedLegacyHashIndex.open(write(inMemory), 5);
+        try {
+            for (LegacyHashIndex index : new LegacyHashIndex[]{inMemory, mapped}) {
+                assertEquals(pack(PATTERNS[0]), index.lookup(digest));
+                // Same key, different digest
+                byte[] collision = Arrays.copyOf(digest, digest.length);
+                collision[digest.length - 1] ^= 1;
+                assertEquals(-1, index.lookup(collision));
+                // The colliding patterns themselves are not under their own key
+                assertEquals(-1, index.lookup(digest(PATTERNS[1])));
+            }
+        } finally {
+            mapped.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIndexesOverTheMemoryLimit() throws InterruptedException {
+        // The 3024 patterns of 4 dots take 48384 bytes
+        new LegacyHashIndexBuilder(PatternHasher.SHA1, 3, 4, 4).setMaxMemory(16 * 1024).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMorePatternsThanAnArrayHolds() {
+        new LegacyHashIndexBuilder(PatternHasher.SHA1, 4, 1, 9);
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws IOException {
+        File file = write(sIndex);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() - 1);
+        }
+        assertRejected(file);
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(LegacyHashIndexFormat.HEADER_SIZE - 1);
+        }
+        assertRejected(file);
+
+        assertRejected(mFolder.newFile());
+    }
+
+    @Test
+    public void rejectsBadHeaders() throws IOException {
+        assertRejected(corrupt(LegacyHashIndexFormat.OFFSET_MAGIC, 0));
+        assertRejected(corrupt(LegacyHashIndexFormat.OFFSET_VERSION,
+                LegacyHashIndexFormat.VERSION + 1));
+        assertRejected(corrupt(LegacyHashIndexFormat.OFFSET_ALGORITHM, 7));
+        // An entry count that would overflow once multiplied by the entry size
+        File file = write(sIndex);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(LegacyHashIndexFormat.OFFSET_ENTRY_COUNT);
+            randomAccessFile.writeLong(Long.MAX_VALUE / 4);
+        }
+        assertRejected(file);
+    }
+
+    private static void checkLookups(LegacyHashIndex index) throws NoSuchAlgorithmException {
+        for (int[] pattern : PATTERNS) {
+            assertEquals(pack(pattern), index.lookup(digest(pattern)));
+        }
+        // Too long to be indexed, and not a digest at all
+        assertEquals(-1, index.lookup(digest(new int[]{0, 1, 2, 4, 8})));
+        assertEquals(-1, index.lookup(new byte[20]));
+        assertEquals(-1, index.lookup(new byte[7]));
+    }
+
+    private File write(InMemoryLegacyHashIndex index) throws IOException {
+        File file = mFolder.newFile();
+        LegacyHashIndexWriter.write(index, file);
+        return file;
+    }
+
+    private File corrupt(int offset, int value) throws IOException {
+        File file = write(sIndex);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(offset);
+            randomAccessFile.writeInt(value);
+        }
+        return file;
+    }
+
+    private static void assertRejected(File file) {
+        try {
+            MappedLegacyHashIndex.open(file).close();
+            fail(file + " was opened");
+        } catch (IOException expected) {
+            // The file is not an index
+        }
+    }
+
+    private static byte[] digest(int[] ids) throws NoSuchAlgorithmException {
+        PatternDigester digester = new PatternDigester(PatternHasher.SHA1);
+        byte[] digest = new byte[digester.getDigestLength()];
+        digester.digest(ids, ids.length, digest);
+        return digest;
+    }
+
+    private static long pack(int... ids) {
+        return PackedPattern.pack(ids, ids.length);
+    }
+}
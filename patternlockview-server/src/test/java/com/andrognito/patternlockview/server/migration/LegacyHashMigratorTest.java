@@ -0,0 +1,115 @@
+package com.andrognito.patternlockview.server.migration;
+
+import com.andrognito.patternlockview.core.PatternHasher;
+import com.andrognito.patternlockview.server.index.LegacyHashIndexBuilder;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Migrates hashes of 3x3 patterns of 4 to 5 dots
+ */
+public class LegacyHashMigratorTest {
+
+    private final Pbkdf2PatternHashFormat mFormat = new Pbkdf2PatternHashFormat(1000);
+    private final LegacyHashMigrator mMigrator = new LegacyHashMigrator(mFormat, 3, 4, 5, 2);
+
+    @After
+    public void tearDown() {
+        mMigrator.shutdown();
+    }
+
+    @Test
+    public void migratesSha1AndMd5() {
+        String sha1 = mMigrator.migrate(new LegacyHashRecord("alice",
+                "5ea0df5c7a2580d149b68754a35eab0c0dd18cc3"));
+        assertTrue(mFormat.matches(sha1, "0124"));
+
+        String md5 = mMigrator.migrate(new LegacyHashRecord("bob",
+                "a4bab3ce420ea5342f99b468206738eb"));
+        assertTrue(mFormat.matches(md5, "0124"));
+
+        // Hex digits of either case
+        String upper = mMigrator.migrate(new LegacyHashRecord("carol",
+                PatternHasher.sha1("84210").toUpperCase()));
+        assertTrue(mFormat.matches(upper, "84210"));
+    }
+
+    @Test
+    public void malformedHashesAreUnresolved() {
+        String sha1 = "5ea0df5c7a2580d149b68754a35eab0c0dd18cc3";
+        String[] hashes = {
+                "",
+                sha1.substring(1),
+                sha1 + "0",
+                "z" + sha1.substring(1),
+                // Neither a SHA-1 nor an MD5
+                sha1 + "00000000",
+        };
+        for (String hash : hashes) {
+            assertNull(hash, mMigrator.migrate(new LegacyHashRecord("mallory", hash)));
+        }
+    }
+
+    @Test
+    public void hashesOfNoIndexedPatternAreUnresolved() {
+        // Too long for the index, not a pattern at all, and a repeated dot
+        assertNull(mMigrator.migrate(new LegacyHashRecord("dave",
+                PatternHasher.sha1("012345"))));
+        assertNull(mMigrator.migrate(new LegacyHashRecord("erin", PatternHasher.md5("abc"))));
+        assertNull(mMigrator.migrate(new LegacyHashRecord("frank",
+                PatternHasher.sha1("0120"))));
+        // A salted hash can not be traced back with the unsalted index
+        assertNull(mMigrator.migrate(new LegacyHashRecord("grace",
+                PatternHasher.sha1("salt", "0124"))));
+    }
+
+    @Test
+    public void streamsRecordsInOrder() throws Exception {
+        String input = "# user,hash\n"
+                + "alice,5ea0df5c7a2580d149b68754a35eab0c0dd18cc3\n"
+                + "\n"
+                + "bob , " + PatternHasher.md5("36258") + "\n"
+                + "carol\n"
+                + "dave,not-a-hash\n"
+                + "erin," + PatternHasher.sha1("012345") + "\n";
+        StringWriter output = new StringWriter();
+
+        LegacyHashMigrator.Summary summary = mMigrator.migrate(
+                new LegacyHashRecordSource(new StringReader(input)),
+                new MigratedHashSink(output));
+        assertEquals(2, summary.getMigrated());
+        assertEquals(3, summary.getUnresolved());
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(mFormat.matches(lines[0].substring("alice,".length()), "0124"));
+        assertTrue(mFormat.matches(lines[1].substring("bob,".length()), "36258"));
+        assertEquals("carol," + MigratedHashSink.UNRESOLVED, lines[2]);
+        assertEquals("dave," + MigratedHashSink.UNRESOLVED, lines[3]);
+        assertEquals("erin," + MigratedHashSink.UNRESOLVED, lines[4]);
+    }
+
+    @Test
+    public void parsesRecords() {
+        LegacyHashRecord record = LegacyHashRecord.parse(" alice , abc ");
+        assertEquals("alice", record.getUserId());
+        assertEquals("abc", record.getLegacyHash());
+        assertEquals("alice,abc", record.toString());
+        // Everything after the first separator is the hash
+        assertEquals("abc,def", LegacyHashRecord.parse("bob,abc,def").getLegacyHash());
+        assertEquals("", LegacyHashRecord.parse("carol").getLegacyHash());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIndexOfAnotherMatrix() throws InterruptedException {
+        mMigrator.addIndex(new LegacyHashIndexBuilder(PatternHasher.SHA1, 2, 1, 4).build());
+    }
+}
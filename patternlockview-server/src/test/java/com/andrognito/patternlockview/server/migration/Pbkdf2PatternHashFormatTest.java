@@ -0,0 +1,72 @@
+package com.andrognito.patternlockview.server.migration;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Pbkdf2PatternHashFormatTest {
+
+    // Few iterations, so that the tests stay fast
+    private final Pbkdf2PatternHashFormat mFormat = new Pbkdf2PatternHashFormat(1000);
+
+    // PBKDF2-HMAC-SHA256 of "0124" with the salt 00 01 .. 0f and 1000 iterations, computed
+    // independently of the library
+    private static final String KNOWN_RECORD = "pbkdf2-sha256$1000$"
+            + "000102030405060708090a0b0c0d0e0f$"
+            + "5599719026044f8cfd4b674610f5013050c884b94be7b15ffc1a93774ecae986";
+
+    @Test
+    public void knownAnswer() {
+        assertTrue(mFormat.matches(KNOWN_RECORD, "0124"));
+        assertFalse(mFormat.matches(KNOWN_RECORD, "0125"));
+        // The iterations of the record are used, not the ones of the format
+        assertTrue(new Pbkdf2PatternHashFormat().matches(KNOWN_RECORD, "0124"));
+    }
+
+    @Test
+    public void roundTrip() {
+        String record = mFormat.hash("0124876");
+        String[] parts = record.split("\\$");
+        assertEquals(4, parts.length);
+        assertEquals("pbkdf2-sha256", parts[0]);
+        assertEquals("1000", parts[1]);
+        assertEquals(32, parts[2].length());
+        assertEquals(64, parts[3].length());
+
+        assertTrue(mFormat.matches(record, "0124876"));
+        assertFalse(mFormat.matches(record, "0124877"));
+        // Every hash has its own salt
+        assertNotEquals(record, mFormat.hash("0124876"));
+    }
+
+    @Test
+    public void rejectsMalformedRecords() {
+        String salt = "000102030405060708090a0b0c0d0e0f";
+        String hash = "5599719026044f8cfd4b674610f5013050c884b94be7b15ffc1a93774ecae986";
+        String[] records = {
+                "",
+                "pbkdf2-sha256$1000$" + salt,
+                "pbkdf2-sha256$1000$" + salt + "$" + hash + "$",
+                "pbkdf2-sha1$1000$" + salt + "$" + hash,
+                "pbkdf2-sha256$many$" + salt + "$" + hash,
+                "pbkdf2-sha256$0$" + salt + "$" + hash,
+                "pbkdf2-sha256$-1000$" + salt + "$" + hash,
+                "pbkdf2-sha256$1000$" + salt.substring(1) + "$" + hash,
+                "pbkdf2-sha256$1000$" + salt + "$" + hash.replace('5', 'x'),
+                "pbkdf2-sha256$1000$" + salt + "$" + hash.substring(2),
+                // A legacy hash is not a record of this format
+                "5ea0df5c7a2580d149b68754a35eab0c0dd18cc3",
+        };
+        for (String record : records) {
+            assertFalse(record, mFormat.matches(record, "0124"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoIterations() {
+        new Pbkdf2PatternHashFormat(0);
+    }
+}
@@ -0,0 +1,129 @@
+package com.andrognito.patternlockview.server.verifier;
+
+import com.andrognito.patternlockview.core.PatternHasher;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchVerifierTest {
+
+    private static final String PATTERN = "012";
+    private static final String SALT = "salt";
+
+    @Test
+    public void matchesSaltedAndUnsaltedHashes() {
+        assertEquals(Verdict.MATCH, BatchVerifier.verify(
+                new PatternRecord("a", SALT, PATTERN, PatternHasher.sha1(SALT, PATTERN))));
+        assertEquals(Verdict.MATCH, BatchVerifier.verify(
+                new PatternRecord("b", "", PATTERN, PatternHasher.md5(PATTERN))));
+        // Stored hashes are compared regardless of the case of their hex digits
+        assertEquals(Verdict.MATCH, BatchVerifier.verify(new PatternRecord("c", "", PATTERN,
+                PatternHasher.sha1(PATTERN).toUpperCase())));
+    }
+
+    @Test
+    public void reportsMismatches() {
+        assertEquals(Verdict.MISMATCH, BatchVerifier.verify(
+                new PatternRecord("a", SALT, "0123", PatternHasher.sha1(SALT, PATTERN))));
+        assertEquals(Verdict.MISMATCH, BatchVerifier.verify(
+                new PatternRecord("b", "", PATTERN, PatternHasher.md5(SALT, PATTERN))));
+    }
+
+    @Test
+    public void reportsMalformedRecords() {
+        String hash = PatternHasher.sha1(PATTERN);
+        // No pattern, no hash, a hash of an unknown length and a hash that is not hex
+        assertEquals(Verdict.MALFORMED, BatchVerifier.verify(new PatternRecord("a", "", "", hash)));
+        assertEquals(Verdict.MALFORMED,
+                BatchVerifier.verify(new PatternRecord("b", "", PATTERN, "")));
+        assertEquals(Verdict.MALFORMED,
+                BatchVerifier.verify(new PatternRecord("c", "", PATTERN, hash + "00")));
+        assertEquals(Verdict.MALFORMED, BatchVerifier.verify(
+                new PatternRecord("d", "", PATTERN, "zz" + hash.substring(2))));
+    }
+
+    @Test
+    public void parsesMalformedLines() {
+        PatternRecord record = PatternRecord.parse(" user , salt , 012 , abc ");
+        assertEquals("user", record.getUserId());
+        assertEquals("salt", record.getSalt());
+        assertEquals("012", record.getSerializedPattern());
+        assertEquals("abc", record.getStoredHash());
+
+        record = PatternRecord.parse("user,salt");
+        assertEquals("user", record.getUserId());
+        assertEquals("salt", record.getSalt());
+        assertEquals("", record.getSerializedPattern());
+        assertEquals("", record.getStoredHash());
+
+        record = PatternRecord.parse("user");
+        assertEquals("user", record.getUserId());
+        assertEquals("", record.getSalt());
+        assertEquals("", record.getStoredHash());
+        assertEquals(Verdict.MALFORMED, BatchVerifier.verify(record));
+
+        // Commas past the third one belong to the stored hash
+        record = PatternRecord.parse("user,,012,abc,def");
+        assertEquals("abc,def", record.getStoredHash());
+        assertEquals(Verdict.MALFORMED, BatchVerifier.verify(record));
+    }
+
+    @Test
+    public void skipsBlankAndCommentLines() throws IOException {
+        LineRecordSource source = new LineRecordSource(
+                new StringReader("# userId,salt,pattern,hash\n\na,,012,x\nb\n"));
+        List<PatternRecord> records = new ArrayList<>();
+        assertEquals(2, source.read(records, 10));
+        assertEquals(0, source.read(records, 10));
+        assertEquals("a", records.get(0).getUserId());
+        assertEquals("b", records.get(1).getUserId());
+        source.close();
+    }
+
+    @Test
+    public void writesVerdictsInReadOrder() throws IOException, InterruptedException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            String pattern = Integer.toString(i % 9) + ((i + 1) % 9);
+            String hash;
+            Verdict verdict;
+            if (i % 3 == 0) {
+                hash = PatternHasher.sha1(SALT, pattern);
+                verdict = Verdict.MATCH;
+            } else if (i % 3 == 1) {
+                hash = PatternHasher.md5(pattern);
+                verdict = Verdict.MISMATCH;
+                pattern = pattern + "8";
+            } else {
+                hash = "not-a-hash";
+                verdict = Verdict.MALFORMED;
+            }
+            input.append("user").append(i).append(',').append(SALT).append(',')
+                    .append(pattern).append(',').append(hash).append('\n');
+            expected.append("user").append(i).append(',').append(verdict.name()).append('\n');
+        }
+
+        StringWriter output = new StringWriter();
+        BatchVerifier verifier = new BatchVerifier(3, 4);
+        try {
+            BatchVerifier.Summary summary = verifier.verify(
+                    new LineRecordSource(new StringReader(input.toString())),
+                    new LineResultSink(output));
+            assertEquals(17, summary.getMatched());
+            assertEquals(17, summary.getMismatched());
+            assertEquals(16, summary.getMalformed());
+            assertEquals(50, summary.getTotal());
+        } finally {
+            verifier.shutdown();
+        }
+        assertEquals(expected.toString(), output.toString());
+    }
+}
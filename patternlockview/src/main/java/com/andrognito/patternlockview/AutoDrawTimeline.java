@@ -0,0 +1,154 @@
+package com.andrognito.patternlockview;
+
+import android.view.animation.Interpolator;
+
+import com.andrognito.patternlockview.core.PatternLayout;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The schedule of the AUTO_DRAW animation, computed once from the positions of the dots so that
+ * each frame is a binary search and an interpolation. The path moves at a constant speed, so a
+ * long diagonal takes longer than a step to a neighbour, and can pause on each dot it reaches.
+ * <p>
+ * A cycle starts with nothing drawn for a hold, lights the first dot, draws the path through
+ * every dot, and holds the complete pattern before starting over.
+ */
+final class AutoDrawTimeline {
+
+    private PatternLayout mLayout;
+    private float mCellWidth;
+    private float mCellHeight;
+    private float mFirstCenterX;
+    private float mFirstCenterY;
+    private int mDotCount;
+    // The time each dot is reached, in milliseconds since the start of the cycle
+    private long[] mArrivals = new long[0];
+    private float[] mCenterXs = new float[0];
+    private float[] mCenterYs = new float[0];
+    private long mPause;
+    private long mCycleDuration;
+    private Interpolator mInterpolator;
+
+    // The position found by the last call to seek()
+    private int mReachedCount;
+    private float mX;
+    private float mY;
+
+    /**
+     * Lays the pattern out in time
+     *
+     * @param speed        The speed of the path, in cell widths per second
+     * @param pauseMillis  The time the path waits on each dot it reaches
+     * @param holdMillis   The time nothing is drawn at the start of a cycle, and the time the
+     *                     complete pattern is shown at its end
+     * @param interpolator The easing of each segment, or {@code null} for a constant speed
+     */
+    void build(PatternLayout layout, List<PatternLockView.Dot> pattern, float speed,
+               long pauseMillis, long holdMillis, Interpolator interpolator) {
+        int dotCount = pattern.size();
+        if (mArrivals.length < dotCount) {
+            mArrivals = new long[dotCount];
+            mCenterXs = new float[dotCount];
+            mCenterYs = new float[dotCount];
+        }
+        mLayout = layout;
+        mCellWidth = layout.getCellWidth();
+        mCellHeight = layout.getCellHeight();
+        mFirstCenterX = layout.getDotCenterX(0);
+        mFirstCenterY = layout.getDotCenterY(0);
+        mDotCount = dotCount;
+        mPause = pauseMillis;
+        mInterpolator = interpolator;
+
+        float pixelsPerMilli = speed * layout.getCellWidth() / 1000f;
+        long time = holdMillis;
+        for (int i = 0; i < dotCount; i++) {
+            int id = pattern.get(i).getId();
+            mCenterXs[i] = layout.getDotCenterX(id);
+            mCenterYs[i] = layout.getDotCenterY(id);
+            if (i > 0) {
+                float dx = mCenterXs[i] - mCenterXs[i - 1];
+                float dy = mCenterYs[i] - mCenterYs[i - 1];
+                float length = (float) Math.sqrt(dx * dx + dy * dy);
+                // Before the first layout there is no distance to go by, so every segment takes
+                // as long as the hold
+                long travel = pixelsPerMilli > 0f
+                        ? Math.max(1, Math.round(length / pixelsPerMilli)) : holdMillis;
+                time += pauseMillis + travel;
+            }
+            mArrivals[i] = time;
+        }
+        mCycleDuration = time + holdMillis;
+        mReachedCount = 0;
+    }
+
+    /**
+     * Whether the dots moved since the timeline was built, in which case it must be built again.
+     * The dots of a layout only move with its bounds, which change its cells or its first dot
+     */
+    boolean isStale(PatternLayout layout) {
+        return layout != mLayout || mDotCount == 0
+                || layout.getCellWidth() != mCellWidth || layout.getCellHeight() != mCellHeight
+                || layout.getDotCenterX(0) != mFirstCenterX
+                || layout.getDotCenterY(0) != mFirstCenterY;
+    }
+
+    long getCycleDuration() {
+        return mCycleDuration;
+    }
+
+    /**
+     * Finds where the path is at the given time
+     *
+     * @param time Milliseconds since the first cycle started, wrapping around at every cycle
+     */
+    void seek(long time) {
+        if (mDotCount == 0 || mCycleDuration <= 0) {
+            mReachedCount = 0;
+            return;
+        }
+        long timeInCycle = time % mCycleDuration;
+        int index = Arrays.binarySearch(mArrivals, 0, mDotCount, timeInCycle);
+        // The number of dots reached by now, including one reached at this very time
+        int reached = index >= 0 ? index + 1 : -index - 1;
+        mReachedCount = reached;
+        if (reached == 0) {
+            mX = mCenterXs[0];
+            mY = mCenterYs[0];
+            return;
+        }
+        int from = reached - 1;
+        long departure = mArrivals[from] + mPause;
+        if (reached == mDotCount || timeInCycle <= departure) {
+            mX = mCenterXs[from];
+            mY = mCenterYs[from];
+            return;
+        }
+        float fraction = (float) (timeInCycle - departure) / (mArrivals[reached] - departure);
+        if (mInterpolator != null) {
+            fraction = mInterpolator.getInterpolation(fraction);
+        }
+        mX = mCenterXs[from] + fraction * (mCenterXs[reached] - mCenterXs[from]);
+        mY = mCenterYs[from] + fraction * (mCenterYs[reached] - mCenterYs[from]);
+    }
+
+    /**
+     * The number of dots of the pattern the path has reached, which are drawn as selected
+     */
+    int getReachedCount() {
+        return mReachedCount;
+    }
+
+    /**
+     * The end of the path, between the last dot reached and the next one
+     */
+    float getX() {
+        return mX;
+    }
+
+    float getY() {
+        return mY;
+    }
+}
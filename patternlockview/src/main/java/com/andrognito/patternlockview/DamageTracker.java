@@ -0,0 +1,139 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.andrognito.patternlockview.metrics.PatternLockMetrics;
+
+/**
+ * Collects the areas of a view that changed during a frame and invalidates their union once.
+ * <p>
+ * The first damage of a frame invalidates just that area, which schedules a traversal. Everything
+ * damaged after that is only added to the union, which is handed to the view right before it
+ * draws. Touch events and animations of the same frame therefore cost one bounded invalidate
+ * instead of one (often full) invalidate each.
+ */
+final class DamageTracker implements ViewTreeObserver.OnPreDrawListener {
+
+    // Covers the anti-aliased edges of what was drawn
+    private static final int ANTI_ALIAS_MARGIN = 1;
+
+    private final View mHost;
+    private final Rect mDirty = new Rect();
+    private boolean mPending;
+    private boolean mFull;
+    private ViewTreeObserver mObserver;
+    private PatternLockMetrics mMetrics;
+
+    DamageTracker(View host) {
+        mHost = host;
+    }
+
+    void setMetrics(PatternLockMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    void attach() {
+        mObserver = mHost.getViewTreeObserver();
+        mObserver.addOnPreDrawListener(this);
+    }
+
+    void detach() {
+        if (mObserver != null && mObserver.isAlive()) {
+            mObserver.removeOnPreDrawListener(this);
+        }
+        mObserver = null;
+        clear();
+    }
+
+    /**
+     * Damages a circle, such as a dot
+     */
+    void addCircle(float centerX, float centerY, float radius) {
+        addRect(centerX - radius, centerY - radius, centerX + radius, centerY + radius);
+    }
+
+    /**
+     * Damages a straight segment drawn with the given stroke width
+     */
+    void addSegment(float startX, float startY, float endX, float endY, float strokeWidth) {
+        float halfWidth = strokeWidth / 2f;
+        addRect(Math.min(startX, endX) - halfWidth, Math.min(startY, endY) - halfWidth,
+                Math.max(startX, endX) + halfWidth, Math.max(startY, endY) + halfWidth);
+    }
+
+    void addRect(float left, float top, float right, float bottom) {
+        addRect((int) Math.floor(left) - ANTI_ALIAS_MARGIN,
+                (int) Math.floor(top) - ANTI_ALIAS_MARGIN,
+                (int) Math.ceil(right) + ANTI_ALIAS_MARGIN,
+                (int) Math.ceil(bottom) + ANTI_ALIAS_MARGIN);
+    }
+
+    void addRect(Rect rect) {
+        if (!rect.isEmpty()) {
+            addRect(rect.left, rect.top, rect.right, rect.bottom);
+        }
+    }
+
+    private void addRect(int left, int top, int right, int bottom) {
+        if (mFull) {
+            return;
+        }
+        mDirty.union(left, top, right, bottom);
+        schedule(left, top, right, bottom);
+    }
+
+    /**
+     * Damages the whole view, for changes that affect most of it such as a new view mode
+     */
+    void addAll() {
+        if (mFull) {
+            return;
+        }
+        mFull = true;
+        if (mObserver == null) {
+            flush();
+        } else if (!mPending) {
+            mPending = true;
+            mHost.invalidate();
+        }
+    }
+
+    private void schedule(int left, int top, int right, int bottom) {
+        if (mObserver == null) {
+            // Not attached, so there is no frame to batch with
+            flush();
+        } else if (!mPending) {
+            mPending = true;
+            mHost.invalidate(left, top, right, bottom);
+        }
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        flush();
+        return true;
+    }
+
+    private void flush() {
+        if (mFull) {
+            mHost.invalidate();
+            if (mMetrics != null) {
+                mMetrics.onFrameDamaged((long) mHost.getWidth() * mHost.getHeight());
+            }
+        } else if (!mDirty.isEmpty()) {
+            mHost.invalidate(mDirty);
+            if (mMetrics != null) {
+                mMetrics.onFrameDamaged((long) mDirty.width() * mDirty.height());
+            }
+        }
+        clear();
+    }
+
+    private void clear() {
+        mDirty.setEmpty();
+        mPending = false;
+        mFull = false;
+    }
+}
@@ -0,0 +1,100 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+
+import java.util.Arrays;
+
+/**
+ * Collects dots of the same size and draws them with one {@link Canvas#drawPoints} call per
+ * distinct color and alpha. Points drawn with a round cap are circles as wide as the stroke, so a
+ * whole matrix of dots at rest usually takes two draw calls instead of one per dot.
+ * <p>
+ * The buffers are kept between frames and only grow, so batching allocates nothing once warmed up.
+ */
+final class DotBatch {
+
+    private static final int INITIAL_GROUP_CAPACITY = 4;
+
+    private final Paint mPaint;
+
+    private int mGroupCount;
+    private int[] mColors = new int[INITIAL_GROUP_CAPACITY];
+    private int[] mAlphas = new int[INITIAL_GROUP_CAPACITY];
+    private int[] mPointCounts = new int[INITIAL_GROUP_CAPACITY];
+    private float[][] mPoints = new float[INITIAL_GROUP_CAPACITY][];
+
+    /**
+     * @param dotPaint The paint the dots would be drawn with one by one
+     */
+    DotBatch(Paint dotPaint) {
+        mPaint = new Paint(dotPaint);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+    }
+
+    void setDither(boolean dither) {
+        mPaint.setDither(dither);
+    }
+
+    void clear() {
+        mGroupCount = 0;
+    }
+
+    void add(float centerX, float centerY, int color, int alpha) {
+        int group = 0;
+        while (group < mGroupCount && (mColors[group] != color || mAlphas[group] != alpha)) {
+            group++;
+        }
+        if (group == mGroupCount) {
+            addGroup(color, alpha);
+        }
+
+        float[] points = mPoints[group];
+        int count = mPointCounts[group];
+        if (points.length < (count + 1) * 2) {
+            points = Arrays.copyOf(points, points.length * 2);
+            mPoints[group] = points;
+        }
+        points[count * 2] = centerX;
+        points[count * 2 + 1] = centerY;
+        mPointCounts[group] = count + 1;
+    }
+
+    private void addGroup(int color, int alpha) {
+        if (mGroupCount == mColors.length) {
+            int capacity = mGroupCount * 2;
+            mColors = Arrays.copyOf(mColors, capacity);
+            mAlphas = Arrays.copyOf(mAlphas, capacity);
+            mPointCounts = Arrays.copyOf(mPointCounts, capacity);
+            mPoints = Arrays.copyOf(mPoints, capacity);
+        }
+        mColors[mGroupCount] = color;
+        mAlphas[mGroupCount] = alpha;
+        mPointCounts[mGroupCount] = 0;
+        if (mPoints[mGroupCount] == null) {
+            mPoints[mGroupCount] = new float[INITIAL_GROUP_CAPACITY * 2];
+        }
+        mGroupCount++;
+    }
+
+    /**
+     * Draws every collected dot and clears the batch
+     *
+     * @param size The diameter of the dots
+     */
+    void draw(Canvas canvas, float size) {
+        mPaint.setStrokeWidth(size);
+        for (int group = 0; group < mGroupCount; group++) {
+            mPaint.setColor(mColors[group]);
+            mPaint.setAlpha(mAlphas[group]);
+            canvas.drawPoints(mPoints[group], 0, mPointCounts[group] * 2, mPaint);
+        }
+        clear();
+    }
+}
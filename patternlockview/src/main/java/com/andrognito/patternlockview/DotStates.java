@@ -0,0 +1,45 @@
+package com.andrognito.patternlockview;
+
+import java.util.Arrays;
+
+/**
+ * The animation state of every dot of a {@link PatternLockView}, stored as parallel arrays
+ * indexed by dot id rather than as one object per dot. The draw loop walks the arrays linearly,
+ * and the arrays are only reallocated when the matrix grows beyond their capacity.
+ */
+final class DotStates {
+
+    // Marks a dot whose line end is not being animated
+    static final float NO_LINE_END = Float.MIN_VALUE;
+
+    float[] mScale = new float[0];
+    float[] mTranslateY = new float[0];
+    float[] mAlpha = new float[0];
+    float[] mSize = new float[0];
+    float[] mLineEndX = new float[0];
+    float[] mLineEndY = new float[0];
+
+    /**
+     * Resets the state of the given number of dots, growing the arrays if needed
+     *
+     * @param count The number of dots of the matrix
+     * @param size  The size every dot is reset to
+     */
+    void reset(int count, float size) {
+        if (mSize.length < count) {
+            mScale = new float[count];
+            mTranslateY = new float[count];
+            mAlpha = new float[count];
+            mSize = new float[count];
+            mLineEndX = new float[count];
+            mLineEndY = new float[count];
+        }
+
+        Arrays.fill(mScale, 0, count, 1.0f);
+        Arrays.fill(mTranslateY, 0, count, 0.0f);
+        Arrays.fill(mAlpha, 0, count, 1.0f);
+        Arrays.fill(mSize, 0, count, size);
+        Arrays.fill(mLineEndX, 0, count, NO_LINE_END);
+        Arrays.fill(mLineEndY, 0, count, NO_LINE_END);
+    }
+}
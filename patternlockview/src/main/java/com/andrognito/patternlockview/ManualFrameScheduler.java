@@ -0,0 +1,145 @@
+package com.andrognito.patternlockview;
+
+import java.util.ArrayList;
+
+/**
+ * A frame scheduler whose frames only run when asked to, for tests. Each frame advances the
+ * clock by a fixed interval and runs the callbacks posted before it, so animations can be stepped
+ * through instantly and land on exactly the same frames every run.
+ * <p>
+ * Time is in the same base as the events dispatched to the view, so time touch events with
+ * {@link #uptimeMillis()} as well. Like the view, a scheduler must only be used on the main
+ * thread.
+ */
+public class ManualFrameScheduler implements PatternLockFrameScheduler {
+
+    // About 60 frames per second
+    public static final long DEFAULT_FRAME_INTERVAL = 16;
+
+    private final long mFrameInterval;
+    private float mAnimatorDurationScale = 1f;
+    private long mTime;
+    private final ArrayList<Runnable> mCallbacks = new ArrayList<>();
+    // The callbacks of the frame being run, which may still be removed while it runs
+    private final ArrayList<Runnable> mFrameCallbacks = new ArrayList<>();
+
+    public ManualFrameScheduler() {
+        this(DEFAULT_FRAME_INTERVAL);
+    }
+
+    /**
+     * @param frameInterval The time between two frames, in milliseconds
+     */
+    public ManualFrameScheduler(long frameInterval) {
+        if (frameInterval <= 0) {
+            throw new IllegalArgumentException("Frame interval must be greater than 0");
+        }
+        mFrameInterval = frameInterval;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return mTime;
+    }
+
+    @Override
+    public void postFrameCallback(Runnable callback) {
+        mCallbacks.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(Runnable callback) {
+        while (mCallbacks.remove(callback)) {
+            // Posted more than once
+        }
+        for (int i = 0; i < mFrameCallbacks.size(); i++) {
+            if (mFrameCallbacks.get(i) == callback) {
+                mFrameCallbacks.set(i, null);
+            }
+        }
+    }
+
+    @Override
+    public float getAnimatorDurationScale() {
+        return mAnimatorDurationScale;
+    }
+
+    /**
+     * Scales animation durations like the setting of the device, 0 turning animations off
+     */
+    public void setAnimatorDurationScale(float animatorDurationScale) {
+        if (animatorDurationScale < 0f) {
+            throw new IllegalArgumentException("Animator duration scale can not be negative");
+        }
+        mAnimatorDurationScale = animatorDurationScale;
+    }
+
+    public long getFrameInterval() {
+        return mFrameInterval;
+    }
+
+    /**
+     * Whether a callback waits for the next frame
+     */
+    public boolean hasPendingCallbacks() {
+        return !mCallbacks.isEmpty();
+    }
+
+    /**
+     * Moves the clock forward without running any frame, for instance between touch events
+     */
+    public void advanceTime(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time can not go backwards");
+        }
+        mTime += millis;
+    }
+
+    /**
+     * Moves the clock to the next frame and runs the callbacks posted before it
+     */
+    public void advanceFrame() {
+        mTime += mFrameInterval;
+        // Indexed and without swapping in a new list, so that frames don't allocate
+        for (int i = 0; i < mCallbacks.size(); i++) {
+            mFrameCallbacks.add(mCallbacks.get(i));
+        }
+        mCallbacks.clear();
+        for (int i = 0; i < mFrameCallbacks.size(); i++) {
+            Runnable callback = mFrameCallbacks.get(i);
+            if (callback != null) {
+                callback.run();
+            }
+        }
+        mFrameCallbacks.clear();
+    }
+
+    /**
+     * Runs every frame within the given time, then moves the clock to its end
+     */
+    public void advanceBy(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time can not go backwards");
+        }
+        long end = mTime + millis;
+        while (mTime + mFrameInterval <= end) {
+            advanceFrame();
+        }
+        mTime = end;
+    }
+
+    /**
+     * Runs frames until no callback is pending, such as when every animation has ended
+     *
+     * @param maxFrames The most frames to run, as some animations such as AUTO_DRAW never end
+     * @return The number of frames run
+     */
+    public int advanceUntilIdle(int maxFrames) {
+        int frames = 0;
+        while (frames < maxFrames && hasPendingCallbacks()) {
+            advanceFrame();
+            frames++;
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,200 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+
+import com.andrognito.patternlockview.core.PackedPattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders patterns into {@link Bitmap}s without a view, for notifications, share sheets and
+ * previews. Only a {@link Canvas} is involved, so rendering can happen on any thread.
+ * <p>
+ * Rendered bitmaps are kept in an LRU cache bounded in bytes and keyed by style, packed pattern,
+ * view mode and size, so rendering the same pattern again is a cache hit. The returned bitmaps
+ * belong to the cache and must not be modified or recycled. A bitmap larger than the whole cache
+ * is never cached nor pooled, and belongs to the caller instead.
+ * <p>
+ * Optionally, bitmaps evicted from the cache go to a pool and are redrawn for later renders of the
+ * same size instead of allocating new ones. Only enable the pool when callers are done with a
+ * bitmap by the time it can be evicted (for instance when they copy it or draw it right away),
+ * since a pooled bitmap gets overwritten.
+ */
+public class PatternBitmapRenderer {
+
+    private final LruCache<BitmapKey, Bitmap> mCache;
+    private final int mMaxPoolBytes;
+    private final List<Bitmap> mPool = new ArrayList<>();
+    private int mPoolBytes;
+
+    /**
+     * @param maxCacheBytes The maximum number of bytes of bitmaps to keep in the cache
+     * @param maxPoolBytes  The maximum number of bytes of evicted bitmaps to keep for reuse, or
+     *                      {@code 0} not to reuse them
+     */
+    public PatternBitmapRenderer(int maxCacheBytes, int maxPoolBytes) {
+        mMaxPoolBytes = maxPoolBytes;
+        mCache = new LruCache<BitmapKey, Bitmap>(maxCacheBytes) {
+
+            @Override
+            protected int sizeOf(BitmapKey key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, BitmapKey key, Bitmap oldBitmap,
+                                        Bitmap newBitmap) {
+                // Replaced entries may still be in use by whoever rendered them
+                if (evicted) {
+                    release(oldBitmap);
+                }
+            }
+        };
+    }
+
+    /**
+     * Renders a pattern, or returns it from the cache if it was rendered before
+     *
+     * @param style           The style to draw the pattern with
+     * @param packedPattern   The pattern, packed with {@link PackedPattern#pack}
+     * @param patternViewMode The mode the pattern is shown in
+     * @param width           The width of the bitmap
+     * @param height          The height of the bitmap
+     * @return The bitmap of the pattern, owned by the cache unless it is larger than the cache
+     */
+    @NonNull
+    public Bitmap render(@NonNull PatternLockStyle style, long packedPattern,
+                         @PatternLockView.PatternViewMode int patternViewMode, int width,
+                         int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be greater than 0");
+        }
+
+        BitmapKey key = new BitmapKey(style, packedPattern, patternViewMode, width, height);
+        Bitmap bitmap = mCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        bitmap = acquire(width, height);
+        Canvas canvas = new Canvas(bitmap);
+
+        PatternDrawable drawable = new PatternDrawable(style);
+        drawable.setPattern(PackedPattern.unpack(packedPattern),
+                PackedPattern.length(packedPattern));
+        drawable.setViewMode(patternViewMode);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+
+        // The cache would evict it right away, handing the bitmap to the pool while the caller
+        // still uses it
+        if (bitmap.getByteCount() <= mCache.maxSize()) {
+            mCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Renders a pattern, or returns it from the cache if it was rendered before. Patterns must fit
+     * in a {@link PackedPattern}
+     */
+    @NonNull
+    public Bitmap render(@NonNull PatternLockStyle style,
+                         @NonNull List<PatternLockView.Dot> pattern,
+                         @PatternLockView.PatternViewMode int patternViewMode, int width,
+                         int height) {
+        int[] ids = new int[pattern.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pattern.get(i).getId();
+        }
+        return render(style, PackedPattern.pack(ids, ids.length), patternViewMode, width, height);
+    }
+
+    /**
+     * Drops every cached bitmap, for instance when the system is low on memory
+     */
+    public void clear() {
+        mCache.evictAll();
+        synchronized (mPool) {
+            mPool.clear();
+            mPoolBytes = 0;
+        }
+    }
+
+    private Bitmap acquire(int width, int height) {
+        synchronized (mPool) {
+            for (int i = mPool.size() - 1; i >= 0; i--) {
+                Bitmap bitmap = mPool.get(i);
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    mPool.remove(i);
+                    mPoolBytes -= bitmap.getByteCount();
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private void release(Bitmap bitmap) {
+        int byteCount = bitmap.getByteCount();
+        if (byteCount > mMaxPoolBytes || bitmap.isRecycled()) {
+            return;
+        }
+        synchronized (mPool) {
+            // Make room by dropping the bitmaps that have been pooled the longest
+            while (mPoolBytes + byteCount > mMaxPoolBytes) {
+                mPoolBytes -= mPool.remove(0).getByteCount();
+            }
+            mPool.add(bitmap);
+            mPoolBytes += byteCount;
+        }
+    }
+
+    private static final class BitmapKey {
+        private final PatternLockStyle mStyle;
+        private final long mPackedPattern;
+        private final int mPatternViewMode;
+        private final int mWidth;
+        private final int mHeight;
+
+        private BitmapKey(PatternLockStyle style, long packedPattern, int patternViewMode,
+                          int width, int height) {
+            mStyle = style;
+            mPackedPattern = packedPattern;
+            mPatternViewMode = patternViewMode;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BitmapKey)) {
+                return false;
+            }
+            BitmapKey key = (BitmapKey) o;
+            // Styles are cached and shared, so identity is enough to tell them apart
+            return mStyle == key.mStyle && mPackedPattern == key.mPackedPattern
+                    && mPatternViewMode == key.mPatternViewMode && mWidth == key.mWidth
+                    && mHeight == key.mHeight;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mStyle);
+            result = 31 * result + (int) (mPackedPattern ^ (mPackedPattern >>> 32));
+            result = 31 * result + mPatternViewMode;
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            return result;
+        }
+    }
+}
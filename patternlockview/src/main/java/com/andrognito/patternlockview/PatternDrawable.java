@@ -0,0 +1,308 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.andrognito.patternlockview.core.PatternGrid;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.andrognito.patternlockview.PatternLockView.PatternViewMode.WRONG;
+
+/**
+ * Draws a given pattern the way a {@link PatternLockView} with the same style shows it once drawn,
+ * without any input handling or animation. Meant for thumbnails of patterns, for instance in the
+ * rows of a list.
+ * <p>
+ * Binding a new pattern only copies its dot ids. The path of the pattern is built the first time
+ * it is drawn at a given size and kept in a cache shared by every drawable, so rows showing the
+ * same pattern at the same size share one {@link Path}, and rebinding a row to a pattern seen
+ * before allocates nothing. The shared cache is synchronized, so drawables can also be drawn off
+ * the main thread, as long as each one is used by a single thread at a time.
+ * <p>
+ * Like the view, each segment of the path is stroked as a contour of its own, and a drawable in
+ * stealth mode shows every dot in the normal color, without the path.
+ */
+public class PatternDrawable extends Drawable {
+
+    private static final int DEFAULT_PATH_CACHE_SIZE = 256;
+
+    private static final LruCache<PathKey, Path> sPathCache =
+            new LruCache<>(DEFAULT_PATH_CACHE_SIZE);
+    // Reused to look the cache up without allocating a key
+    private static final PathKey sLookupKey = new PathKey();
+
+    private final PatternLockStyle mStyle;
+    private final PatternGrid mGrid;
+    private final boolean[] mSelected;
+    private final DotBatch mDotBatch;
+    private final Paint mPathPaint;
+
+    private int[] mPattern;
+    private int mPatternLength;
+    private int mPatternViewMode = PatternLockView.PatternViewMode.CORRECT;
+    private boolean mInStealthMode;
+    private int mAlpha = 255;
+
+    // The cached path of the pattern at the current size, or null until it is next drawn
+    private Path mPath;
+
+    public PatternDrawable(@NonNull PatternLockStyle style) {
+        mStyle = style;
+        mGrid = new PatternGrid(style.getRowCount(), style.getColumnCount());
+        mSelected = new boolean[mGrid.getPatternSize()];
+        mPattern = new int[mGrid.getPatternSize()];
+        mDotBatch = new DotBatch(style.createDotPaint());
+        mPathPaint = style.createPathPaint();
+    }
+
+    /**
+     * Binds a pattern to the drawable
+     *
+     * @param ids    The dot ids of the pattern, or {@code null} for an empty pattern
+     * @param length The number of ids to use from the array
+     */
+    public void setPattern(@Nullable int[] ids, int length) {
+        clearPattern();
+        if (ids != null) {
+            for (int i = 0; i < length; i++) {
+                addDot(ids[i]);
+            }
+        }
+        invalidateSelf();
+    }
+
+    public void setPattern(@Nullable List<PatternLockView.Dot> pattern) {
+        clearPattern();
+        if (pattern != null) {
+            for (int i = 0; i < pattern.size(); i++) {
+                addDot(pattern.get(i).getId());
+            }
+        }
+        invalidateSelf();
+    }
+
+    private void clearPattern() {
+        Arrays.fill(mSelected, false);
+        mPatternLength = 0;
+        mPath = null;
+    }
+
+    private void addDot(int id) {
+        if (id < 0 || id >= mSelected.length) {
+            throw new IllegalArgumentException("Dot ids must be in range 0-"
+                    + (mSelected.length - 1));
+        }
+        if (mPatternLength == mPattern.length) {
+            mPattern = Arrays.copyOf(mPattern, mPatternLength * 2);
+        }
+        mPattern[mPatternLength++] = id;
+        mSelected[id] = true;
+    }
+
+    /**
+     * Set the mode the pattern is shown in, which picks the color of its dots and path
+     */
+    public void setViewMode(@PatternLockView.PatternViewMode int patternViewMode) {
+        mPatternViewMode = patternViewMode;
+        invalidateSelf();
+    }
+
+    @PatternLockView.PatternViewMode
+    public int getPatternViewMode() {
+        return mPatternViewMode;
+    }
+
+    /**
+     * Set whether the drawable is in stealth mode, like {@link PatternLockView#setInStealthMode}.
+     * If {@code true}, the dots of the pattern are not highlighted and its path is not drawn
+     */
+    public void setInStealthMode(boolean inStealthMode) {
+        mInStealthMode = inStealthMode;
+        invalidateSelf();
+    }
+
+    public boolean isInStealthMode() {
+        return mInStealthMode;
+    }
+
+    public PatternLockStyle getStyle() {
+        return mStyle;
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mGrid.setBounds(0, 0, bounds.width(), bounds.height());
+        mPath = null;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        Rect bounds = getBounds();
+        if (bounds.isEmpty()) {
+            return;
+        }
+
+        int saveCount = canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+
+        int normalColor = mStyle.getNormalStateColor();
+        int selectedColor;
+        if (mInStealthMode) {
+            selectedColor = normalColor;
+        } else if (mPatternViewMode == WRONG) {
+            selectedColor = mStyle.getWrongStateColor();
+        } else {
+            selectedColor = mStyle.getCorrectStateColor();
+        }
+
+        // Draw the dots, which all have the same size so they can be batched by color
+        int rowCount = mGrid.getRowCount();
+        int columnCount = mGrid.getColumnCount();
+        int id = 0;
+        for (int i = 0; i < rowCount; i++) {
+            float centerY = (int) mGrid.getCenterY(i);
+            for (int j = 0; j < columnCount; j++, id++) {
+                mDotBatch.add((int) mGrid.getCenterX(j), centerY,
+                        mSelected[id] ? selectedColor : normalColor, mAlpha);
+            }
+        }
+        mDotBatch.draw(canvas, mStyle.getDotNormalSize());
+
+        // Draw the path of the pattern (unless we are in stealth mode)
+        if (mPatternLength > 1 && !mInStealthMode) {
+            if (mPath == null) {
+                mPath = obtainPath(bounds.width(), bounds.height());
+            }
+            mPathPaint.setColor(selectedColor);
+            mPathPaint.setAlpha(Color.alpha(selectedColor) * mAlpha / 255);
+            canvas.drawPath(mPath, mPathPaint);
+        }
+
+        canvas.restoreToCount(saveCount);
+    }
+
+    private Path obtainPath(int width, int height) {
+        synchronized (sPathCache) {
+            sLookupKey.set(mGrid.getRowCount(), mGrid.getColumnCount(), width, height, mPattern,
+                    mPatternLength);
+            Path path = sPathCache.get(sLookupKey);
+            if (path != null) {
+                return path;
+            }
+
+            // Every segment is a contour of its own, as in the view
+            path = new Path();
+            float lastX = mGrid.getDotCenterX(mPattern[0]);
+            float lastY = mGrid.getDotCenterY(mPattern[0]);
+            for (int i = 1; i < mPatternLength; i++) {
+                int id = mPattern[i];
+                float centerX = mGrid.getDotCenterX(id);
+                float centerY = mGrid.getDotCenterY(id);
+                path.moveTo(lastX, lastY);
+                path.lineTo(centerX, centerY);
+                lastX = centerX;
+                lastY = centerY;
+            }
+            sPathCache.put(sLookupKey.copy(), path);
+            return path;
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mAlpha = alpha;
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mDotBatch.setColorFilter(colorFilter);
+        mPathPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /**
+     * Identifies the path of a pattern laid out in a matrix of a given size
+     */
+    private static final class PathKey {
+        private int mRowCount;
+        private int mColumnCount;
+        private int mWidth;
+        private int mHeight;
+        private int[] mIds = new int[0];
+        private int mLength;
+        private int mHash;
+
+        void set(int rowCount, int columnCount, int width, int height, int[] ids, int length) {
+            mRowCount = rowCount;
+            mColumnCount = columnCount;
+            mWidth = width;
+            mHeight = height;
+            if (mIds.length < length) {
+                mIds = new int[length];
+            }
+            System.arraycopy(ids, 0, mIds, 0, length);
+            mLength = length;
+
+            int hash = 31 * (31 * (31 * rowCount + columnCount) + width) + height;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + ids[i];
+            }
+            mHash = hash;
+        }
+
+        PathKey copy() {
+            PathKey key = new PathKey();
+            key.set(mRowCount, mColumnCount, mWidth, mHeight, mIds, mLength);
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PathKey)) {
+                return false;
+            }
+            PathKey key = (PathKey) o;
+            if (mHash != key.mHash || mRowCount != key.mRowCount
+                    || mColumnCount != key.mColumnCount || mWidth != key.mWidth
+                    || mHeight != key.mHeight || mLength != key.mLength) {
+                return false;
+            }
+            for (int i = 0; i < mLength; i++) {
+                if (mIds[i] != key.mIds[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.andrognito.patternlockview;
+
+import android.os.SystemClock;
+
+/**
+ * A source of time, so that whatever is timed can be driven by a fake clock in tests instead of
+ * waiting in real time
+ */
+public interface PatternLockClock {
+
+    /**
+     * The clock of the device, which is the time base of {@link android.view.MotionEvent}s
+     */
+    PatternLockClock SYSTEM = new PatternLockClock() {
+
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    /**
+     * Milliseconds since an arbitrary origin, which never go backwards
+     */
+    long uptimeMillis();
+}
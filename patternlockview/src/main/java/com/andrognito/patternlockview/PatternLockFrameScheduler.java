@@ -0,0 +1,26 @@
+package com.andrognito.patternlockview;
+
+/**
+ * Runs callbacks on the frames of a view and tells the time of those frames. A
+ * {@link PatternLockView} times all of its animations with one, see
+ * {@link PatternLockView#setFrameScheduler(PatternLockFrameScheduler)}.
+ */
+public interface PatternLockFrameScheduler extends PatternLockClock {
+
+    /**
+     * Runs a callback once, on the next frame. A callback posted while a frame runs its callbacks
+     * runs on the frame after
+     */
+    void postFrameCallback(Runnable callback);
+
+    /**
+     * Removes a callback that was posted and has not run yet
+     */
+    void removeFrameCallback(Runnable callback);
+
+    /**
+     * The factor animation durations are scaled by, as set in the developer options or the
+     * accessibility settings of the device. It is 0 when animations are turned off
+     */
+    float getAnimatorDurationScale();
+}
@@ -0,0 +1,251 @@
+package com.andrognito.patternlockview;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.IntDef;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.TimeUnit;
+
+import static com.andrognito.patternlockview.PatternLockQualityController.QualityTier.BATCHED_DOTS;
+import static com.andrognito.patternlockview.PatternLockQualityController.QualityTier.FULL;
+import static com.andrognito.patternlockview.PatternLockQualityController.QualityTier.NO_DITHER;
+import static com.andrognito.patternlockview.PatternLockQualityController.QualityTier.NO_DOT_PULSE;
+import static com.andrognito.patternlockview.PatternLockQualityController.QualityTier.SIMPLE_RUBBER_BAND;
+
+/**
+ * Lowers the rendering quality of a {@link PatternLockView} while the device can't keep up with
+ * the frame rate, and raises it back once there is headroom again.
+ * <p>
+ * Frames are judged in windows of {@link #WINDOW_FRAMES}. From API 24, when the view is attached
+ * to the window of an activity, frames are timed by {@link FrameMetrics}, which covers the whole
+ * frame of the window. Otherwise the view times its own {@code onDraw}, which is only a part of
+ * the frame, against half of the budget. A window with a few slow frames steps the quality down
+ * one tier at once, while stepping up takes several windows in a row with room to spare, and
+ * more after every step up that didn't hold.
+ * <p>
+ * A controller is driven by a single view, on the main thread. Set it with
+ * {@link PatternLockView#setQualityController}.
+ */
+public class PatternLockQualityController {
+
+    /**
+     * The tiers of rendering quality, from the best. Each tier keeps the savings of the ones
+     * before it
+     */
+    @IntDef({FULL, NO_DITHER, NO_DOT_PULSE, SIMPLE_RUBBER_BAND, BATCHED_DOTS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface QualityTier {
+        /**
+         * Everything is drawn as configured
+         */
+        int FULL = 0;
+        /**
+         * The paints of the dots and the path are no longer dithered
+         */
+        int NO_DITHER = 1;
+        /**
+         * Selected dots change color without pulsing
+         */
+        int NO_DOT_PULSE = 2;
+        /**
+         * The segment to the finger is drawn opaque as soon as it leaves the dot, instead of
+         * fading in with its length
+         */
+        int SIMPLE_RUBBER_BAND = 3;
+        /**
+         * Nothing is animated, and every dot is drawn in the batches of dots at rest
+         */
+        int BATCHED_DOTS = 4;
+    }
+
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    // The number of frames judged together
+    static final int WINDOW_FRAMES = 30;
+    // The number of slow frames in a window that steps the quality down
+    private static final int SLOW_FRAMES_TO_STEP_DOWN = 4;
+    // A window has room to spare when none of its frames took more than this part of the budget
+    private static final float HEADROOM_FRACTION = 0.6f;
+    // The number of windows with room to spare in a row that step the quality up, which doubles
+    // every time a step up is followed by a step down
+    private static final int INITIAL_WINDOWS_TO_STEP_UP = 2;
+    private static final int MAX_WINDOWS_TO_STEP_UP = 32;
+
+    private final long mFrameBudgetNanos;
+
+    @QualityTier
+    private int mTier = FULL;
+    private int mWindowFrames;
+    private int mWindowSlowFrames;
+    private boolean mWindowHasHeadroom = true;
+    private int mWindowsWithHeadroom;
+    private int mWindowsToStepUp = INITIAL_WINDOWS_TO_STEP_UP;
+    private boolean mSteppedUp;
+
+    // Reports the frames of the window while the view is attached, from API 24
+    private FrameMetricsSource mFrameMetricsSource;
+
+    public PatternLockQualityController() {
+        this(DEFAULT_FRAME_BUDGET_NANOS);
+    }
+
+    /**
+     * @param frameBudgetNanos The time a frame may take, which is {@code 1s / 60} by default
+     */
+    public PatternLockQualityController(long frameBudgetNanos) {
+        if (frameBudgetNanos <= 0) {
+            throw new IllegalArgumentException("Frame budget must be greater than 0");
+        }
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    @QualityTier
+    public int getTier() {
+        return mTier;
+    }
+
+    /**
+     * Whether frames are timed by {@link FrameMetrics}, rather than by the draw time of the view
+     */
+    public boolean isUsingFrameMetrics() {
+        return mFrameMetricsSource != null;
+    }
+
+    /**
+     * Goes back to the full quality and forgets every frame judged so far
+     */
+    public void reset() {
+        mTier = FULL;
+        mWindowsToStepUp = INITIAL_WINDOWS_TO_STEP_UP;
+        mSteppedUp = false;
+        mWindowsWithHeadroom = 0;
+        startWindow();
+    }
+
+    /**
+     * Called by the view once attached, to time frames with {@link FrameMetrics} where available
+     */
+    void onAttached(PatternLockView view) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || !view.isHardwareAccelerated()) {
+            return;
+        }
+        Activity activity = findActivity(view.getContext());
+        if (activity != null) {
+            mFrameMetricsSource = new FrameMetricsSource(this, activity.getWindow());
+            mFrameMetricsSource.start();
+        }
+    }
+
+    void onDetached() {
+        if (mFrameMetricsSource != null) {
+            mFrameMetricsSource.stop();
+            mFrameMetricsSource = null;
+        }
+    }
+
+    /**
+     * Called by the view with the time it spent drawing a frame
+     */
+    void onDraw(long durationNanos) {
+        if (mFrameMetricsSource == null) {
+            // The view shares the frame with the rest of the window and with the RenderThread
+            onFrame(durationNanos * 2);
+        }
+    }
+
+    /**
+     * Judges a frame of the given duration, and steps the quality at the end of a window
+     */
+    void onFrame(long durationNanos) {
+        if (durationNanos > mFrameBudgetNanos) {
+            mWindowSlowFrames++;
+        }
+        if (durationNanos > mFrameBudgetNanos * HEADROOM_FRACTION) {
+            mWindowHasHeadroom = false;
+        }
+        mWindowFrames++;
+
+        if (mWindowSlowFrames >= SLOW_FRAMES_TO_STEP_DOWN) {
+            mWindowsWithHeadroom = 0;
+            if (mTier < BATCHED_DOTS) {
+                mTier++;
+                if (mSteppedUp) {
+                    // The tier just left couldn't be sustained, so going back takes longer
+                    mWindowsToStepUp = Math.min(mWindowsToStepUp * 2, MAX_WINDOWS_TO_STEP_UP);
+                }
+            }
+            mSteppedUp = false;
+            startWindow();
+        } else if (mWindowFrames == WINDOW_FRAMES) {
+            if (mWindowHasHeadroom && mTier > FULL) {
+                mWindowsWithHeadroom++;
+                if (mWindowsWithHeadroom >= mWindowsToStepUp) {
+                    mTier--;
+                    mSteppedUp = true;
+                    mWindowsWithHeadroom = 0;
+                }
+            } else {
+                mWindowsWithHeadroom = 0;
+                if (mWindowSlowFrames == 0) {
+                    // The tier held for a whole window, so it is sustained
+                    mSteppedUp = false;
+                }
+            }
+            startWindow();
+        }
+    }
+
+    private void startWindow() {
+        mWindowFrames = 0;
+        mWindowSlowFrames = 0;
+        mWindowHasHeadroom = true;
+    }
+
+    private static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static final class FrameMetricsSource implements
+            Window.OnFrameMetricsAvailableListener {
+
+        private final PatternLockQualityController mController;
+        private final Window mWindow;
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        FrameMetricsSource(PatternLockQualityController controller, Window window) {
+            mController = controller;
+            mWindow = window;
+        }
+
+        void start() {
+            mWindow.addOnFrameMetricsAvailableListener(this, mHandler);
+        }
+
+        void stop() {
+            mWindow.removeOnFrameMetricsAvailableListener(this);
+        }
+
+        @Override
+        public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics,
+                                            int dropCountSinceLastInvocation) {
+            // Reported on the main thread, through the handler
+            mController.onFrame(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+        }
+    }
+}
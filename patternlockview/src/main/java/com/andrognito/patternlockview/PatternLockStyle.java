@@ -0,0 +1,281 @@
+package com.andrognito.patternlockview;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Paint;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import com.andrognito.patternlockview.utils.ResourceUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The immutable appearance of a {@link PatternLockView}, resolved from its XML attributes and the
+ * theme. Resolving a style reads a {@link TypedArray} and several resources, so styles are cached
+ * per theme and per set of explicit attribute values, and shared by every view inflated with the
+ * same ones. This matters when many small pattern views are shown at once, for instance in a
+ * list. The styles of a theme are dropped when its configuration changes, as dimensions and
+ * colors may then resolve differently.
+ */
+public final class PatternLockStyle {
+
+    static final int DEFAULT_PATTERN_DOT_COUNT = 3;
+    // Amount of time (in millis) spent to animate a dot
+    static final int DEFAULT_DOT_ANIMATION_DURATION = 190;
+    // Amount of time (in millis) spent to animate a path ends
+    static final int DEFAULT_PATH_END_ANIMATION_DURATION = 100;
+
+    // Styles of each theme, keyed by the explicit attribute values they were resolved from. The
+    // themes are weakly held so they go away with their activities
+    private static final Map<Resources.Theme, ThemeStyles> sCache = new WeakHashMap<>();
+
+    private static Interpolator sFastOutSlowInInterpolator;
+    private static Interpolator sLinearOutSlowInInterpolator;
+    private static boolean sInterpolatorsLoaded;
+
+    private final int mRowCount;
+    private final int mColumnCount;
+    private final boolean mAspectRatioEnabled;
+    private final int mAspectRatio;
+    private final int mPathWidth;
+    private final int mNormalStateColor;
+    private final int mCorrectStateColor;
+    private final int mWrongStateColor;
+    private final int mDotNormalSize;
+    private final int mDotSelectedSize;
+    private final int mDotAnimationDuration;
+    private final int mPathEndAnimationDuration;
+
+    private PatternLockStyle(Context context, AttributeSet attrs) {
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.PatternLockView);
+        try {
+            // The matrix is square unless its rows or columns are set on their own
+            int dotCount = typedArray.getInt(R.styleable.PatternLockView_dotCount,
+                    DEFAULT_PATTERN_DOT_COUNT);
+            mRowCount = typedArray.getInt(R.styleable.PatternLockView_rowCount, dotCount);
+            mColumnCount = typedArray.getInt(R.styleable.PatternLockView_columnCount, dotCount);
+            mAspectRatioEnabled = typedArray.getBoolean(R.styleable.PatternLockView_aspectRatioEnabled,
+                    false);
+            mAspectRatio = typedArray.getInt(R.styleable.PatternLockView_aspectRatio,
+                    PatternLockView.AspectRatio.ASPECT_RATIO_SQUARE);
+            mPathWidth = (int) typedArray.getDimension(R.styleable.PatternLockView_pathWidth,
+                    ResourceUtils.getDimensionInPx(context, R.dimen.pattern_lock_path_width));
+            mNormalStateColor = typedArray.getColor(R.styleable.PatternLockView_normalStateColor,
+                    ResourceUtils.getColor(context, R.color.white));
+            mCorrectStateColor = typedArray.getColor(R.styleable.PatternLockView_correctStateColor,
+                    ResourceUtils.getColor(context, R.color.white));
+            mWrongStateColor = typedArray.getColor(R.styleable.PatternLockView_wrongStateColor,
+                    ResourceUtils.getColor(context, R.color.pomegranate));
+            mDotNormalSize = (int) typedArray.getDimension(R.styleable.PatternLockView_dotNormalSize,
+                    ResourceUtils.getDimensionInPx(context, R.dimen.pattern_lock_dot_size));
+            mDotSelectedSize = (int) typedArray.getDimension(R.styleable
+                            .PatternLockView_dotSelectedSize,
+                    ResourceUtils.getDimensionInPx(context, R.dimen.pattern_lock_dot_selected_size));
+            mDotAnimationDuration = typedArray.getInt(R.styleable.PatternLockView_dotAnimationDuration,
+                    DEFAULT_DOT_ANIMATION_DURATION);
+            mPathEndAnimationDuration = typedArray.getInt(R.styleable.PatternLockView_pathEndAnimationDuration,
+                    DEFAULT_PATH_END_ANIMATION_DURATION);
+        } finally {
+            typedArray.recycle();
+        }
+    }
+
+    /**
+     * Returns the style for the given attributes under the theme of the context, resolving it only
+     * the first time these attribute values are seen with this theme. Must be called on the main
+     * thread, like view inflation
+     *
+     * @param context The context whose theme the attributes are resolved against
+     * @param attrs   The attributes of the view, or {@code null} for the defaults of the theme
+     */
+    @NonNull
+    public static PatternLockStyle obtain(@NonNull Context context, @Nullable AttributeSet attrs) {
+        Resources.Theme theme = context.getTheme();
+        Configuration configuration = context.getResources().getConfiguration();
+        ThemeStyles themeStyles = sCache.get(theme);
+        // An activity handling its configuration changes keeps its theme, whose resources then
+        // resolve for the new orientation, screen size or night mode
+        if (themeStyles == null || themeStyles.mConfiguration.diff(configuration) != 0) {
+            themeStyles = new ThemeStyles(configuration);
+            sCache.put(theme, themeStyles);
+        }
+
+        String key = getKey(attrs);
+        PatternLockStyle style = themeStyles.mStyles.get(key);
+        if (style == null) {
+            style = new PatternLockStyle(context, attrs);
+            themeStyles.mStyles.put(key, style);
+        }
+        return style;
+    }
+
+    /**
+     * Builds a key from the style and the attribute values that are explicitly set. Values that
+     * are references (such as {@code @dimen/...}) resolve the same way under the same theme, so
+     * they can be used as they are
+     */
+    private static String getKey(AttributeSet attrs) {
+        if (attrs == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(attrs.getStyleAttribute());
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            int attr = attrs.getAttributeNameResource(i);
+            if (attr != 0 && isStyleable(attr)) {
+                key.append(';').append(attr).append('=').append(attrs.getAttributeValue(i));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * The styles resolved under a theme, and the configuration they were resolved for
+     */
+    private static final class ThemeStyles {
+        private final Configuration mConfiguration;
+        private final Map<String, PatternLockStyle> mStyles = new HashMap<>();
+
+        private ThemeStyles(Configuration configuration) {
+            // Copied, as the configuration of the resources is updated in place
+            mConfiguration = new Configuration(configuration);
+        }
+    }
+
+    private static boolean isStyleable(int attr) {
+        for (int styleable : R.styleable.PatternLockView) {
+            if (styleable == attr) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The interpolator used to animate the dots back to their normal size and the path ends. The
+     * instance is shared by every view, and is {@code null} below Lollipop
+     */
+    @Nullable
+    static Interpolator getFastOutSlowInInterpolator(@NonNull Context context) {
+        loadInterpolators(context);
+        return sFastOutSlowInInterpolator;
+    }
+
+    /**
+     * The interpolator used to animate the dots to their selected size. The instance is shared by
+     * every view, and is {@code null} below Lollipop
+     */
+    @Nullable
+    static Interpolator getLinearOutSlowInInterpolator(@NonNull Context context) {
+        loadInterpolators(context);
+        return sLinearOutSlowInInterpolator;
+    }
+
+    private static void loadInterpolators(Context context) {
+        if (sInterpolatorsLoaded) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // Interpolators are stateless, so one instance can drive every animation
+            Context applicationContext = context.getApplicationContext();
+            sFastOutSlowInInterpolator = AnimationUtils.loadInterpolator(
+                    applicationContext, android.R.interpolator.fast_out_slow_in);
+            sLinearOutSlowInInterpolator = AnimationUtils.loadInterpolator(
+                    applicationContext, android.R.interpolator.linear_out_slow_in);
+        }
+        sInterpolatorsLoaded = true;
+    }
+
+    /**
+     * Creates the paint of the path of a view with this style. Views change the color and alpha
+     * of their paint while drawing, so every view needs its own
+     */
+    @NonNull
+    public Paint createPathPaint() {
+        Paint pathPaint = new Paint();
+        pathPaint.setAntiAlias(true);
+        pathPaint.setDither(true);
+        pathPaint.setColor(mNormalStateColor);
+        pathPaint.setStyle(Paint.Style.STROKE);
+        pathPaint.setStrokeJoin(Paint.Join.ROUND);
+        pathPaint.setStrokeCap(Paint.Cap.ROUND);
+        pathPaint.setStrokeWidth(mPathWidth);
+        return pathPaint;
+    }
+
+    /**
+     * Creates the paint of the dots of a view with this style
+     */
+    @NonNull
+    public Paint createDotPaint() {
+        Paint dotPaint = new Paint();
+        dotPaint.setAntiAlias(true);
+        dotPaint.setDither(true);
+        return dotPaint;
+    }
+
+    /**
+     * The number of dots in a row of the matrix, see {@link #getColumnCount()}
+     */
+    public int getDotCount() {
+        return mColumnCount;
+    }
+
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    public int getColumnCount() {
+        return mColumnCount;
+    }
+
+    public boolean isAspectRatioEnabled() {
+        return mAspectRatioEnabled;
+    }
+
+    @PatternLockView.AspectRatio
+    public int getAspectRatio() {
+        return mAspectRatio;
+    }
+
+    public int getPathWidth() {
+        return mPathWidth;
+    }
+
+    public int getNormalStateColor() {
+        return mNormalStateColor;
+    }
+
+    public int getCorrectStateColor() {
+        return mCorrectStateColor;
+    }
+
+    public int getWrongStateColor() {
+        return mWrongStateColor;
+    }
+
+    public int getDotNormalSize() {
+        return mDotNormalSize;
+    }
+
+    public int getDotSelectedSize() {
+        return mDotSelectedSize;
+    }
+
+    public int getDotAnimationDuration() {
+        return mDotAnimationDuration;
+    }
+
+    public int getPathEndAnimationDuration() {
+        return mPathEndAnimationDuration;
+    }
+}
@@ -0,0 +1,117 @@
+package com.andrognito.patternlockview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+import java.lang.reflect.Method;
+
+/**
+ * Emits {@link Trace} sections and counters for systrace and Perfetto. Tracing is off until
+ * {@link #setEnabled(boolean)} is called, and while it is off every call is a single static read,
+ * so the instrumented paths of {@link PatternLockView} cost nothing measurable.
+ * <p>
+ * Sections need API 18 and counters need API 29, where {@code Trace.setCounter} became public;
+ * below it counters are dropped. As the library doesn't compile against API 29 yet, counters are
+ * set reflectively, through a reused argument array. Their values are boxed by
+ * {@link Long#valueOf(long)}, which doesn't allocate between -128 and 127. That covers the
+ * counters of {@link PatternLockView}, but for patterns of more than 127 dots.
+ * <p>
+ * Every call must be made on the main thread, where sections have to be begun and ended on the
+ * same thread.
+ */
+public final class PatternLockTracing {
+
+    private static boolean sEnabled;
+
+    private static boolean sCounterResolved;
+    private static Method sSetCounter;
+    // The arguments of Trace.setCounter, reused by every call on the main thread
+    private static final Object[] sCounterArgs = new Object[2];
+
+    private PatternLockTracing() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    /**
+     * Starts or stops emitting trace sections and counters. Sections already begun are still
+     * ended when tracing is turned off in between
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Begins a section if tracing is enabled
+     *
+     * @param sectionName A constant name, so that tracing doesn't allocate
+     * @return Whether a section was begun, which must then be passed to
+     * {@link #endSection(boolean)}
+     */
+    public static boolean beginSection(String sectionName) {
+        if (!sEnabled || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return false;
+        }
+        beginSectionInternal(sectionName);
+        return true;
+    }
+
+    /**
+     * Ends the section begun by the matching {@link #beginSection(String)}
+     *
+     * @param begun What {@link #beginSection(String)} returned
+     */
+    public static void endSection(boolean begun) {
+        if (begun) {
+            endSectionInternal();
+        }
+    }
+
+    /**
+     * Sets the value of a counter if tracing is enabled, from API 29
+     *
+     * @param counterName A constant name, so that tracing doesn't allocate
+     * @param value       A value between -128 and 127, so that tracing doesn't allocate
+     */
+    public static void setCounter(String counterName, int value) {
+        if (!sEnabled || Build.VERSION.SDK_INT < 29) {
+            return;
+        }
+        if (!sCounterResolved) {
+            sCounterResolved = true;
+            try {
+                sSetCounter = Trace.class.getMethod("setCounter", String.class, long.class);
+            } catch (NoSuchMethodException e) {
+                sSetCounter = null;
+            }
+        }
+        if (sSetCounter == null) {
+            return;
+        }
+        sCounterArgs[0] = counterName;
+        sCounterArgs[1] = Long.valueOf(value);
+        try {
+            sSetCounter.invoke(null, sCounterArgs);
+        } catch (Exception e) {
+            sSetCounter = null;
+        } finally {
+            sCounterArgs[0] = null;
+            sCounterArgs[1] = null;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void beginSectionInternal(String sectionName) {
+        Trace.beginSection(sectionName);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void endSectionInternal() {
+        Trace.endSection();
+    }
+}
@@ -1,39 +1,43 @@
 package com.andrognito.patternlockview;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
-import android.os.Debug;
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.os.SystemClock;
 import android.support.annotation.ColorInt;
 import android.support.annotation.Dimension;
 import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.view.HapticFeedbackConstants;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
-import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
 
+import com.andrognito.patternlockview.PatternLockQualityController.QualityTier;
+import com.andrognito.patternlockview.core.PatternGrid;
+import com.andrognito.patternlockview.core.PatternLayout;
+import com.andrognito.patternlockview.core.PatternTracker;
 import com.andrognito.patternlockview.listener.PatternLockViewListener;
+import com.andrognito.patternlockview.metrics.PatternLockMetrics;
+import com.andrognito.patternlockview.replay.GestureRecorder;
 import com.andrognito.patternlockview.utils.PatternLockUtils;
-import com.andrognito.patternlockview.utils.ResourceUtils;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.andrognito.patternlockview.PatternLockView.AspectRatio.ASPECT_RATIO_HEIGHT_BIAS;
 import static com.andrognito.patternlockview.PatternLockView.AspectRatio.ASPECT_RATIO_SQUARE;
@@ -88,31 +92,123 @@ public class PatternLockView extends View {
         int WRONG = 2;
     }
 
-    private static final int DEFAULT_PATTERN_DOT_COUNT = 3;
-    private static final boolean PROFILE_DRAWING = false;
-
     /**
-     * The time (in millis) spend in animating each circle of a lock pattern if
-     * the animating mode is set. The entire animation should take this constant
-     * the length of the pattern to complete.
+     * The time (in millis) the animating mode shows nothing before lighting the first dot, and
+     * shows the complete pattern before starting over. By default the path also takes this long
+     * to go from a dot to its neighbour.
      */
     private static final int MILLIS_PER_CIRCLE_ANIMATING = 700;
+    private static final float DEFAULT_AUTO_DRAW_SPEED = 1000f / MILLIS_PER_CIRCLE_ANIMATING;
 
-    // Amount of time (in millis) spent to animate a dot
-    private static final int DEFAULT_DOT_ANIMATION_DURATION = 190;
-    // Amount of time (in millis) spent to animate a path ends
-    private static final int DEFAULT_PATH_END_ANIMATION_DURATION = 100;
     // This can be used to avoid updating the display for very small motions or noisy panels
     private static final float DEFAULT_DRAG_THRESHOLD = 0.0f;
 
-    private DotState[][] mDotStates;
+    // How far ahead of the last touch sample the finger is predicted, until the refresh rate of
+    // the display is known
+    private static final int DEFAULT_PREDICTION_HORIZON = 16;
+
+    // Past this many dots (a 6x6 matrix) the view switches to its large grid mode, where dots
+    // and path ends are no longer animated one by one
+    private static final int LARGE_GRID_THRESHOLD = 36;
+
+    // Trace section and counter names, see PatternLockTracing
+    private static final String TRACE_DRAW = "PatternLockView#onDraw";
+    private static final String TRACE_ACTION_DOWN = "PatternLockView#handleActionDown";
+    private static final String TRACE_ACTION_MOVE = "PatternLockView#handleActionMove";
+    private static final String TRACE_ACTION_UP = "PatternLockView#handleActionUp";
+    private static final String TRACE_NOTIFY_STARTED = "PatternLockView#notifyListenersStarted";
+    private static final String TRACE_NOTIFY_PROGRESS = "PatternLockView#notifyListenersProgress";
+    private static final String TRACE_NOTIFY_COMPLETE = "PatternLockView#notifyListenersComplete";
+    private static final String TRACE_NOTIFY_CLEARED = "PatternLockView#notifyListenersCleared";
+    private static final String TRACE_PATTERN_LENGTH = "PatternLockView#patternLength";
+    private static final String TRACE_ACTIVE_ANIMATORS = "PatternLockView#activeAnimators";
+
+    private final DotStates mDotStates = new DotStates();
+    // Every redraw is requested through this, so that each frame invalidates only what changed
+    private final DamageTracker mDamage = new DamageTracker(this);
+    // Plays the dot pulse on the RenderThread where supported, otherwise null
+    private RenderThreadDotPulses mDotPulses;
     private int mPatternSize;
-    private boolean mDrawingProfilingStarted = false;
+    private boolean mLargeGrid;
+    // Opt-in measurements, null unless set
+    private PatternLockMetrics mMetrics;
+    // Opt-in lowering of the quality on slow devices, null unless set
+    private PatternLockQualityController mQualityController;
+    // The tier applied to the paints and animations, which follows the controller at every draw
+    @QualityTier
+    private int mQualityTier = QualityTier.FULL;
+    // Opt-in extrapolation of the finger for the segment it drags
+    private boolean mLowLatencyInput;
+    private final TouchPredictor mTouchPredictor = new TouchPredictor();
+    private long mPredictionHorizon = DEFAULT_PREDICTION_HORIZON;
+    // Whether the segment is drawn to the predicted point rather than to the last sample
+    private boolean mPredicting;
+    private float mPredictedX;
+    private float mPredictedY;
+    private boolean mPredictionFramePosted;
+    private final Runnable mPredictionFrame = new Runnable() {
+
+        @Override
+        public void run() {
+            mPredictionFramePosted = false;
+            if (!mPredicting) {
+                return;
+            }
+            if (mFrameScheduler.uptimeMillis() - mTouchPredictor.getTime()
+                    > 2 * mPredictionHorizon) {
+                // The finger stopped, or its samples did, so the segment goes back to the last
+                // sample instead of staying ahead of it
+                stopPredicting();
+            } else {
+                postPredictionFrame();
+            }
+        }
+    };
+    // Opt-in recording of the gestures, null unless set
+    private GestureRecorder mGestureRecorder;
+    // The time of the ACTION_UP that completed the pattern, until the view mode is next set
+    private long mActionUpTime = -1;
+    // Every timing of the view goes through this, so that tests can step frames themselves
+    private final ViewFrameScheduler mDefaultFrameScheduler = new ViewFrameScheduler(this);
+    private PatternLockFrameScheduler mFrameScheduler = mDefaultFrameScheduler;
+    // The number of dot animations running, which are advanced by mDotAnimationFrame
+    private int mRunningDotAnimations;
+    private final Runnable mDotAnimationFrame = new Runnable() {
+
+        @Override
+        public void run() {
+            advanceDotAnimations(mFrameScheduler.uptimeMillis());
+            if (mRunningDotAnimations > 0) {
+                mFrameScheduler.postFrameCallback(this);
+            }
+        }
+    };
     private long mAnimatingPeriodStart;
-    private float mHitFactor = 0.6f;
+    // The number of dots lit by the AUTO_DRAW animation in the previous frame
+    private int mAutoDrawCircles;
+    // Built once per pattern and geometry, so that each frame only looks the time up
+    private final AutoDrawTimeline mAutoDrawTimeline = new AutoDrawTimeline();
+    private float mAutoDrawSpeed = DEFAULT_AUTO_DRAW_SPEED;
+    private int mAutoDrawPause;
+    private Interpolator mAutoDrawInterpolator;
+    private final Runnable mAutoDrawFrame = new Runnable() {
 
-    // Made static so that the static inner class can use it
-    private static int sDotCount;
+        @Override
+        public void run() {
+            if (mPatternViewMode == AUTO_DRAW && mPattern.size() > 0) {
+                updateAutoDraw();
+                mFrameScheduler.postFrameCallback(this);
+            }
+        }
+    };
+
+    // The size of the matrix the dots are identified in, and its dots by id. Each view has its
+    // own, as the id of a dot depends on the number of columns of its layout
+    private int mRowCount;
+    private int mColumnCount;
+    private Dot[] mDots = new Dot[0];
+    // The view that set its layout last, which the deprecated Dot.of() resolve dots against
+    private static WeakReference<PatternLockView> sLastLayoutView = new WeakReference<>(null);
 
     private boolean mAspectRatioEnabled;
     private int mAspectRatio;
@@ -126,6 +222,7 @@ public class PatternLockView extends View {
     private int mPathEndAnimationDuration;
 
     private Paint mDotPaint;
+    private DotBatch mDotBatch;
     private Paint mPathPaint;
 
     private List<PatternLockViewListener> mPatternListeners;
@@ -133,12 +230,13 @@ public class PatternLockView extends View {
     private ArrayList<Dot> mPattern;
 
     /**
-     * Lookup table for the dots of the pattern we are currently drawing.
-     * This will be the dots of the complete pattern unless we are animating,
-     * in which case we use this to hold the dots we are drawing for the in
-     * progress animation.
+     * The geometry of the dots and the gesture state machine driving the pattern. Its lookup
+     * table of visited dots holds the dots of the pattern we are currently drawing. This will be
+     * the dots of the complete pattern unless we are animating, in which case we use it to hold
+     * the dots we are drawing for the in progress animation.
      */
-    private boolean[][] mPatternDrawLookup;
+    private PatternLayout mLayout;
+    private PatternTracker mTracker;
 
     private float mInProgressX = -1;
     private float mInProgressY = -1;
@@ -149,92 +247,72 @@ public class PatternLockView extends View {
     private boolean mEnableHapticFeedback = true;
     private boolean mPatternInProgress = false;
 
-    private float mViewWidth;
-    private float mViewHeight;
-
     private final Path mCurrentPath = new Path();
     private final Rect mInvalidate = new Rect();
     private final Rect mTempInvalidateRect = new Rect();
+    private final Rect mClipBounds = new Rect();
 
     private Interpolator mFastOutSlowInInterpolator;
     private Interpolator mLinearOutSlowInInterpolator;
+    // The animations of each dot, created the first time the dot is selected and then reused,
+    // so that selecting dots doesn't allocate once every dot was animated
+    private DotSizeAnimation[] mDotSizeAnimations = new DotSizeAnimation[0];
+    private LineEndAnimation[] mLineEndAnimations = new LineEndAnimation[0];
+    private AccessibilityManager mAccessibilityManager;
 
     public PatternLockView(Context context) {
-        this(context, null);
+        this(context, (AttributeSet) null);
     }
 
     public PatternLockView(Context context, AttributeSet attrs) {
         super(context, attrs);
+        initView(PatternLockStyle.obtain(context, attrs));
+    }
 
-        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.PatternLockView);
-        try {
-            sDotCount = typedArray.getInt(R.styleable.PatternLockView_dotCount,
-                    DEFAULT_PATTERN_DOT_COUNT);
-            mAspectRatioEnabled = typedArray.getBoolean(R.styleable.PatternLockView_aspectRatioEnabled,
-                    false);
-            mAspectRatio = typedArray.getInt(R.styleable.PatternLockView_aspectRatio,
-                    ASPECT_RATIO_SQUARE);
-            mPathWidth = (int) typedArray.getDimension(R.styleable.PatternLockView_pathWidth,
-                    ResourceUtils.getDimensionInPx(getContext(), R.dimen.pattern_lock_path_width));
-            mNormalStateColor = typedArray.getColor(R.styleable.PatternLockView_normalStateColor,
-                    ResourceUtils.getColor(getContext(), R.color.white));
-            mCorrectStateColor = typedArray.getColor(R.styleable.PatternLockView_correctStateColor,
-                    ResourceUtils.getColor(getContext(), R.color.white));
-            mWrongStateColor = typedArray.getColor(R.styleable.PatternLockView_wrongStateColor,
-                    ResourceUtils.getColor(getContext(), R.color.pomegranate));
-            mDotNormalSize = (int) typedArray.getDimension(R.styleable.PatternLockView_dotNormalSize,
-                    ResourceUtils.getDimensionInPx(getContext(), R.dimen.pattern_lock_dot_size));
-            mDotSelectedSize = (int) typedArray.getDimension(R.styleable
-                            .PatternLockView_dotSelectedSize,
-                    ResourceUtils.getDimensionInPx(getContext(), R.dimen.pattern_lock_dot_selected_size));
-            mDotAnimationDuration = typedArray.getInt(R.styleable.PatternLockView_dotAnimationDuration,
-                    DEFAULT_DOT_ANIMATION_DURATION);
-            mPathEndAnimationDuration = typedArray.getInt(R.styleable.PatternLockView_pathEndAnimationDuration,
-                    DEFAULT_PATH_END_ANIMATION_DURATION);
-        } finally {
-            typedArray.recycle();
-        }
-
-        // The pattern will always be symmetrical
-        mPatternSize = sDotCount * sDotCount;
-        mPattern = new ArrayList<>(mPatternSize);
-        mPatternDrawLookup = new boolean[sDotCount][sDotCount];
+    /**
+     * Creates a view with a given style. Views sharing a style share the resources resolved for
+     * it, which makes this the cheapest way to create many views in code
+     */
+    public PatternLockView(Context context, PatternLockStyle style) {
+        super(context);
+        initView(style);
+    }
 
-        mDotStates = new DotState[sDotCount][sDotCount];
-        for (int i = 0; i < sDotCount; i++) {
-            for (int j = 0; j < sDotCount; j++) {
-                mDotStates[i][j] = new DotState();
-                mDotStates[i][j].mSize = mDotNormalSize;
-            }
-        }
+    private void initView(PatternLockStyle style) {
+        mAspectRatioEnabled = style.isAspectRatioEnabled();
+        mAspectRatio = style.getAspectRatio();
+        mPathWidth = style.getPathWidth();
+        mNormalStateColor = style.getNormalStateColor();
+        mCorrectStateColor = style.getCorrectStateColor();
+        mWrongStateColor = style.getWrongStateColor();
+        mDotNormalSize = style.getDotNormalSize();
+        mDotSelectedSize = style.getDotSelectedSize();
+        mDotAnimationDuration = style.getDotAnimationDuration();
+        mPathEndAnimationDuration = style.getPathEndAnimationDuration();
 
-        mPatternListeners = new ArrayList<>();
+        setDotLayoutInternal(new PatternGrid(style.getRowCount(), style.getColumnCount()));
 
-        initView();
-    }
+        cancelDotAnimations();
+        mDotStates.reset(mPatternSize, mDotNormalSize);
+
+        mPatternListeners = new ArrayList<>();
+        mAccessibilityManager = (AccessibilityManager) getContext().getSystemService(
+                Context.ACCESSIBILITY_SERVICE);
 
-    private void initView() {
         setClickable(true);
 
-        mPathPaint = new Paint();
-        mPathPaint.setAntiAlias(true);
-        mPathPaint.setDither(true);
-        mPathPaint.setColor(mNormalStateColor);
-        mPathPaint.setStyle(Paint.Style.STROKE);
-        mPathPaint.setStrokeJoin(Paint.Join.ROUND);
-        mPathPaint.setStrokeCap(Paint.Cap.ROUND);
-        mPathPaint.setStrokeWidth(mPathWidth);
+        mPathPaint = style.createPathPaint();
+        mDotPaint = style.createDotPaint();
+        mDotBatch = new DotBatch(mDotPaint);
 
-        mDotPaint = new Paint();
-        mDotPaint.setAntiAlias(true);
-        mDotPaint.setDither(true);
+        if (RenderThreadDotPulses.isSupported() && !isInEditMode()) {
+            mDotPulses = new RenderThreadDotPulses(this);
+        }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
-                && !isInEditMode()) {
-            mFastOutSlowInInterpolator = AnimationUtils.loadInterpolator(
-                    getContext(), android.R.interpolator.fast_out_slow_in);
-            mLinearOutSlowInInterpolator = AnimationUtils.loadInterpolator(
-                    getContext(), android.R.interpolator.linear_out_slow_in);
+        if (!isInEditMode()) {
+            mFastOutSlowInInterpolator = PatternLockStyle.getFastOutSlowInInterpolator(getContext());
+            mLinearOutSlowInInterpolator = PatternLockStyle.getLinearOutSlowInInterpolator(
+                    getContext());
         }
     }
 
@@ -273,59 +351,96 @@ public class PatternLockView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        ArrayList<Dot> pattern = mPattern;
-        int patternSize = pattern.size();
-        boolean[][] drawLookupTable = mPatternDrawLookup;
-
-        if (mPatternViewMode == AUTO_DRAW) {
-            int oneCycle = (patternSize + 1) * MILLIS_PER_CIRCLE_ANIMATING;
-            int spotInCycle = (int) (SystemClock.elapsedRealtime() - mAnimatingPeriodStart)
-                    % oneCycle;
-            int numCircles = spotInCycle / MILLIS_PER_CIRCLE_ANIMATING;
-
-            clearPatternDrawLookup();
-            for (int i = 0; i < numCircles; i++) {
-                Dot dot = pattern.get(i);
-                drawLookupTable[dot.mRow][dot.mColumn] = true;
+        boolean traced = PatternLockTracing.beginSection(TRACE_DRAW);
+        PatternLockMetrics metrics = mMetrics;
+        PatternLockQualityController qualityController = mQualityController;
+        if (qualityController != null) {
+            applyQualityTier(qualityController.getTier());
+        }
+        if (metrics == null && qualityController == null) {
+            drawPattern(canvas);
+        } else {
+            long startTime = System.nanoTime();
+            drawPattern(canvas);
+            long duration = System.nanoTime() - startTime;
+            if (metrics != null) {
+                metrics.onDraw(duration);
             }
-
-            boolean needToUpdateInProgressPoint = numCircles > 0
-                    && numCircles < patternSize;
-
-            if (needToUpdateInProgressPoint) {
-                float percentageOfNextCircle = ((float) (spotInCycle % MILLIS_PER_CIRCLE_ANIMATING))
-                        / MILLIS_PER_CIRCLE_ANIMATING;
-
-                Dot currentDot = pattern.get(numCircles - 1);
-                float centerX = getCenterXForColumn(currentDot.mColumn);
-                float centerY = getCenterYForRow(currentDot.mRow);
-
-                Dot nextDot = pattern.get(numCircles);
-                float dx = percentageOfNextCircle
-                        * (getCenterXForColumn(nextDot.mColumn) - centerX);
-                float dy = percentageOfNextCircle
-                        * (getCenterYForRow(nextDot.mRow) - centerY);
-                mInProgressX = centerX + dx;
-                mInProgressY = centerY + dy;
+            if (qualityController != null) {
+                qualityController.onDraw(duration);
             }
-            invalidate();
         }
+        PatternLockTracing.endSection(traced);
+    }
+
+    private void drawPattern(Canvas canvas) {
+        ArrayList<Dot> pattern = mPattern;
+        int patternSize = pattern.size();
+        PatternTracker drawLookupTable = mTracker;
 
         Path currentPath = mCurrentPath;
         currentPath.rewind();
 
-        // Draw the dots
-        for (int i = 0; i < sDotCount; i++) {
-            float centerY = getCenterYForRow(i);
-            for (int j = 0; j < sDotCount; j++) {
-                DotState dotState = mDotStates[i][j];
-                float centerX = getCenterXForColumn(j);
-                float size = dotState.mSize * dotState.mScale;
-                float translationY = dotState.mTranslateY;
-                drawCircle(canvas, (int) centerX, (int) centerY + translationY,
-                        size, drawLookupTable[i][j], dotState.mAlpha);
+        // Draw the dots, walking the state arrays in dot id order. Dots at rest are batched by
+        // color and alpha, while animating dots are drawn one by one. Dots entirely outside of
+        // the clip, which is the damaged area when drawing in software, are skipped
+        DotStates dotStates = mDotStates;
+        float[] sizes = dotStates.mSize;
+        float[] scales = dotStates.mScale;
+        float[] translations = dotStates.mTranslateY;
+        float[] alphas = dotStates.mAlpha;
+        DotBatch dotBatch = mDotBatch;
+        int normalColor = getCurrentColor(false);
+        int patternColor = getCurrentColor(true);
+        PatternLayout layout = mLayout;
+        Rect clip = mClipBounds;
+        canvas.getClipBounds(clip);
+        float dotRadius = Math.max(mDotNormalSize, mDotSelectedSize) / 2f;
+        // Dots still animating when the quality was lowered are drawn at rest
+        boolean batchAllDots = mQualityTier >= QualityTier.BATCHED_DOTS;
+
+        // On a matrix, only the rows and columns whose cells touch the clip are walked. Other
+        // layouts walk every dot, as a single row
+        int columnCount = mPatternSize;
+        int firstRow = 0;
+        int lastRow = 0;
+        int firstColumn = 0;
+        int lastColumn = mPatternSize - 1;
+        if (layout instanceof PatternGrid) {
+            PatternGrid grid = (PatternGrid) layout;
+            columnCount = grid.getColumnCount();
+            firstRow = grid.getRowAt(clip.top - dotRadius);
+            lastRow = grid.getRowAt(clip.bottom + dotRadius);
+            firstColumn = grid.getColumnAt(clip.left - dotRadius);
+            lastColumn = grid.getColumnAt(clip.right + dotRadius);
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int id = row * columnCount + column;
+                float centerX = layout.getDotCenterX(id);
+                float centerY = layout.getDotCenterY(id);
+                float drawnY = centerY + translations[id];
+                if (centerX + dotRadius < clip.left || centerX - dotRadius > clip.right
+                        || drawnY + dotRadius < clip.top || drawnY - dotRadius > clip.bottom) {
+                    continue;
+                }
+                boolean partOfPattern = drawLookupTable.isVisited(id);
+                int alpha = (int) (alphas[id] * 255);
+                if (!batchAllDots && mDotPulses != null && mDotPulses.draw(canvas, id, centerX,
+                        drawnY, partOfPattern ? patternColor : normalColor, alpha)) {
+                    continue;
+                }
+                float size = sizes[id] * scales[id];
+                if (batchAllDots || size == mDotNormalSize) {
+                    dotBatch.add((int) centerX, (int) centerY + translations[id],
+                            partOfPattern ? patternColor : normalColor, alpha);
+                } else {
+                    drawCircle(canvas, (int) centerX, (int) centerY + translations[id],
+                            size, partOfPattern, alphas[id]);
+                }
             }
         }
+        dotBatch.draw(canvas, mDotNormalSize);
 
         // Draw the path of the pattern (unless we are in stealth mode)
         boolean drawPath = !mInStealthMode;
@@ -341,57 +456,97 @@ public class PatternLockView extends View {
                 // Only draw the part of the pattern stored in
                 // the lookup table (this is only different in case
                 // of animation)
-                if (!drawLookupTable[dot.mRow][dot.mColumn]) {
+                if (!drawLookupTable.isVisited(dot.getId())) {
                     break;
                 }
                 anyCircles = true;
 
-                float centerX = getCenterXForColumn(dot.mColumn);
-                float centerY = getCenterYForRow(dot.mRow);
+                float centerX = getCenterX(dot.getId());
+                float centerY = getCenterY(dot.getId());
                 if (i != 0) {
-                    DotState state = mDotStates[dot.mRow][dot.mColumn];
-                    currentPath.rewind();
+                    // Every segment is a contour of its own, and all of them are drawn at once
+                    int dotId = dot.getId();
+                    float lineEndX = dotStates.mLineEndX[dotId];
+                    float lineEndY = dotStates.mLineEndY[dotId];
                     currentPath.moveTo(lastX, lastY);
-                    if (state.mLineEndX != Float.MIN_VALUE
-                            && state.mLineEndY != Float.MIN_VALUE) {
-                        currentPath.lineTo(state.mLineEndX, state.mLineEndY);
+                    if (lineEndX != DotStates.NO_LINE_END
+                            && lineEndY != DotStates.NO_LINE_END) {
+                        currentPath.lineTo(lineEndX, lineEndY);
                     } else {
                         currentPath.lineTo(centerX, centerY);
                     }
-                    canvas.drawPath(currentPath, mPathPaint);
                 }
                 lastX = centerX;
                 lastY = centerY;
             }
+            if (!currentPath.isEmpty()) {
+                canvas.drawPath(currentPath, mPathPaint);
+            }
 
             // Draw last in progress section
             if ((mPatternInProgress || mPatternViewMode == AUTO_DRAW)
                     && anyCircles) {
+                float endX = mPredicting ? mPredictedX : mInProgressX;
+                float endY = mPredicting ? mPredictedY : mInProgressY;
                 currentPath.rewind();
                 currentPath.moveTo(lastX, lastY);
-                currentPath.lineTo(mInProgressX, mInProgressY);
+                currentPath.lineTo(endX, endY);
 
-                mPathPaint.setAlpha((int) (calculateLastSegmentAlpha(
-                        mInProgressX, mInProgressY, lastX, lastY) * 255f));
+                mPathPaint.setAlpha(mQualityTier >= QualityTier.SIMPLE_RUBBER_BAND
+                        ? calculateLastSegmentAlphaStep(endX, endY, lastX, lastY)
+                        : (int) (calculateLastSegmentAlpha(endX, endY, lastX, lastY) * 255f));
                 canvas.drawPath(currentPath, mPathPaint);
             }
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mDamage.attach();
+        mDefaultFrameScheduler.updateAnimatorDurationScale();
+        if (mQualityController != null) {
+            mQualityController.onAttached(this);
+        }
+        updatePredictionHorizon();
+        startAutoDraw();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mFrameScheduler.removeFrameCallback(mAutoDrawFrame);
+        mFrameScheduler.removeFrameCallback(mPredictionFrame);
+        mPredictionFramePosted = false;
+        mDamage.detach();
+        if (mQualityController != null) {
+            mQualityController.onDetached();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return super.verifyDrawable(who) || (mDotPulses != null && mDotPulses.owns(who));
+    }
+
     @Override
     protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
-        int adjustedWidth = width - getPaddingLeft() - getPaddingRight();
-        mViewWidth = adjustedWidth / (float) sDotCount;
+        updateGridBounds(width, height);
+    }
 
-        int adjustedHeight = height - getPaddingTop() - getPaddingBottom();
-        mViewHeight = adjustedHeight / (float) sDotCount;
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        // A change of padding only requests a layout, so the geometry is refreshed here too. The
+        // grid ignores bounds that did not change
+        updateGridBounds(getWidth(), getHeight());
     }
 
     @Override
     protected Parcelable onSaveInstanceState() {
         Parcelable superState = super.onSaveInstanceState();
         return new SavedState(superState,
-                PatternLockUtils.patternToString(this, mPattern),
+                PatternLockUtils.patternToWide(mPattern),
                 mPatternViewMode, mInputEnabled, mInStealthMode,
                 mEnableHapticFeedback);
     }
@@ -401,7 +556,7 @@ public class PatternLockView extends View {
         final SavedState savedState = (SavedState) state;
         super.onRestoreInstanceState(savedState.getSuperState());
         setPattern(CORRECT,
-                PatternLockUtils.stringToPattern(this, savedState.getSerializedPattern()));
+                PatternLockUtils.wideToPattern(this, savedState.getPackedPattern()));
         mPatternViewMode = savedState.getDisplayMode();
         mInputEnabled = savedState.isInputEnabled();
         mInStealthMode = savedState.isInStealthMode();
@@ -410,8 +565,7 @@ public class PatternLockView extends View {
 
     @Override
     public boolean onHoverEvent(MotionEvent event) {
-        if (((AccessibilityManager) getContext().getSystemService(
-                Context.ACCESSIBILITY_SERVICE)).isTouchExplorationEnabled()) {
+        if (mAccessibilityManager.isTouchExplorationEnabled()) {
             final int action = event.getAction();
             switch (action) {
                 case MotionEvent.ACTION_HOVER_ENTER:
@@ -435,28 +589,31 @@ public class PatternLockView extends View {
         if (!mInputEnabled || !isEnabled()) {
             return false;
         }
+        if (mGestureRecorder != null) {
+            mGestureRecorder.record(this, event);
+        }
 
+        boolean traced;
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
+                traced = PatternLockTracing.beginSection(TRACE_ACTION_DOWN);
                 handleActionDown(event);
+                PatternLockTracing.endSection(traced);
                 return true;
             case MotionEvent.ACTION_UP:
+                traced = PatternLockTracing.beginSection(TRACE_ACTION_UP);
                 handleActionUp(event);
+                PatternLockTracing.endSection(traced);
                 return true;
             case MotionEvent.ACTION_MOVE:
+                traced = PatternLockTracing.beginSection(TRACE_ACTION_MOVE);
                 handleActionMove(event);
+                PatternLockTracing.endSection(traced);
                 return true;
             case MotionEvent.ACTION_CANCEL:
                 mPatternInProgress = false;
                 resetPattern();
                 notifyPatternCleared();
-
-                if (PROFILE_DRAWING) {
-                    if (mDrawingProfilingStarted) {
-                        Debug.stopMethodTracing();
-                        mDrawingProfilingStarted = false;
-                    }
-                }
                 return true;
         }
         return false;
@@ -488,8 +645,55 @@ public class PatternLockView extends View {
         return mInputEnabled;
     }
 
+    /**
+     * The number of dots in a row of the matrix, see {@link #getColumnCount()}
+     */
     public int getDotCount() {
-        return sDotCount;
+        return mColumnCount;
+    }
+
+    /**
+     * The number of rows of the matrix. Dots of a layout that is not a {@link PatternGrid} are
+     * all in a single row
+     */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    public int getColumnCount() {
+        return mColumnCount;
+    }
+
+    /**
+     * Gets a dot of this view from its identifier
+     */
+    public Dot getDot(int id) {
+        if (id < 0 || id > mDots.length - 1) {
+            throw new IllegalArgumentException("id must be in range 0-" + (mDots.length - 1));
+        }
+        return mDots[id];
+    }
+
+    /**
+     * @param row    The row of the dot
+     * @param column The column of the dot
+     */
+    public Dot getDot(int row, int column) {
+        if (row < 0 || row > mRowCount - 1) {
+            throw new IllegalArgumentException("mRow must be in range 0-" + (mRowCount - 1));
+        }
+        if (column < 0 || column > mColumnCount - 1) {
+            throw new IllegalArgumentException("mColumn must be in range 0-"
+                    + (mColumnCount - 1));
+        }
+        return mDots[row * mColumnCount + column];
+    }
+
+    /**
+     * The layout of the dots, which maps dot ids to their position in the view
+     */
+    public PatternLayout getDotLayout() {
+        return mLayout;
     }
 
     public boolean isAspectRatioEnabled() {
@@ -529,6 +733,14 @@ public class PatternLockView extends View {
         return mPatternSize;
     }
 
+    /**
+     * Whether the view has too many dots to animate them one by one. Selected dots then change
+     * color without pulsing and the path is drawn straight to their centers
+     */
+    public boolean isLargeGrid() {
+        return mLargeGrid;
+    }
+
     public int getDotAnimationDuration() {
         return mDotAnimationDuration;
     }
@@ -547,10 +759,11 @@ public class PatternLockView extends View {
     public void setPattern(@PatternViewMode int patternViewMode, List<Dot> pattern) {
         mPattern.clear();
         mPattern.addAll(pattern);
-        clearPatternDrawLookup();
+        mTracker.clear();
         for (Dot dot : pattern) {
-            mPatternDrawLookup[dot.mRow][dot.mColumn] = true;
+            mTracker.add(dot.getId());
         }
+        PatternLockTracing.setCounter(TRACE_PATTERN_LENGTH, mPattern.size());
         setViewMode(patternViewMode);
     }
 
@@ -560,6 +773,11 @@ public class PatternLockView extends View {
      * in progress result to correct or wrong.
      */
     public void setViewMode(@PatternViewMode int patternViewMode) {
+        if (mActionUpTime >= 0 && mMetrics != null) {
+            mMetrics.onViewModeChanged(TimeUnit.MILLISECONDS.toNanos(
+                    mFrameScheduler.uptimeMillis() - mActionUpTime));
+        }
+        mActionUpTime = -1;
         mPatternViewMode = patternViewMode;
         if (patternViewMode == AUTO_DRAW) {
             if (mPattern.size() == 0) {
@@ -567,41 +785,92 @@ public class PatternLockView extends View {
                         "you must have a pattern to "
                                 + "animate if you want to set the display mode to animate");
             }
-            mAnimatingPeriodStart = SystemClock.elapsedRealtime();
-            final Dot first = mPattern.get(0);
-            mInProgressX = getCenterXForColumn(first.mColumn);
-            mInProgressY = getCenterYForRow(first.mRow);
-            clearPatternDrawLookup();
+            mAnimatingPeriodStart = mFrameScheduler.uptimeMillis();
+            buildAutoDrawTimeline();
         }
-        invalidate();
+        startAutoDraw();
+        mDamage.addAll();
     }
 
-    public void setDotCount(int dotCount) {
-        sDotCount = dotCount;
-        mPatternSize = sDotCount * sDotCount;
-        mPattern = new ArrayList<>(mPatternSize);
-        mPatternDrawLookup = new boolean[sDotCount][sDotCount];
+    /**
+     * Sets the speed of the path drawn in the AUTO_DRAW mode. The path moves at this speed
+     * whatever the length of a segment, so that a long diagonal takes longer than a step to a
+     * neighbour. A running animation starts over
+     *
+     * @param cellsPerSecond The speed in cell widths per second, greater than 0
+     */
+    public void setAutoDrawSpeed(float cellsPerSecond) {
+        if (!(cellsPerSecond > 0f)) {
+            throw new IllegalArgumentException("Speed must be greater than 0");
+        }
+        mAutoDrawSpeed = cellsPerSecond;
+        restartAutoDraw();
+    }
 
-        mDotStates = new DotState[sDotCount][sDotCount];
-        for (int i = 0; i < sDotCount; i++) {
-            for (int j = 0; j < sDotCount; j++) {
-                mDotStates[i][j] = new DotState();
-                mDotStates[i][j].mSize = mDotNormalSize;
-            }
+    public float getAutoDrawSpeed() {
+        return mAutoDrawSpeed;
+    }
+
+    /**
+     * Sets the time the path drawn in the AUTO_DRAW mode waits on each dot it reaches, which is
+     * {@code 0} by default. A running animation starts over
+     */
+    public void setAutoDrawPause(int pauseMillis) {
+        if (pauseMillis < 0) {
+            throw new IllegalArgumentException("Pause must not be negative");
         }
+        mAutoDrawPause = pauseMillis;
+        restartAutoDraw();
+    }
+
+    public int getAutoDrawPause() {
+        return mAutoDrawPause;
+    }
+
+    /**
+     * Sets the easing of each segment of the path drawn in the AUTO_DRAW mode. A running
+     * animation starts over
+     *
+     * @param interpolator The easing, or {@code null} for a constant speed, the default
+     */
+    public void setAutoDrawInterpolator(@Nullable Interpolator interpolator) {
+        mAutoDrawInterpolator = interpolator;
+        restartAutoDraw();
+    }
 
-        requestLayout();
-        invalidate();
+    @Nullable
+    public Interpolator getAutoDrawInterpolator() {
+        return mAutoDrawInterpolator;
+    }
+
+    /**
+     * Starts a batch of changes to the configuration of the view. Nothing is applied until
+     * {@link Editor#apply()} is called, which then reallocates, lays out and invalidates the view
+     * at most once for the whole batch. Prefer this over the individual setters when changing
+     * several properties at once
+     */
+    public Editor edit() {
+        return new Editor();
+    }
+
+    public void setDotCount(int dotCount) {
+        edit().setDotCount(dotCount).apply();
+    }
+
+    public void setMatrixSize(int rowCount, int columnCount) {
+        edit().setMatrixSize(rowCount, columnCount).apply();
+    }
+
+    public void setDotLayout(@NonNull PatternLayout layout) {
+        edit().setDotLayout(layout).apply();
     }
 
     public void setAspectRatioEnabled(boolean aspectRatioEnabled) {
-        mAspectRatioEnabled = aspectRatioEnabled;
-        requestLayout();
+        edit().setAspectRatioEnabled(aspectRatioEnabled).apply();
     }
 
     public void setAspectRatio(@AspectRatio int aspectRatio) {
-        mAspectRatio = aspectRatio;
-        requestLayout();
+        edit().setAspectRatio(aspectRatio).apply();
     }
 
     public void setNormalStateColor(@ColorInt int normalStateColor) {
@@ -617,23 +886,11 @@ public class PatternLockView extends View {
     }
 
     public void setPathWidth(@Dimension int pathWidth) {
-        mPathWidth = pathWidth;
-
-        initView();
-        invalidate();
+        edit().setPathWidth(pathWidth).apply();
     }
 
     public void setDotNormalSize(@Dimension int dotNormalSize) {
-        mDotNormalSize = dotNormalSize;
-
-        for (int i = 0; i < sDotCount; i++) {
-            for (int j = 0; j < sDotCount; j++) {
-                mDotStates[i][j] = new DotState();
-                mDotStates[i][j].mSize = mDotNormalSize;
-            }
-        }
-
-        invalidate();
+        edit().setDotNormalSize(dotNormalSize).apply();
     }
 
     public void setDotSelectedSize(@Dimension int dotSelectedSize) {
@@ -642,7 +899,6 @@ public class PatternLockView extends View {
 
     public void setDotAnimationDuration(int dotAnimationDuration) {
         mDotAnimationDuration = dotAnimationDuration;
-        invalidate();
     }
 
     public void setPathEndAnimationDuration(int pathEndAnimationDuration) {
@@ -674,6 +930,118 @@ public class PatternLockView extends View {
         mEnableHapticFeedback = enableHapticFeedback;
     }
 
+    /**
+     * Starts reporting render and input measurements to the given metrics, or stops with
+     * {@code null}. Without metrics, the view measures nothing
+     */
+    public void setMetrics(@Nullable PatternLockMetrics metrics) {
+        mMetrics = metrics;
+        mDamage.setMetrics(metrics);
+    }
+
+    @Nullable
+    public PatternLockMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Lets the given controller lower the quality of the rendering while frames are too slow,
+     * and raise it back once there is headroom. Pass {@code null} to always draw at the full
+     * quality
+     */
+    public void setQualityController(@Nullable PatternLockQualityController qualityController) {
+        if (mQualityController != null) {
+            mQualityController.onDetached();
+        }
+        mQualityController = qualityController;
+        if (qualityController != null && getWindowToken() != null) {
+            qualityController.onAttached(this);
+        }
+        applyQualityTier(qualityController != null
+                ? qualityController.getTier() : QualityTier.FULL);
+        mDamage.addAll();
+    }
+
+    @Nullable
+    public PatternLockQualityController getQualityController() {
+        return mQualityController;
+    }
+
+    /**
+     * The quality tier the view currently draws at
+     */
+    @QualityTier
+    public int getQualityTier() {
+        return mQualityTier;
+    }
+
+    /**
+     * Lowers the latency of the segment dragged by the finger. Touch events are then requested
+     * as soon as they are sampled rather than batched once per frame, from API 21, and the
+     * segment is drawn to where the finger is predicted to be when the frame is shown. Dots are
+     * only ever selected from the actual samples
+     */
+    public void setLowLatencyInputEnabled(boolean lowLatencyInput) {
+        mLowLatencyInput = lowLatencyInput;
+        if (!lowLatencyInput) {
+            stopPredicting();
+        }
+        updatePredictionHorizon();
+    }
+
+    public boolean isLowLatencyInputEnabled() {
+        return mLowLatencyInput;
+    }
+
+    /**
+     * Records every gesture handled by the view, so that it can be replayed later. Pass
+     * {@code null} to stop recording
+     */
+    public void setGestureRecorder(@Nullable GestureRecorder gestureRecorder) {
+        mGestureRecorder = gestureRecorder;
+    }
+
+    @Nullable
+    public GestureRecorder getGestureRecorder() {
+        return mGestureRecorder;
+    }
+
+    /**
+     * Routes every timing of the view through the given scheduler: the animations of the dots,
+     * the AUTO_DRAW mode and the latencies reported to the metrics. Touch events must then be
+     * timed by its clock too. Pass {@code null} to go back to the frames and clock of the device.
+     * <p>
+     * With a {@link ManualFrameScheduler}, tests step through animations instantly and exactly
+     * instead of waiting for them. Dot pulses are not played on the RenderThread meanwhile.
+     */
+    public void setFrameScheduler(@Nullable PatternLockFrameScheduler frameScheduler) {
+        PatternLockFrameScheduler newScheduler =
+                frameScheduler != null ? frameScheduler : mDefaultFrameScheduler;
+        if (newScheduler == mFrameScheduler) {
+            return;
+        }
+        // Running animations jump to their end, as they started on the old clock
+        advanceDotAnimations(Long.MAX_VALUE);
+        mFrameScheduler.removeFrameCallback(mAutoDrawFrame);
+        mFrameScheduler.removeFrameCallback(mPredictionFrame);
+        mPredictionFramePosted = false;
+        stopPredicting();
+        mFrameScheduler = newScheduler;
+        if (mPatternViewMode == AUTO_DRAW) {
+            mAnimatingPeriodStart = mFrameScheduler.uptimeMillis();
+        }
+        startAutoDraw();
+        mDamage.addAll();
+    }
+
+    /**
+     * The scheduler timing the view, which is the one of the device unless one was set
+     */
+    @NonNull
+    public PatternLockFrameScheduler getFrameScheduler() {
+        return mFrameScheduler;
+    }
+
     public void addPatternLockListener(PatternLockViewListener patternListener) {
         mPatternListeners.add(patternListener);
     }
@@ -724,50 +1092,214 @@ public class PatternLockView extends View {
     }
 
     private void resetPattern() {
+        mPredicting = false;
         mPattern.clear();
-        clearPatternDrawLookup();
+        mTracker.clear();
+        PatternLockTracing.setCounter(TRACE_PATTERN_LENGTH, 0);
         mPatternViewMode = CORRECT;
-        invalidate();
+        mDamage.addAll();
     }
 
     private void notifyListenersStarted() {
-        for (PatternLockViewListener patternListener : mPatternListeners) {
+        boolean traced = PatternLockTracing.beginSection(TRACE_NOTIFY_STARTED);
+        long startTime = mMetrics != null ? System.nanoTime() : 0;
+        // Indexed, as an iterator would be allocated for every event
+        for (int i = 0; i < mPatternListeners.size(); i++) {
+            PatternLockViewListener patternListener = mPatternListeners.get(i);
             if (patternListener != null) {
                 patternListener.onStarted();
             }
         }
+        onListenersDispatched(startTime);
+        PatternLockTracing.endSection(traced);
     }
 
     private void notifyListenersProgress(List<Dot> pattern) {
-        for (PatternLockViewListener patternListener : mPatternListeners) {
+        boolean traced = PatternLockTracing.beginSection(TRACE_NOTIFY_PROGRESS);
+        long startTime = mMetrics != null ? System.nanoTime() : 0;
+        // Indexed, as an iterator would be allocated for every event
+        for (int i = 0; i < mPatternListeners.size(); i++) {
+            PatternLockViewListener patternListener = mPatternListeners.get(i);
             if (patternListener != null) {
                 patternListener.onProgress(pattern);
             }
         }
+        onListenersDispatched(startTime);
+        PatternLockTracing.endSection(traced);
     }
 
     private void notifyListenersComplete(List<Dot> pattern) {
-        for (PatternLockViewListener patternListener : mPatternListeners) {
+        boolean traced = PatternLockTracing.beginSection(TRACE_NOTIFY_COMPLETE);
+        long startTime = mMetrics != null ? System.nanoTime() : 0;
+        // Indexed, as an iterator would be allocated for every event
+        for (int i = 0; i < mPatternListeners.size(); i++) {
+            PatternLockViewListener patternListener = mPatternListeners.get(i);
             if (patternListener != null) {
                 patternListener.onComplete(pattern);
             }
         }
+        onListenersDispatched(startTime);
+        PatternLockTracing.endSection(traced);
     }
 
     private void notifyListenersCleared() {
-        for (PatternLockViewListener patternListener : mPatternListeners) {
+        boolean traced = PatternLockTracing.beginSection(TRACE_NOTIFY_CLEARED);
+        long startTime = mMetrics != null ? System.nanoTime() : 0;
+        // Indexed, as an iterator would be allocated for every event
+        for (int i = 0; i < mPatternListeners.size(); i++) {
+            PatternLockViewListener patternListener = mPatternListeners.get(i);
             if (patternListener != null) {
                 patternListener.onCleared();
             }
         }
+        onListenersDispatched(startTime);
+        PatternLockTracing.endSection(traced);
     }
 
-    private void clearPatternDrawLookup() {
-        for (int i = 0; i < sDotCount; i++) {
-            for (int j = 0; j < sDotCount; j++) {
-                mPatternDrawLookup[i][j] = false;
+    private void onListenersDispatched(long startTime) {
+        // Listeners may have set the metrics themselves, in which case there is no start time
+        if (mMetrics != null && startTime != 0) {
+            mMetrics.onListenersDispatched(System.nanoTime() - startTime);
+        }
+    }
+
+    private void onAnimatorStarted() {
+        if (mMetrics != null) {
+            mMetrics.onAnimatorStarted();
+        }
+    }
+
+    /**
+     * Counts a dot animation that starts, and schedules the frames advancing it. Pulses played on
+     * the RenderThread are not counted, as they don't run on the main thread
+     */
+    private void onDotAnimationStarted() {
+        onAnimatorStarted();
+        if (mRunningDotAnimations++ == 0) {
+            mFrameScheduler.postFrameCallback(mDotAnimationFrame);
+        }
+        PatternLockTracing.setCounter(TRACE_ACTIVE_ANIMATORS, mRunningDotAnimations);
+    }
+
+    private void onDotAnimationEnded() {
+        if (--mRunningDotAnimations == 0) {
+            mFrameScheduler.removeFrameCallback(mDotAnimationFrame);
+        }
+        PatternLockTracing.setCounter(TRACE_ACTIVE_ANIMATORS, mRunningDotAnimations);
+    }
+
+    /**
+     * Applies the frame of the given time to every running dot animation
+     */
+    private void advanceDotAnimations(long time) {
+        for (DotSizeAnimation animation : mDotSizeAnimations) {
+            if (animation != null && animation.isRunning()) {
+                animation.advance(time);
+            }
+        }
+        for (LineEndAnimation animation : mLineEndAnimations) {
+            if (animation != null && animation.isRunning()) {
+                animation.advance(time);
+            }
+        }
+    }
+
+    /**
+     * Advances the AUTO_DRAW animation to the current time, damaging the dots and segments that
+     * change since the previous frame
+     */
+    private void updateAutoDraw() {
+        ArrayList<Dot> pattern = mPattern;
+        PatternTracker drawLookupTable = mTracker;
+        if (mAutoDrawTimeline.isStale(mLayout)) {
+            // The dots moved, or the state was restored, so the timeline is laid out again
+            // without starting over
+            buildAutoDrawTimeline();
+        }
+        mAutoDrawTimeline.seek(mFrameScheduler.uptimeMillis() - mAnimatingPeriodStart);
+        int numCircles = mAutoDrawTimeline.getReachedCount();
+
+        if (numCircles < mAutoDrawCircles) {
+            // A new cycle started, so the whole pattern is cleared
+            mDamage.addAll();
+            clearPatternDrawLookup();
+            for (int i = 0; i < numCircles; i++) {
+                drawLookupTable.setVisited(pattern.get(i).getId(), true);
             }
+        } else {
+            // Only the dots reached since the previous frame are added to the lookup table
+            damageInProgressSegment(mAutoDrawCircles);
+            float dotRadius = Math.max(mDotNormalSize, mDotSelectedSize) / 2f;
+            for (int i = mAutoDrawCircles; i < numCircles; i++) {
+                Dot dot = pattern.get(i);
+                float centerX = getCenterX(dot.getId());
+                float centerY = getCenterY(dot.getId());
+                drawLookupTable.setVisited(dot.getId(), true);
+                mDamage.addCircle(centerX, centerY, dotRadius);
+                if (i > 0) {
+                    Dot previousDot = pattern.get(i - 1);
+                    mDamage.addSegment(getCenterX(previousDot.getId()),
+                            getCenterY(previousDot.getId()), centerX, centerY, mPathWidth);
+                }
+            }
+        }
+
+        mInProgressX = mAutoDrawTimeline.getX();
+        mInProgressY = mAutoDrawTimeline.getY();
+        damageInProgressSegment(numCircles);
+        mAutoDrawCircles = numCircles;
+    }
+
+    /**
+     * Lays the AUTO_DRAW animation out for the current pattern and geometry, and clears the dots
+     * it lit so far
+     */
+    private void buildAutoDrawTimeline() {
+        mAutoDrawTimeline.build(mLayout, mPattern, mAutoDrawSpeed, mAutoDrawPause,
+                MILLIS_PER_CIRCLE_ANIMATING, mAutoDrawInterpolator);
+        final Dot first = mPattern.get(0);
+        mInProgressX = getCenterX(first.getId());
+        mInProgressY = getCenterY(first.getId());
+        mAutoDrawCircles = 0;
+        clearPatternDrawLookup();
+        mDamage.addAll();
+    }
+
+    private void restartAutoDraw() {
+        if (mPatternViewMode == AUTO_DRAW && mPattern.size() > 0) {
+            mAnimatingPeriodStart = mFrameScheduler.uptimeMillis();
+            buildAutoDrawTimeline();
+            startAutoDraw();
+        }
+    }
+
+    /**
+     * Damages the segment from the last drawn dot to the in progress point
+     */
+    private void damageInProgressSegment(int numCircles) {
+        if (numCircles <= 0) {
+            return;
         }
+        Dot lastDot = mPattern.get(numCircles - 1);
+        mDamage.addSegment(getCenterX(lastDot.getId()), getCenterY(lastDot.getId()),
+                mInProgressX, mInProgressY, mPathWidth);
+    }
+
+    private void startAutoDraw() {
+        mFrameScheduler.removeFrameCallback(mAutoDrawFrame);
+        if (mPatternViewMode == AUTO_DRAW && mPattern.size() > 0) {
+            mFrameScheduler.postFrameCallback(mAutoDrawFrame);
+        }
+    }
+
+    private void clearPatternDrawLookup() {
+        mTracker.clearVisited();
+    }
+
+    private void updateGridBounds(int width, int height) {
+        int adjustedWidth = width - getPaddingLeft() - getPaddingRight();
+        int adjustedHeight = height - getPaddingTop() - getPaddingBottom();
+        mLayout.setBounds(getPaddingLeft(), getPaddingTop(), adjustedWidth, adjustedHeight);
     }
 
     /**
@@ -775,39 +1307,25 @@ public class PatternLockView extends View {
      * pattern (in addition to finding the dot, also makes heuristic choices
      * such as filling in gaps based on current pattern).
      *
-     * @param x The x coordinate
-     * @param y The y coordinate
+     * @param x         The x coordinate
+     * @param y         The y coordinate
+     * @param eventTime The time the touch sample was taken, in the
+     *                  time base of the frame scheduler
      */
-    private Dot detectAndAddHit(float x, float y) {
-        final Dot dot = checkForNewHit(x, y);
-        if (dot != null) {
+    private Dot detectAndAddHit(float x, float y, long eventTime) {
+        final int id = mTracker.checkForNewHit(x, y);
+        if (id >= 0) {
             // Check for gaps in existing pattern
-            Dot fillInGapDot = null;
-            final ArrayList<Dot> pattern = mPattern;
-            if (!pattern.isEmpty()) {
-                Dot lastDot = pattern.get(pattern.size() - 1);
-                int dRow = dot.mRow - lastDot.mRow;
-                int dColumn = dot.mColumn - lastDot.mColumn;
-
-                int fillInRow = lastDot.mRow;
-                int fillInColumn = lastDot.mColumn;
-
-                if (Math.abs(dRow) == 2 && Math.abs(dColumn) != 1) {
-                    fillInRow = lastDot.mRow + ((dRow > 0) ? 1 : -1);
-                }
-
-                if (Math.abs(dColumn) == 2 && Math.abs(dRow) != 1) {
-                    fillInColumn = lastDot.mColumn + ((dColumn > 0) ? 1 : -1);
-                }
-
-                fillInGapDot = Dot.of(fillInRow, fillInColumn);
-            }
-
-            if (fillInGapDot != null
-                    && !mPatternDrawLookup[fillInGapDot.mRow][fillInGapDot.mColumn]) {
-                addCellToPattern(fillInGapDot);
+            final int fillInGapId = mTracker.getGapFill(id);
+            if (fillInGapId >= 0) {
+                addCellToPattern(mDots[fillInGapId]);
             }
+            final Dot dot = mDots[id];
             addCellToPattern(dot);
+            if (mMetrics != null) {
+                mMetrics.onDotAdded(TimeUnit.MILLISECONDS.toNanos(
+                        mFrameScheduler.uptimeMillis() - eventTime));
+            }
             if (mEnableHapticFeedback) {
                 performHapticFeedback(HapticFeedbackConstants.VIRTUAL_KEY,
                         HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING
@@ -819,8 +1337,9 @@ public class PatternLockView extends View {
     }
 
     private void addCellToPattern(Dot newDot) {
-        mPatternDrawLookup[newDot.mRow][newDot.mColumn] = true;
+        mTracker.add(newDot.getId());
         mPattern.add(newDot);
+        PatternLockTracing.setCounter(TRACE_PATTERN_LENGTH, mPattern.size());
         if (!mInStealthMode) {
             startDotSelectedAnimation(newDot);
         }
@@ -828,140 +1347,66 @@ public class PatternLockView extends View {
     }
 
     private void startDotSelectedAnimation(Dot dot) {
-        final DotState dotState = mDotStates[dot.mRow][dot.mColumn];
-        startSizeAnimation(mDotNormalSize, mDotSelectedSize, mDotAnimationDuration,
-                mLinearOutSlowInInterpolator, dotState, new Runnable() {
-
-                    @Override
-                    public void run() {
-                        startSizeAnimation(mDotSelectedSize, mDotNormalSize, mDotAnimationDuration,
-                                mFastOutSlowInInterpolator, dotState, null);
-                    }
-                });
-        startLineEndAnimation(dotState, mInProgressX, mInProgressY,
-                getCenterXForColumn(dot.mColumn), getCenterYForRow(dot.mRow));
-    }
-
-    private void startLineEndAnimation(final DotState state,
-                                       final float startX, final float startY, final float targetX,
-                                       final float targetY) {
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(0, 1);
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float t = (Float) animation.getAnimatedValue();
-                state.mLineEndX = (1 - t) * startX + t * targetX;
-                state.mLineEndY = (1 - t) * startY + t * targetY;
-                invalidate();
-            }
-
-        });
-        valueAnimator.addListener(new AnimatorListenerAdapter() {
-
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                state.mLineAnimator = null;
-            }
-
-        });
-        valueAnimator.setInterpolator(mFastOutSlowInInterpolator);
-        valueAnimator.setDuration(mPathEndAnimationDuration);
-        valueAnimator.start();
-        state.mLineAnimator = valueAnimator;
-    }
-
-    private void startSizeAnimation(float start, float end, long duration,
-                                    Interpolator interpolator, final DotState state,
-                                    final Runnable endRunnable) {
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(start, end);
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                state.mSize = (Float) animation.getAnimatedValue();
-                invalidate();
-            }
-
-        });
-        if (endRunnable != null) {
-            valueAnimator.addListener(new AnimatorListenerAdapter() {
-
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    if (endRunnable != null) {
-                        endRunnable.run();
-                    }
-                }
-            });
+        final int dotId = dot.getId();
+        int previousIndex = mPattern.size() - 2;
+        Dot previousDot = previousIndex >= 0 ? mPattern.get(previousIndex) : dot;
+        if (mLargeGrid || mQualityTier >= QualityTier.BATCHED_DOTS) {
+            // Only the color of the dot and the new segment change
+            mDamage.addCircle(getCenterX(dotId), getCenterY(dotId), mDotNormalSize / 2f);
+            mDamage.addSegment(getCenterX(previousDot.getId()), getCenterY(previousDot.getId()),
+                    getCenterX(dotId), getCenterY(dotId), mPathWidth);
+            return;
+        }
+        if (mQualityTier >= QualityTier.NO_DOT_PULSE) {
+            // Only the color of the dot changes
+            mDamage.addCircle(getCenterX(dotId), getCenterY(dotId), mDotNormalSize / 2f);
+        } else if (mDotPulses != null && mFrameScheduler == mDefaultFrameScheduler
+                && isHardwareAccelerated() && mDotPulses.isCompatible(
+                mDotNormalSize, mDotSelectedSize, mDotAnimationDuration)) {
+            // Pulses play on the RenderThread, where a custom frame scheduler can't step them
+            mDotPulses.start(dotId, mPatternSize);
+            onAnimatorStarted();
+            mDamage.addCircle(getCenterX(dot.getId()), getCenterY(dot.getId()),
+                    mDotSelectedSize / 2f);
+        } else {
+            startDotSizeAnimation(dotId);
         }
-        valueAnimator.setInterpolator(interpolator);
-        valueAnimator.setDuration(duration);
-        valueAnimator.start();
+        // The animated segment starts from the dot selected before this one
+        startLineEndAnimation(dotId, getCenterX(previousDot.getId()),
+                getCenterY(previousDot.getId()), mInProgressX, mInProgressY,
+                getCenterX(dot.getId()), getCenterY(dot.getId()));
     }
 
-    /**
-     * Helper method to map a given x, y to its corresponding cell
-     *
-     * @param x The x coordinate
-     * @param y The y coordinate
-     * @return
-     */
-    private Dot checkForNewHit(float x, float y) {
-        final int rowHit = getRowHit(y);
-        if (rowHit < 0) {
-            return null;
+    private void startDotSizeAnimation(int dotId) {
+        if (mDotSizeAnimations.length < mPatternSize) {
+            mDotSizeAnimations = Arrays.copyOf(mDotSizeAnimations, mPatternSize);
         }
-        final int columnHit = getColumnHit(x);
-        if (columnHit < 0) {
-            return null;
+        DotSizeAnimation animation = mDotSizeAnimations[dotId];
+        if (animation == null) {
+            animation = new DotSizeAnimation(dotId);
+            mDotSizeAnimations[dotId] = animation;
         }
-
-        if (mPatternDrawLookup[rowHit][columnHit]) {
-            return null;
-        }
-        return Dot.of(rowHit, columnHit);
+        animation.start();
     }
 
-    /**
-     * Helper method to find the row that y coordinate falls into
-     *
-     * @param y The y coordinate
-     * @return The mRow that y falls in, or -1 if it falls in no mRow
-     */
-    private int getRowHit(float y) {
-        final float squareHeight = mViewHeight;
-        float hitSize = squareHeight * mHitFactor;
-
-        float offset = getPaddingTop() + (squareHeight - hitSize) / 2f;
-        for (int i = 0; i < sDotCount; i++) {
-            float hitTop = offset + squareHeight * i;
-            if (y >= hitTop && y <= hitTop + hitSize) {
-                return i;
-            }
+    private void startLineEndAnimation(int dotId, float originX, float originY, float startX,
+                                       float startY, float targetX, float targetY) {
+        if (mLineEndAnimations.length < mPatternSize) {
+            mLineEndAnimations = Arrays.copyOf(mLineEndAnimations, mPatternSize);
         }
-        return -1;
+        LineEndAnimation animation = mLineEndAnimations[dotId];
+        if (animation == null) {
+            animation = new LineEndAnimation(dotId);
+            mLineEndAnimations[dotId] = animation;
+        }
+        animation.start(originX, originY, startX, startY, targetX, targetY);
     }
 
     /**
-     * Helper method to find the column x falls into
-     *
-     * @param x The x coordinate
-     * @return The mColumn that x falls in, or -1 if it falls in no mColumn
+     * Applies an interpolator that may be missing, as they are below Lollipop
      */
-    private int getColumnHit(float x) {
-        final float squareWidth = mViewWidth;
-        float hitSize = squareWidth * mHitFactor;
-
-        float offset = getPaddingLeft() + (squareWidth - hitSize) / 2f;
-        for (int i = 0; i < sDotCount; i++) {
-
-            final float hitLeft = offset + squareWidth * i;
-            if (x >= hitLeft && x <= hitLeft + hitSize) {
-                return i;
-            }
-        }
-        return -1;
+    private static float interpolate(Interpolator interpolator, float fraction) {
+        return interpolator != null ? interpolator.getInterpolation(fraction) : fraction;
     }
 
     private void handleActionMove(MotionEvent event) {
@@ -974,7 +1419,12 @@ public class PatternLockView extends View {
                     .getX();
             float y = i < historySize ? event.getHistoricalY(i) : event
                     .getY();
-            Dot hitDot = detectAndAddHit(x, y);
+            long eventTime = i < historySize ? event.getHistoricalEventTime(i) : event
+                    .getEventTime();
+            Dot hitDot = detectAndAddHit(x, y, eventTime);
+            if (mLowLatencyInput) {
+                mTouchPredictor.addSample(eventTime, x, y);
+            }
             int patternSize = mPattern.size();
             if (hitDot != null && patternSize == 1) {
                 mPatternInProgress = true;
@@ -990,8 +1440,8 @@ public class PatternLockView extends View {
             if (mPatternInProgress && patternSize > 0) {
                 final ArrayList<Dot> pattern = mPattern;
                 final Dot lastDot = pattern.get(patternSize - 1);
-                float lastCellCenterX = getCenterXForColumn(lastDot.mColumn);
-                float lastCellCenterY = getCenterYForRow(lastDot.mRow);
+                float lastCellCenterX = getCenterX(lastDot.getId());
+                float lastCellCenterY = getCenterY(lastDot.getId());
 
                 // Adjust for drawn segment from last cell to (x,y). Radius
                 // accounts for line width.
@@ -1003,10 +1453,10 @@ public class PatternLockView extends View {
                 // Invalidate between the pattern's new cell and the pattern's
                 // previous cell
                 if (hitDot != null) {
-                    float width = mViewWidth * 0.5f;
-                    float height = mViewHeight * 0.5f;
-                    float hitCellCenterX = getCenterXForColumn(hitDot.mColumn);
-                    float hitCellCenterY = getCenterYForRow(hitDot.mRow);
+                    float width = mLayout.getCellWidth() * 0.5f;
+                    float height = mLayout.getCellHeight() * 0.5f;
+                    float hitCellCenterX = getCenterX(hitDot.getId());
+                    float hitCellCenterY = getCenterY(hitDot.getId());
 
                     left = Math.min(hitCellCenterX - width, left);
                     right = Math.max(hitCellCenterX + width, right);
@@ -1022,17 +1472,96 @@ public class PatternLockView extends View {
         }
         mInProgressX = event.getX();
         mInProgressY = event.getY();
+        if (mLowLatencyInput && mPatternInProgress && !mPattern.isEmpty()) {
+            updatePrediction(radius);
+        }
 
         // To save updates, we only invalidate if the user moved beyond a
         // certain amount.
         if (invalidateNow) {
             mInvalidate.union(mTempInvalidateRect);
-            invalidate(mInvalidate);
+            mDamage.addRect(mInvalidate);
             mInvalidate.set(mTempInvalidateRect);
         }
     }
 
+    /**
+     * Predicts the point the segment is drawn to, adding the segment to it to the damage of the
+     * move
+     */
+    private void updatePrediction(float radius) {
+        float x = mTouchPredictor.predictX(mPredictionHorizon);
+        float y = mTouchPredictor.predictY(mPredictionHorizon);
+        // A jerk of the finger must not fling the segment, so it stays within half a cell of
+        // the last sample
+        float dx = x - mInProgressX;
+        float dy = y - mInProgressY;
+        float maxDistance = mLayout.getCellWidth() / 2f;
+        float distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared > maxDistance * maxDistance) {
+            float scale = maxDistance / (float) Math.sqrt(distanceSquared);
+            x = mInProgressX + dx * scale;
+            y = mInProgressY + dy * scale;
+        }
+        mPredictedX = x;
+        mPredictedY = y;
+        mPredicting = true;
+
+        Dot lastDot = mPattern.get(mPattern.size() - 1);
+        float lastCellCenterX = getCenterX(lastDot.getId());
+        float lastCellCenterY = getCenterY(lastDot.getId());
+        mTempInvalidateRect.union(Math.round(Math.min(lastCellCenterX, x) - radius),
+                Math.round(Math.min(lastCellCenterY, y) - radius),
+                Math.round(Math.max(lastCellCenterX, x) + radius),
+                Math.round(Math.max(lastCellCenterY, y) + radius));
+        postPredictionFrame();
+    }
+
+    private void postPredictionFrame() {
+        if (!mPredictionFramePosted) {
+            mPredictionFramePosted = true;
+            mFrameScheduler.postFrameCallback(mPredictionFrame);
+        }
+    }
+
+    /**
+     * Draws the segment to the last sample again, instead of to the predicted point
+     */
+    private void stopPredicting() {
+        if (!mPredicting) {
+            return;
+        }
+        mPredicting = false;
+        if (mPatternInProgress && !mPattern.isEmpty()) {
+            Dot lastDot = mPattern.get(mPattern.size() - 1);
+            float lastCellCenterX = getCenterX(lastDot.getId());
+            float lastCellCenterY = getCenterY(lastDot.getId());
+            mDamage.addSegment(lastCellCenterX, lastCellCenterY, mPredictedX, mPredictedY,
+                    mPathWidth);
+            mDamage.addSegment(lastCellCenterX, lastCellCenterY, mInProgressX, mInProgressY,
+                    mPathWidth);
+        }
+    }
+
+    /**
+     * Predicts the finger one frame of the display ahead
+     */
+    private void updatePredictionHorizon() {
+        if (!mLowLatencyInput || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1
+                || getDisplay() == null) {
+            return;
+        }
+        float refreshRate = getDisplay().getRefreshRate();
+        if (refreshRate > 0f) {
+            mPredictionHorizon = Math.max(1, Math.round(1000f / refreshRate));
+        }
+    }
+
     private void sendAccessEvent(int resId) {
+        // Without a listening service, there is no point in even loading the message
+        if (!mAccessibilityManager.isEnabled()) {
+            return;
+        }
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
             setContentDescription(getContext().getString(resId));
             sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SELECTED);
@@ -1043,30 +1572,37 @@ public class PatternLockView extends View {
     }
 
     private void handleActionUp(MotionEvent event) {
+        mPredicting = false;
         // Report pattern detected
         if (!mPattern.isEmpty()) {
             mPatternInProgress = false;
+            // Listeners usually set the view mode right away, so this is set before notifying
+            mActionUpTime = event.getEventTime();
             cancelLineAnimations();
             notifyPatternDetected();
-            invalidate();
+            mDamage.addAll();
         }
-        if (PROFILE_DRAWING) {
-            if (mDrawingProfilingStarted) {
-                Debug.stopMethodTracing();
-                mDrawingProfilingStarted = false;
+    }
+
+    /**
+     * Cancels the running line end animations, leaving the line ends at their dots
+     */
+    private void cancelLineAnimations() {
+        for (LineEndAnimation animation : mLineEndAnimations) {
+            if (animation != null) {
+                animation.cancel();
             }
         }
     }
 
-    private void cancelLineAnimations() {
-        for (int i = 0; i < sDotCount; i++) {
-            for (int j = 0; j < sDotCount; j++) {
-                DotState state = mDotStates[i][j];
-                if (state.mLineAnimator != null) {
-                    state.mLineAnimator.cancel();
-                    state.mLineEndX = Float.MIN_VALUE;
-                    state.mLineEndY = Float.MIN_VALUE;
-                }
+    /**
+     * Cancels every animation of the dots, before their state is reset
+     */
+    private void cancelDotAnimations() {
+        cancelLineAnimations();
+        for (DotSizeAnimation animation : mDotSizeAnimations) {
+            if (animation != null) {
+                animation.cancel();
             }
         }
     }
@@ -1075,7 +1611,14 @@ public class PatternLockView extends View {
         resetPattern();
         float x = event.getX();
         float y = event.getY();
-        Dot hitDot = detectAndAddHit(x, y);
+        if (mLowLatencyInput) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                requestUnbufferedDispatch(event);
+            }
+            mTouchPredictor.reset();
+            mTouchPredictor.addSample(event.getEventTime(), x, y);
+        }
+        Dot hitDot = detectAndAddHit(x, y, event.getEventTime());
         if (hitDot != null) {
             mPatternInProgress = true;
             mPatternViewMode = CORRECT;
@@ -1085,32 +1628,62 @@ public class PatternLockView extends View {
             notifyPatternCleared();
         }
         if (hitDot != null) {
-            float startX = getCenterXForColumn(hitDot.mColumn);
-            float startY = getCenterYForRow(hitDot.mRow);
+            float startX = getCenterX(hitDot.getId());
+            float startY = getCenterY(hitDot.getId());
 
-            float widthOffset = mViewWidth / 2f;
-            float heightOffset = mViewHeight / 2f;
+            float widthOffset = mLayout.getCellWidth() / 2f;
+            float heightOffset = mLayout.getCellHeight() / 2f;
 
-            invalidate((int) (startX - widthOffset),
-                    (int) (startY - heightOffset),
-                    (int) (startX + widthOffset), (int) (startY + heightOffset));
+            mDamage.addRect(startX - widthOffset, startY - heightOffset,
+                    startX + widthOffset, startY + heightOffset);
         }
         mInProgressX = x;
         mInProgressY = y;
-        if (PROFILE_DRAWING) {
-            if (!mDrawingProfilingStarted) {
-                Debug.startMethodTracing("PatternLockDrawing");
-                mDrawingProfilingStarted = true;
-            }
-        }
     }
 
-    private float getCenterXForColumn(int column) {
-        return getPaddingLeft() + column * mViewWidth + mViewWidth / 2f;
+    private float getCenterX(int dotId) {
+        return mLayout.getDotCenterX(dotId);
     }
 
-    private float getCenterYForRow(int row) {
-        return getPaddingTop() + row * mViewHeight + mViewHeight / 2f;
+    private float getCenterY(int dotId) {
+        return mLayout.getDotCenterY(dotId);
+    }
+
+    /**
+     * Switches to a new layout of dots, which clears the pattern
+     */
+    private void setDotLayoutInternal(PatternLayout layout) {
+        sLastLayoutView = new WeakReference<>(this);
+        if (layout instanceof PatternGrid) {
+            PatternGrid grid = (PatternGrid) layout;
+            setMatrixSizeInternal(grid.getRowCount(), grid.getColumnCount());
+        } else {
+            // Dots of other layouts are only identified by their id, as if in a single row
+            setMatrixSizeInternal(1, layout.getPatternSize());
+        }
+        mLayout = layout;
+        mPatternSize = layout.getPatternSize();
+        mLargeGrid = mPatternSize > LARGE_GRID_THRESHOLD;
+        mPattern = new ArrayList<>(mPatternSize);
+        mTracker = new PatternTracker(layout);
+    }
+
+    /**
+     * Resizes the matrix the dots are identified in, and the dots along with it
+     */
+    private void setMatrixSizeInternal(int rowCount, int columnCount) {
+        if (rowCount == mRowCount && columnCount == mColumnCount) {
+            return;
+        }
+        mRowCount = rowCount;
+        mColumnCount = columnCount;
+        mDots = new Dot[rowCount * columnCount];
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < columnCount; j++) {
+                int id = i * columnCount + j;
+                mDots[id] = new Dot(i, j, id);
+            }
+        }
     }
 
     private float calculateLastSegmentAlpha(float x, float y, float lastX,
@@ -1118,10 +1691,36 @@ public class PatternLockView extends View {
         float diffX = x - lastX;
         float diffY = y - lastY;
         float dist = (float) Math.sqrt(diffX * diffX + diffY * diffY);
-        float fraction = dist / mViewWidth;
+        float fraction = dist / mLayout.getCellWidth();
         return Math.min(1f, Math.max(0f, (fraction - 0.3f) * 4f));
     }
 
+    /**
+     * Applies the savings of a quality tier that are kept in the paints. The others are read as
+     * the dots are selected and drawn
+     */
+    private void applyQualityTier(@QualityTier int tier) {
+        if (tier == mQualityTier) {
+            return;
+        }
+        boolean dither = tier < QualityTier.NO_DITHER;
+        mPathPaint.setDither(dither);
+        mDotPaint.setDither(dither);
+        mDotBatch.setDither(dither);
+        mQualityTier = tier;
+    }
+
+    /**
+     * The alpha of the segment to the finger without its fade: hidden while within the dot it
+     * leaves, opaque past it
+     */
+    private int calculateLastSegmentAlphaStep(float x, float y, float lastX, float lastY) {
+        float diffX = x - lastX;
+        float diffY = y - lastY;
+        float minDist = 0.3f * mLayout.getCellWidth();
+        return diffX * diffX + diffY * diffY > minDist * minDist ? 255 : 0;
+    }
+
     private int getCurrentColor(boolean partOfPattern) {
         if (!partOfPattern || mInStealthMode || mPatternInProgress) {
             return mNormalStateColor;
@@ -1143,72 +1742,258 @@ public class PatternLockView extends View {
     }
 
     /**
-     * Represents a cell in the matrix of the pattern view
+     * Collects changes to the configuration of a {@link PatternLockView} and applies them in one
+     * go. Obtained with {@link PatternLockView#edit()}, and not reusable once applied
      */
-    public static class Dot implements Parcelable {
+    public final class Editor {
+
+        private static final int CHANGED_DOTS = 1;
+        private static final int CHANGED_DOT_SIZE = 1 << 1;
+        private static final int CHANGED_PATH_WIDTH = 1 << 2;
+        private static final int CHANGED_LAYOUT = 1 << 3;
+        private static final int CHANGED_APPEARANCE = 1 << 4;
+
+        private int mChanges;
+        private boolean mApplied;
+
+        private PatternLayout mDotLayout = PatternLockView.this.mLayout;
+        private boolean mAspectRatioEnabled = PatternLockView.this.mAspectRatioEnabled;
+        private int mAspectRatio = PatternLockView.this.mAspectRatio;
+        private int mNormalStateColor = PatternLockView.this.mNormalStateColor;
+        private int mWrongStateColor = PatternLockView.this.mWrongStateColor;
+        private int mCorrectStateColor = PatternLockView.this.mCorrectStateColor;
+        private int mPathWidth = PatternLockView.this.mPathWidth;
+        private int mDotNormalSize = PatternLockView.this.mDotNormalSize;
+        private int mDotSelectedSize = PatternLockView.this.mDotSelectedSize;
+        private int mDotAnimationDuration = PatternLockView.this.mDotAnimationDuration;
+        private int mPathEndAnimationDuration = PatternLockView.this.mPathEndAnimationDuration;
+        private boolean mInStealthMode = PatternLockView.this.mInStealthMode;
+        private boolean mEnableHapticFeedback = PatternLockView.this.mEnableHapticFeedback;
+        private boolean mInputEnabled = PatternLockView.this.mInputEnabled;
+
+        private Editor() {
+        }
 
-        private int mRow;
-        private int mColumn;
-        private static Dot[][] sDots;
+        /**
+         * Changes the number of dots in a row (or column) of a square matrix. This clears the
+         * current pattern
+         */
+        public Editor setDotCount(int dotCount) {
+            return setDotLayout(new PatternGrid(dotCount));
+        }
 
-        static {
-            sDots = new Dot[sDotCount][sDotCount];
+        /**
+         * Changes the number of rows and columns of the matrix. This clears the current pattern
+         */
+        public Editor setMatrixSize(int rowCount, int columnCount) {
+            return setDotLayout(new PatternGrid(rowCount, columnCount));
+        }
 
-            // Initializing the dots
-            for (int i = 0; i < sDotCount; i++) {
-                for (int j = 0; j < sDotCount; j++) {
-                    sDots[i][j] = new Dot(i, j);
-                }
+        /**
+         * Lays the dots out with the given layout, for instance a
+         * {@link com.andrognito.patternlockview.core.FreeformLayout}. The view sets the bounds of
+         * the layout, so it must not be shared with other views. This clears the current pattern
+         */
+        public Editor setDotLayout(@NonNull PatternLayout layout) {
+            if (layout == null) {
+                throw new IllegalArgumentException("PatternLayout can not be null.");
             }
+            mDotLayout = layout;
+            mChanges |= CHANGED_DOTS;
+            return this;
         }
 
-        private Dot(int row, int column) {
-            checkRange(row, column);
-            this.mRow = row;
-            this.mColumn = column;
+        public Editor setAspectRatioEnabled(boolean aspectRatioEnabled) {
+            mAspectRatioEnabled = aspectRatioEnabled;
+            mChanges |= CHANGED_LAYOUT;
+            return this;
+        }
+
+        public Editor setAspectRatio(@AspectRatio int aspectRatio) {
+            mAspectRatio = aspectRatio;
+            mChanges |= CHANGED_LAYOUT;
+            return this;
+        }
+
+        public Editor setNormalStateColor(@ColorInt int normalStateColor) {
+            mNormalStateColor = normalStateColor;
+            mChanges |= CHANGED_APPEARANCE;
+            return this;
+        }
+
+        public Editor setWrongStateColor(@ColorInt int wrongStateColor) {
+            mWrongStateColor = wrongStateColor;
+            mChanges |= CHANGED_APPEARANCE;
+            return this;
+        }
+
+        public Editor setCorrectStateColor(@ColorInt int correctStateColor) {
+            mCorrectStateColor = correctStateColor;
+            mChanges |= CHANGED_APPEARANCE;
+            return this;
+        }
+
+        public Editor setPathWidth(@Dimension int pathWidth) {
+            mPathWidth = pathWidth;
+            mChanges |= CHANGED_PATH_WIDTH;
+            return this;
         }
 
         /**
-         * Gets the identifier of the dot. It is counted from left to right, top to bottom of the
-         * matrix, starting by zero
+         * Changes the size of the dots at rest. This resets any running dot animation
          */
-        public int getId() {
-            return mRow * sDotCount + mColumn;
+        public Editor setDotNormalSize(@Dimension int dotNormalSize) {
+            mDotNormalSize = dotNormalSize;
+            mChanges |= CHANGED_DOT_SIZE;
+            return this;
         }
 
-        public int getRow() {
-            return mRow;
+        public Editor setDotSelectedSize(@Dimension int dotSelectedSize) {
+            mDotSelectedSize = dotSelectedSize;
+            return this;
         }
 
-        public int getColumn() {
-            return mColumn;
+        public Editor setDotAnimationDuration(int dotAnimationDuration) {
+            mDotAnimationDuration = dotAnimationDuration;
+            return this;
+        }
+
+        public Editor setPathEndAnimationDuration(int pathEndAnimationDuration) {
+            mPathEndAnimationDuration = pathEndAnimationDuration;
+            return this;
+        }
+
+        public Editor setInStealthMode(boolean inStealthMode) {
+            mInStealthMode = inStealthMode;
+            mChanges |= CHANGED_APPEARANCE;
+            return this;
+        }
+
+        public Editor setTactileFeedbackEnabled(boolean tactileFeedbackEnabled) {
+            mEnableHapticFeedback = tactileFeedbackEnabled;
+            return this;
+        }
+
+        public Editor setInputEnabled(boolean inputEnabled) {
+            mInputEnabled = inputEnabled;
+            return this;
+        }
+
+        /**
+         * Applies every change of the batch to the view
+         */
+        public void apply() {
+            if (mApplied) {
+                throw new IllegalStateException("This editor has already been applied, call "
+                        + "edit() for a new one");
+            }
+            mApplied = true;
+
+            PatternLockView view = PatternLockView.this;
+            view.mAspectRatioEnabled = mAspectRatioEnabled;
+            view.mAspectRatio = mAspectRatio;
+            view.mNormalStateColor = mNormalStateColor;
+            view.mWrongStateColor = mWrongStateColor;
+            view.mCorrectStateColor = mCorrectStateColor;
+            view.mPathWidth = mPathWidth;
+            view.mDotNormalSize = mDotNormalSize;
+            view.mDotSelectedSize = mDotSelectedSize;
+            view.mDotAnimationDuration = mDotAnimationDuration;
+            view.mPathEndAnimationDuration = mPathEndAnimationDuration;
+            view.mInStealthMode = mInStealthMode;
+            view.mEnableHapticFeedback = mEnableHapticFeedback;
+            view.mInputEnabled = mInputEnabled;
+
+            int changes = mChanges;
+            if ((changes & CHANGED_DOTS) != 0) {
+                setDotLayoutInternal(mDotLayout);
+                updateGridBounds(getWidth(), getHeight());
+            }
+            if ((changes & (CHANGED_DOTS | CHANGED_DOT_SIZE)) != 0) {
+                cancelDotAnimations();
+                mDotStates.reset(mPatternSize, view.mDotNormalSize);
+                if (mDotPulses != null) {
+                    mDotPulses.stopAll();
+                }
+            }
+            if ((changes & CHANGED_PATH_WIDTH) != 0) {
+                mPathPaint.setStrokeWidth(view.mPathWidth);
+            }
+
+            if ((changes & (CHANGED_DOTS | CHANGED_LAYOUT)) != 0) {
+                requestLayout();
+            }
+            if (changes != 0) {
+                mDamage.addAll();
+            }
+        }
+    }
+
+    /**
+     * Represents a cell in the matrix of the pattern view. Dots of a layout that is not a
+     * {@link PatternGrid} are all in row zero, their column being their id. Dots are obtained from
+     * the view they belong to, see {@link #getDot(int)}
+     */
+    public static class Dot implements Parcelable {
+
+        // Written first by the parcels that hold the id of the dot. Older versions only wrote
+        // its column and row, which are never negative
+        private static final int PARCEL_WITH_ID = -1;
+
+        private int mRow;
+        private int mColumn;
+        private int mId;
+
+        private Dot(int row, int column, int id) {
+            this.mRow = row;
+            this.mColumn = column;
+            this.mId = id;
         }
 
         /**
-         * @param row    The mRow of the cell.
-         * @param column The mColumn of the cell.
+         * @param row    The row of the dot
+         * @param column The column of the dot
+         * @deprecated The id of a dot depends on the matrix of its view, so this resolves the dot
+         * against the view that set its matrix last. Use {@link PatternLockView#getDot(int, int)}
          */
-        public static synchronized Dot of(int row, int column) {
-            checkRange(row, column);
-            return sDots[row][column];
+        @Deprecated
+        public static Dot of(int row, int column) {
+            return getLastLayoutView().getDot(row, column);
         }
 
         /**
-         * Gets a cell from its identifier
+         * Gets a dot from its identifier
+         *
+         * @deprecated The id of a dot depends on the matrix of its view, so this resolves the dot
+         * against the view that set its matrix last. Use {@link PatternLockView#getDot(int)}
          */
-        public static synchronized Dot of(int id) {
-            return of(id / sDotCount, id % sDotCount);
+        @Deprecated
+        public static Dot of(int id) {
+            return getLastLayoutView().getDot(id);
         }
 
-        private static void checkRange(int row, int column) {
-            if (row < 0 || row > sDotCount - 1) {
-                throw new IllegalArgumentException("mRow must be in range 0-"
-                        + (sDotCount - 1));
-            }
-            if (column < 0 || column > sDotCount - 1) {
-                throw new IllegalArgumentException("mColumn must be in range 0-"
-                        + (sDotCount - 1));
+        private static PatternLockView getLastLayoutView() {
+            PatternLockView view = sLastLayoutView.get();
+            if (view == null) {
+                throw new IllegalStateException("No PatternLockView to get the dot from");
             }
+            return view;
+        }
+
+        /**
+         * Gets the identifier of the dot. It is counted from left to right, top to bottom of the
+         * matrix, starting by zero
+         */
+        public int getId() {
+            return mId;
+        }
+
+        public int getRow() {
+            return mRow;
+        }
+
+        public int getColumn() {
+            return mColumn;
         }
 
         @Override
@@ -1220,7 +2005,8 @@ public class PatternLockView extends View {
         public boolean equals(Object object) {
             if (object instanceof Dot)
                 return mColumn == ((Dot) object).mColumn
-                        && mRow == ((Dot) object).mRow;
+                        && mRow == ((Dot) object).mRow
+                        && mId == ((Dot) object).mId;
             return super.equals(object);
         }
 
@@ -1228,6 +2014,7 @@ public class PatternLockView extends View {
         public int hashCode() {
             int result = mRow;
             result = 31 * result + mColumn;
+            result = 31 * result + mId;
             return result;
         }
 
@@ -1238,8 +2025,10 @@ public class PatternLockView extends View {
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
+            dest.writeInt(PARCEL_WITH_ID);
             dest.writeInt(mColumn);
             dest.writeInt(mRow);
+            dest.writeInt(mId);
         }
 
         public static final Creator<Dot> CREATOR = new Creator<Dot>() {
@@ -1254,8 +2043,169 @@ public class PatternLockView extends View {
         };
 
         private Dot(Parcel in) {
-            mColumn = in.readInt();
-            mRow = in.readInt();
+            int first = in.readInt();
+            if (first == PARCEL_WITH_ID) {
+                mColumn = in.readInt();
+                mRow = in.readInt();
+                mId = in.readInt();
+            } else {
+                // Written by an older version, which identified dots in the matrix of the view
+                // that set its matrix last, by default 3x3
+                mColumn = first;
+                mRow = in.readInt();
+                PatternLockView view = sLastLayoutView.get();
+                int columnCount = view != null ? view.mColumnCount
+                        : PatternLockStyle.DEFAULT_PATTERN_DOT_COUNT;
+                mId = mRow * columnCount + mColumn;
+            }
+        }
+    }
+
+    /**
+     * An animation of a dot, advanced by the frames of the frame scheduler rather than by a
+     * {@code ValueAnimator}, so that a manual scheduler can step it
+     */
+    private abstract class DotAnimation {
+
+        final int mDotId;
+        private long mStartTime;
+        private long mDuration;
+        private boolean mRunning;
+
+        DotAnimation(int dotId) {
+            mDotId = dotId;
+        }
+
+        /**
+         * Starts the animation over from its first frame, which is applied right away. The
+         * duration is scaled by the animator duration scale of the frame scheduler, and the last
+         * frame is applied right away when animations are turned off
+         */
+        final void start(long duration) {
+            long scaledDuration = (long) (duration * mFrameScheduler.getAnimatorDurationScale());
+            if (scaledDuration <= 0) {
+                if (mRunning) {
+                    mRunning = false;
+                    onDotAnimationEnded();
+                }
+                update(1f);
+                return;
+            }
+            if (!mRunning) {
+                mRunning = true;
+                onDotAnimationStarted();
+            }
+            mStartTime = mFrameScheduler.uptimeMillis();
+            mDuration = scaledDuration;
+            update(0f);
+        }
+
+        /**
+         * Applies the frame of the given time, which ends the animation once past its duration
+         */
+        final void advance(long time) {
+            float fraction = mDuration <= 0
+                    ? 1f : Math.min(1f, (float) (time - mStartTime) / mDuration);
+            update(fraction);
+            if (fraction >= 1f) {
+                mRunning = false;
+                onDotAnimationEnded();
+            }
+        }
+
+        final boolean isRunning() {
+            return mRunning;
+        }
+
+        void cancel() {
+            if (mRunning) {
+                mRunning = false;
+                onDotAnimationEnded();
+            }
+        }
+
+        abstract void update(float fraction);
+    }
+
+    /**
+     * Grows a dot to its selected size and shrinks it back. Both halves run as one animation,
+     * applying the interpolator of each half to the fraction itself
+     */
+    private final class DotSizeAnimation extends DotAnimation {
+
+        DotSizeAnimation(int dotId) {
+            super(dotId);
+        }
+
+        void start() {
+            start(2L * mDotAnimationDuration);
+        }
+
+        @Override
+        void update(float fraction) {
+            float t = 2f * fraction;
+            float size;
+            if (t < 1f) {
+                size = mDotNormalSize + (mDotSelectedSize - mDotNormalSize)
+                        * interpolate(mLinearOutSlowInInterpolator, t);
+            } else {
+                size = mDotSelectedSize + (mDotNormalSize - mDotSelectedSize)
+                        * interpolate(mFastOutSlowInInterpolator, t - 1f);
+            }
+            mDotStates.mSize[mDotId] = size;
+            mDamage.addCircle(getCenterX(mDotId), getCenterY(mDotId),
+                    Math.max(mDotNormalSize, mDotSelectedSize) / 2f);
+        }
+    }
+
+    /**
+     * Moves the end of the segment leading to a dot from where the finger was to the dot
+     */
+    private final class LineEndAnimation extends DotAnimation {
+
+        private float mStartX;
+        private float mStartY;
+        private float mTargetX;
+        private float mTargetY;
+        // Every frame of the animation stays within the triangle of the origin, start and
+        // target of the segment
+        private float mLeft;
+        private float mTop;
+        private float mRight;
+        private float mBottom;
+
+        LineEndAnimation(int dotId) {
+            super(dotId);
+        }
+
+        void start(float originX, float originY, float startX, float startY, float targetX,
+                   float targetY) {
+            mStartX = startX;
+            mStartY = startY;
+            mTargetX = targetX;
+            mTargetY = targetY;
+            mLeft = Math.min(originX, Math.min(startX, targetX));
+            mTop = Math.min(originY, Math.min(startY, targetY));
+            mRight = Math.max(originX, Math.max(startX, targetX));
+            mBottom = Math.max(originY, Math.max(startY, targetY));
+            start(mPathEndAnimationDuration);
+        }
+
+        @Override
+        void cancel() {
+            if (isRunning()) {
+                super.cancel();
+                mDotStates.mLineEndX[mDotId] = DotStates.NO_LINE_END;
+                mDotStates.mLineEndY[mDotId] = DotStates.NO_LINE_END;
+            }
+        }
+
+        @Override
+        void update(float fraction) {
+            float t = interpolate(mFastOutSlowInInterpolator, fraction);
+            mDotStates.mLineEndX[mDotId] = (1 - t) * mStartX + t * mTargetX;
+            mDotStates.mLineEndY[mDotId] = (1 - t) * mStartY + t * mTargetY;
+            mDamage.addSegment(mLeft, mTop, mRight, mBottom, mPathWidth);
         }
     }
 
@@ -1264,7 +2214,8 @@ public class PatternLockView extends View {
      */
     private static class SavedState extends BaseSavedState {
 
-        private final String mSerializedPattern;
+        // The dot ids of the pattern, packed with WidePattern so that they fit any matrix
+        private final char[] mPackedPattern;
         private final int mDisplayMode;
         private final boolean mInputEnabled;
         private final boolean mInStealthMode;
@@ -1273,12 +2224,12 @@ public class PatternLockView extends View {
         /**
          * Constructor called from {@link PatternLockView#onSaveInstanceState()}
          */
-        private SavedState(Parcelable superState, String serializedPattern,
+        private SavedState(Parcelable superState, char[] packedPattern,
                            int displayMode, boolean inputEnabled, boolean inStealthMode,
                            boolean tactileFeedbackEnabled) {
             super(superState);
 
-            mSerializedPattern = serializedPattern;
+            mPackedPattern = packedPattern;
             mDisplayMode = displayMode;
             mInputEnabled = inputEnabled;
             mInStealthMode = inStealthMode;
@@ -1291,15 +2242,15 @@ public class PatternLockView extends View {
         private SavedState(Parcel in) {
             super(in);
 
-            mSerializedPattern = in.readString();
+            mPackedPattern = in.createCharArray();
             mDisplayMode = in.readInt();
             mInputEnabled = (Boolean) in.readValue(null);
             mInStealthMode = (Boolean) in.readValue(null);
             mTactileFeedbackEnabled = (Boolean) in.readValue(null);
         }
 
-        public String getSerializedPattern() {
-            return mSerializedPattern;
+        public char[] getPackedPattern() {
+            return mPackedPattern;
         }
 
         public int getDisplayMode() {
@@ -1321,7 +2272,7 @@ public class PatternLockView extends View {
         @Override
         public void writeToParcel(Parcel dest, int flags) {
             super.writeToParcel(dest, flags);
-            dest.writeString(mSerializedPattern);
+            dest.writeCharArray(mPackedPattern);
             dest.writeInt(mDisplayMode);
             dest.writeValue(mInputEnabled);
             dest.writeValue(mInStealthMode);
@@ -1340,14 +2291,4 @@ public class PatternLockView extends View {
             }
         };
     }
-
-    public static class DotState {
-        float mScale = 1.0f;
-        float mTranslateY = 0.0f;
-        float mAlpha = 1.0f;
-        float mSize;
-        float mLineEndX = Float.MIN_VALUE;
-        float mLineEndY = Float.MIN_VALUE;
-        ValueAnimator mLineAnimator;
-    }
 }
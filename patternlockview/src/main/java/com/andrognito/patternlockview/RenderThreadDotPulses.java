@@ -0,0 +1,123 @@
+package com.andrognito.patternlockview;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.AnimatedVectorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+
+import com.andrognito.patternlockview.utils.ResourceUtils;
+
+import java.util.Arrays;
+
+/**
+ * Plays the pulse of selected dots with {@link AnimatedVectorDrawable}s. From API 25 these run on
+ * the RenderThread once started from a hardware accelerated canvas, so the pulse stays smooth even
+ * while the main thread is busy.
+ * <p>
+ * The animation is defined by {@code R.drawable.pattern_lock_dot_pulse}, which is authored for the
+ * default dot sizes and animation duration. Views configured differently keep animating their
+ * dots on the main thread, through the frames of their {@link PatternLockFrameScheduler}, see
+ * {@link #isCompatible}.
+ */
+@TargetApi(Build.VERSION_CODES.N_MR1)
+final class RenderThreadDotPulses {
+
+    // The color of the dot in the drawable itself
+    private static final int UNTINTED = Color.WHITE;
+
+    private final View mHost;
+    private final int mDefaultDotNormalSize;
+    private final int mDefaultDotSelectedSize;
+
+    private AnimatedVectorDrawable[] mPulses = new AnimatedVectorDrawable[0];
+    private int[] mTints = new int[0];
+
+    RenderThreadDotPulses(View host) {
+        mHost = host;
+        mDefaultDotNormalSize = (int) ResourceUtils.getDimensionInPx(host.getContext(),
+                R.dimen.pattern_lock_dot_size);
+        mDefaultDotSelectedSize = (int) ResourceUtils.getDimensionInPx(host.getContext(),
+                R.dimen.pattern_lock_dot_selected_size);
+    }
+
+    static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1;
+    }
+
+    /**
+     * Whether the pulse drawable animates dots of the given sizes for the given duration
+     */
+    boolean isCompatible(int dotNormalSize, int dotSelectedSize, int dotAnimationDuration) {
+        return dotNormalSize == mDefaultDotNormalSize
+                && dotSelectedSize == mDefaultDotSelectedSize
+                && dotAnimationDuration == PatternLockStyle.DEFAULT_DOT_ANIMATION_DURATION;
+    }
+
+    void start(int dotId, int patternSize) {
+        if (mPulses.length < patternSize) {
+            AnimatedVectorDrawable[] pulses = new AnimatedVectorDrawable[patternSize];
+            System.arraycopy(mPulses, 0, pulses, 0, mPulses.length);
+            mPulses = pulses;
+            mTints = Arrays.copyOf(mTints, patternSize);
+        }
+
+        AnimatedVectorDrawable pulse = mPulses[dotId];
+        if (pulse == null) {
+            // Mutated so every dot animates its own copy of the vector tree
+            pulse = (AnimatedVectorDrawable) mHost.getContext()
+                    .getDrawable(R.drawable.pattern_lock_dot_pulse).mutate();
+            pulse.setCallback(mHost);
+            mPulses[dotId] = pulse;
+            mTints[dotId] = UNTINTED;
+        }
+        pulse.stop();
+        pulse.start();
+    }
+
+    /**
+     * Draws the pulse of a dot if it is running
+     *
+     * @return Whether the dot was drawn, otherwise it should be drawn at rest
+     */
+    boolean draw(Canvas canvas, int dotId, float centerX, float centerY, int color, int alpha) {
+        if (dotId >= mPulses.length) {
+            return false;
+        }
+        AnimatedVectorDrawable pulse = mPulses[dotId];
+        if (pulse == null || !pulse.isRunning()) {
+            return false;
+        }
+
+        // Setting a tint invalidates the drawable, so only do it when the color changes
+        if (mTints[dotId] != color) {
+            pulse.setTint(color);
+            mTints[dotId] = color;
+        }
+        pulse.setAlpha(alpha);
+        int halfSize = mDefaultDotSelectedSize / 2;
+        pulse.setBounds((int) centerX - halfSize, (int) centerY - halfSize,
+                (int) centerX + halfSize, (int) centerY + halfSize);
+        pulse.draw(canvas);
+        return true;
+    }
+
+    boolean owns(Drawable drawable) {
+        for (AnimatedVectorDrawable pulse : mPulses) {
+            if (pulse == drawable) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void stopAll() {
+        for (AnimatedVectorDrawable pulse : mPulses) {
+            if (pulse != null) {
+                pulse.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.andrognito.patternlockview;
+
+/**
+ * Extrapolates the position of a finger from its recent touch samples, to draw it where it will
+ * be when the frame is shown rather than where it was when sampled.
+ * <p>
+ * Each axis is tracked by an alpha-beta filter, the steady state of a Kalman filter for a
+ * constant velocity: every sample corrects a predicted position and velocity by fixed fractions
+ * of the error. This smooths the jitter of the panel at the cost of two multiplications per
+ * sample, without allocating.
+ */
+final class TouchPredictor {
+
+    // How much of the error corrects the position and the velocity
+    private static final float ALPHA = 0.5f;
+    private static final float BETA = 0.2f;
+
+    // The number of samples of the gesture, up to the two the filter starts from
+    private int mSampleCount;
+    private long mTime;
+    private float mX;
+    private float mY;
+    // In pixels per millisecond
+    private float mVelocityX;
+    private float mVelocityY;
+
+    /**
+     * Forgets the samples of the previous gesture
+     */
+    void reset() {
+        mSampleCount = 0;
+        mVelocityX = 0f;
+        mVelocityY = 0f;
+    }
+
+    void addSample(long time, float x, float y) {
+        long dt = time - mTime;
+        if (mSampleCount == 0 || dt <= 0) {
+            // The first sample, and samples of the same time, only set the position
+            mSampleCount = Math.max(mSampleCount, 1);
+            mTime = time;
+            mX = x;
+            mY = y;
+            return;
+        }
+        if (mSampleCount == 1) {
+            // The filter starts from the velocity between the first two samples, rather than
+            // catching up from a standstill
+            mSampleCount = 2;
+            mVelocityX = (x - mX) / dt;
+            mVelocityY = (y - mY) / dt;
+            mTime = time;
+            mX = x;
+            mY = y;
+            return;
+        }
+        float predictedX = mX + mVelocityX * dt;
+        float predictedY = mY + mVelocityY * dt;
+        float errorX = x - predictedX;
+        float errorY = y - predictedY;
+        mX = predictedX + ALPHA * errorX;
+        mY = predictedY + ALPHA * errorY;
+        mVelocityX += BETA * errorX / dt;
+        mVelocityY += BETA * errorY / dt;
+        mTime = time;
+    }
+
+    /**
+     * The time of the last sample
+     */
+    long getTime() {
+        return mTime;
+    }
+
+    /**
+     * The position expected the given time after the last sample
+     */
+    float predictX(long ahead) {
+        return mX + mVelocityX * ahead;
+    }
+
+    float predictY(long ahead) {
+        return mY + mVelocityY * ahead;
+    }
+}
@@ -0,0 +1,54 @@
+package com.andrognito.patternlockview;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+/**
+ * Runs callbacks on the animation frames of a view, timed by the clock of the device. Callbacks
+ * posted while the view is detached wait for it to be attached again.
+ */
+final class ViewFrameScheduler implements PatternLockFrameScheduler {
+
+    private final View mView;
+    private float mAnimatorDurationScale = 1f;
+
+    ViewFrameScheduler(View view) {
+        mView = view;
+        updateAnimatorDurationScale();
+    }
+
+    /**
+     * Reads the animator duration scale of the device again, as it may have changed while the
+     * view was detached. Only readable from API 17
+     */
+    void updateAnimatorDurationScale() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            mAnimatorDurationScale = Settings.Global.getFloat(
+                    mView.getContext().getContentResolver(),
+                    Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+        }
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public void postFrameCallback(Runnable callback) {
+        ViewCompat.postOnAnimation(mView, callback);
+    }
+
+    @Override
+    public void removeFrameCallback(Runnable callback) {
+        mView.removeCallbacks(callback);
+    }
+
+    @Override
+    public float getAnimatorDurationScale() {
+        return mAnimatorDurationScale;
+    }
+}
@@ -0,0 +1,144 @@
+package com.andrognito.patternlockview.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Counts values into a fixed set of buckets. The buckets are allocated up front, so recording a
+ * value is a binary search and a few increments, without any allocation.
+ * <p>
+ * Bucket {@code i} counts the values up to {@link #getBucketBound(int)} that are above the bound
+ * of bucket {@code i - 1}. A last, unbounded bucket counts the values above every bound.
+ * <p>
+ * Histograms are not thread safe. Read them on the thread that records them, for instance by
+ * posting to the main thread before uploading them.
+ */
+public final class Histogram {
+
+    private final long[] mBounds;
+    private final long[] mCounts;
+    private long mCount;
+    private long mSum;
+    private long mMin = Long.MAX_VALUE;
+    private long mMax = Long.MIN_VALUE;
+
+    /**
+     * @param bounds The inclusive upper bound of each bucket, in increasing order
+     */
+    public Histogram(long[] bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Bounds must be in increasing order");
+            }
+        }
+        mBounds = Arrays.copyOf(bounds, bounds.length);
+        mCounts = new long[bounds.length + 1];
+    }
+
+    /**
+     * Creates buckets whose bounds double from the given one
+     *
+     * @param firstBound  The upper bound of the first bucket, greater than 0
+     * @param bucketCount The number of bounded buckets
+     */
+    public static Histogram exponential(long firstBound, int bucketCount) {
+        if (firstBound <= 0) {
+            throw new IllegalArgumentException("First bound must be greater than 0");
+        }
+        long[] bounds = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            bounds[i] = firstBound << i;
+        }
+        return new Histogram(bounds);
+    }
+
+    public void record(long value) {
+        int bucket = Arrays.binarySearch(mBounds, value);
+        if (bucket < 0) {
+            // Not a bound itself, so it belongs to the bucket of the next bound
+            bucket = -bucket - 1;
+        }
+        mCounts[bucket]++;
+        mCount++;
+        mSum += value;
+        if (value < mMin) {
+            mMin = value;
+        }
+        if (value > mMax) {
+            mMax = value;
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(mCounts, 0);
+        mCount = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = Long.MIN_VALUE;
+    }
+
+    /**
+     * The number of buckets, including the last unbounded one
+     */
+    public int getBucketCount() {
+        return mCounts.length;
+    }
+
+    /**
+     * The inclusive upper bound of a bucket, or {@link Long#MAX_VALUE} for the last one
+     */
+    public long getBucketBound(int bucket) {
+        return bucket < mBounds.length ? mBounds[bucket] : Long.MAX_VALUE;
+    }
+
+    public long getBucketCount(int bucket) {
+        return mCounts[bucket];
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getSum() {
+        return mSum;
+    }
+
+    /**
+     * The smallest recorded value, or {@code 0} if nothing was recorded
+     */
+    public long getMin() {
+        return mCount == 0 ? 0 : mMin;
+    }
+
+    /**
+     * The largest recorded value, or {@code 0} if nothing was recorded
+     */
+    public long getMax() {
+        return mCount == 0 ? 0 : mMax;
+    }
+
+    public double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls in, capped by the largest
+     * recorded value
+     *
+     * @param percentile The percentile, from {@code 0} to {@code 100}
+     * @return The estimate, or {@code 0} if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100d * mCount);
+        long seen = 0;
+        for (int bucket = 0; bucket < mCounts.length; bucket++) {
+            seen += mCounts[bucket];
+            if (seen >= rank && mCounts[bucket] > 0) {
+                return Math.min(getBucketBound(bucket), mMax);
+            }
+        }
+        return mMax;
+    }
+}
@@ -0,0 +1,57 @@
+package com.andrognito.patternlockview.metrics;
+
+/**
+ * Receives render and input measurements from a {@link com.andrognito.patternlockview.PatternLockView}.
+ * Metrics are opt-in: a view without metrics only pays for a {@code null} check at each point it
+ * would measure.
+ * <p>
+ * Every method is called on the main thread, in the middle of drawing or input handling, so
+ * implementations must be cheap and should not allocate. {@link PatternLockMetricsRecorder}
+ * aggregates everything into fixed-bucket histograms.
+ * <p>
+ * Latencies measured from input events are based on {@link android.view.MotionEvent} timestamps,
+ * which have a millisecond resolution.
+ */
+public interface PatternLockMetrics {
+
+    /**
+     * A frame of the view was drawn
+     *
+     * @param durationNanos The time spent in {@code onDraw}
+     */
+    void onDraw(long durationNanos);
+
+    /**
+     * A dot was added to the pattern
+     *
+     * @param latencyNanos The time since the touch sample that hit the dot was taken
+     */
+    void onDotAdded(long latencyNanos);
+
+    /**
+     * The view invalidated an area for the next frame
+     *
+     * @param areaPixels The area of the union of everything damaged during the frame
+     */
+    void onFrameDamaged(long areaPixels);
+
+    /**
+     * An animation of a dot or of the path was started
+     */
+    void onAnimatorStarted();
+
+    /**
+     * The pattern listeners were notified
+     *
+     * @param durationNanos The time spent in the listeners
+     */
+    void onListenersDispatched(long durationNanos);
+
+    /**
+     * The view mode was set after the user lifted their finger, which is usually the app
+     * reporting whether the pattern was correct
+     *
+     * @param latencyNanos The time since the finger was lifted
+     */
+    void onViewModeChanged(long latencyNanos);
+}
@@ -0,0 +1,107 @@
+package com.andrognito.patternlockview.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates the metrics of one or more views into {@link Histogram}s. Everything is allocated
+ * when the recorder is created, so recording never allocates.
+ * <p>
+ * Like the histograms, a recorder is not thread safe. Read and {@link #reset()} it on the main
+ * thread, for instance when the lock screen is dismissed, and upload a copy of the readings.
+ */
+public class PatternLockMetricsRecorder implements PatternLockMetrics {
+
+    // From 0.125ms to about 256ms per frame
+    private final Histogram mDrawTimes =
+            Histogram.exponential(TimeUnit.MICROSECONDS.toNanos(125), 12);
+    // From 1ms to about 1s
+    private final Histogram mDotAddedLatencies =
+            Histogram.exponential(TimeUnit.MILLISECONDS.toNanos(1), 11);
+    // From 256 pixels (a 16x16 square) to about 16M pixels
+    private final Histogram mDamagedAreas = Histogram.exponential(256, 17);
+    // From 0.05ms to about 100ms
+    private final Histogram mListenerDispatchTimes =
+            Histogram.exponential(TimeUnit.MICROSECONDS.toNanos(50), 12);
+    // From 1ms to about 4s
+    private final Histogram mViewModeChangeLatencies =
+            Histogram.exponential(TimeUnit.MILLISECONDS.toNanos(1), 13);
+    private long mAnimatorsStarted;
+
+    @Override
+    public void onDraw(long durationNanos) {
+        mDrawTimes.record(durationNanos);
+    }
+
+    @Override
+    public void onDotAdded(long latencyNanos) {
+        mDotAddedLatencies.record(latencyNanos);
+    }
+
+    @Override
+    public void onFrameDamaged(long areaPixels) {
+        mDamagedAreas.record(areaPixels);
+    }
+
+    @Override
+    public void onAnimatorStarted() {
+        mAnimatorsStarted++;
+    }
+
+    @Override
+    public void onListenersDispatched(long durationNanos) {
+        mListenerDispatchTimes.record(durationNanos);
+    }
+
+    @Override
+    public void onViewModeChanged(long latencyNanos) {
+        mViewModeChangeLatencies.record(latencyNanos);
+    }
+
+    /**
+     * The time spent in {@code onDraw}, in nanoseconds
+     */
+    public Histogram getDrawTimes() {
+        return mDrawTimes;
+    }
+
+    /**
+     * The time from a touch sample to the dot it hit being added, in nanoseconds
+     */
+    public Histogram getDotAddedLatencies() {
+        return mDotAddedLatencies;
+    }
+
+    /**
+     * The area invalidated for each frame, in pixels
+     */
+    public Histogram getDamagedAreas() {
+        return mDamagedAreas;
+    }
+
+    /**
+     * The time spent notifying the pattern listeners, in nanoseconds
+     */
+    public Histogram getListenerDispatchTimes() {
+        return mListenerDispatchTimes;
+    }
+
+    /**
+     * The time from the user lifting their finger to the view mode being set, in nanoseconds
+     */
+    public Histogram getViewModeChangeLatencies() {
+        return mViewModeChangeLatencies;
+    }
+
+    public long getAnimatorsStarted() {
+        return mAnimatorsStarted;
+    }
+
+    public void reset() {
+        mDrawTimes.reset();
+        mDotAddedLatencies.reset();
+        mDamagedAreas.reset();
+        mListenerDispatchTimes.reset();
+        mViewModeChangeLatencies.reset();
+        mAnimatorsStarted = 0;
+    }
+}
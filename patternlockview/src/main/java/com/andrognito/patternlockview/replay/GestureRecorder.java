@@ -0,0 +1,162 @@
+package com.andrognito.patternlockview.replay;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.MotionEvent;
+
+import com.andrognito.patternlockview.PatternLockView;
+import com.andrognito.patternlockview.core.PatternGrid;
+
+import java.util.Arrays;
+
+/**
+ * Records the gestures made on the views it is set on with
+ * {@link PatternLockView#setGestureRecorder(GestureRecorder)}. A recording starts when the finger
+ * goes down and is handed to the listener when it is lifted or the gesture is cancelled.
+ * <p>
+ * The sample buffers are reused from one gesture to the next, so recording only allocates while
+ * they grow and when a finished recording is copied out of them. Like the view, a recorder must
+ * only be used on the main thread.
+ */
+public class GestureRecorder {
+
+    /**
+     * Receives every gesture recorded
+     */
+    public interface OnGestureRecordedListener {
+
+        void onGestureRecorded(GestureRecording recording);
+    }
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final OnGestureRecordedListener mListener;
+    private GestureRecording mLastRecording;
+
+    // The configuration of the view, captured when the finger went down
+    private int mViewWidth;
+    private int mViewHeight;
+    private int mRowCount;
+    private int mColumnCount;
+    private boolean mGrid;
+    private boolean mInStealthMode;
+    private float mHitFactor;
+    private int mPathWidth;
+    private int mDotNormalSize;
+    private int mDotSelectedSize;
+    private int mDotAnimationDuration;
+    private int mPathEndAnimationDuration;
+
+    private boolean mRecording;
+    private long mDownTime;
+    private int mEventCount;
+    private int mSampleCount;
+    private byte[] mActions = new byte[INITIAL_CAPACITY];
+    private int[] mEventStarts = new int[INITIAL_CAPACITY + 1];
+    private int[] mTimes = new int[INITIAL_CAPACITY];
+    private float[] mXs = new float[INITIAL_CAPACITY];
+    private float[] mYs = new float[INITIAL_CAPACITY];
+
+    public GestureRecorder(@Nullable OnGestureRecordedListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * The last gesture recorded, or {@code null} if none was completed yet
+     */
+    @Nullable
+    public GestureRecording getLastRecording() {
+        return mLastRecording;
+    }
+
+    /**
+     * Records a touch event handled by the given view. Called by the view itself
+     */
+    public void record(@NonNull PatternLockView view, @NonNull MotionEvent event) {
+        int action = event.getAction();
+        if (action == MotionEvent.ACTION_DOWN) {
+            start(view, event.getDownTime());
+        } else if (!mRecording) {
+            // The finger went down before the recorder was set
+            return;
+        } else if (action != MotionEvent.ACTION_MOVE && action != MotionEvent.ACTION_UP
+                && action != MotionEvent.ACTION_CANCEL) {
+            // Ignored by the view as well
+            return;
+        }
+
+        int historySize = event.getHistorySize();
+        ensureCapacity(mEventCount + 1, mSampleCount + historySize + 1);
+        mActions[mEventCount] = (byte) action;
+        mEventStarts[mEventCount] = mSampleCount;
+        for (int i = 0; i < historySize; i++) {
+            addSample(event.getHistoricalEventTime(i), event.getHistoricalX(i),
+                    event.getHistoricalY(i));
+        }
+        addSample(event.getEventTime(), event.getX(), event.getY());
+        mEventCount++;
+        mEventStarts[mEventCount] = mSampleCount;
+
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            finish();
+        }
+    }
+
+    private void start(PatternLockView view, long downTime) {
+        mRecording = true;
+        mDownTime = downTime;
+        mEventCount = 0;
+        mSampleCount = 0;
+        mViewWidth = view.getWidth();
+        mViewHeight = view.getHeight();
+        mRowCount = view.getRowCount();
+        mColumnCount = view.getColumnCount();
+        mGrid = view.getDotLayout() instanceof PatternGrid;
+        mInStealthMode = view.isInStealthMode();
+        mHitFactor = view.getDotLayout().getHitFactor();
+        mPathWidth = view.getPathWidth();
+        mDotNormalSize = view.getDotNormalSize();
+        mDotSelectedSize = view.getDotSelectedSize();
+        mDotAnimationDuration = view.getDotAnimationDuration();
+        mPathEndAnimationDuration = view.getPathEndAnimationDuration();
+    }
+
+    private void addSample(long eventTime, float x, float y) {
+        // Sample times never go backwards, which the format relies on
+        int time = (int) Math.max(eventTime - mDownTime, 0);
+        if (mSampleCount > 0) {
+            time = Math.max(time, mTimes[mSampleCount - 1]);
+        }
+        mTimes[mSampleCount] = time;
+        mXs[mSampleCount] = x;
+        mYs[mSampleCount] = y;
+        mSampleCount++;
+    }
+
+    private void finish() {
+        mRecording = false;
+        mLastRecording = new GestureRecording(mViewWidth, mViewHeight, mRowCount, mColumnCount,
+                mGrid, mInStealthMode, mHitFactor, mPathWidth, mDotNormalSize, mDotSelectedSize,
+                mDotAnimationDuration, mPathEndAnimationDuration, mEventCount,
+                Arrays.copyOf(mActions, mEventCount), Arrays.copyOf(mEventStarts, mEventCount + 1),
+                Arrays.copyOf(mTimes, mSampleCount), Arrays.copyOf(mXs, mSampleCount),
+                Arrays.copyOf(mYs, mSampleCount));
+        if (mListener != null) {
+            mListener.onGestureRecorded(mLastRecording);
+        }
+    }
+
+    private void ensureCapacity(int eventCount, int sampleCount) {
+        if (mActions.length < eventCount) {
+            int capacity = Math.max(eventCount, mActions.length * 2);
+            mActions = Arrays.copyOf(mActions, capacity);
+            mEventStarts = Arrays.copyOf(mEventStarts, capacity + 1);
+        }
+        if (mTimes.length < sampleCount) {
+            int capacity = Math.max(sampleCount, mTimes.length * 2);
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mXs = Arrays.copyOf(mXs, capacity);
+            mYs = Arrays.copyOf(mYs, capacity);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.andrognito.patternlockview.replay;
+
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+
+import com.andrognito.patternlockview.PatternLockView;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A gesture made on a {@link PatternLockView}, from the finger going down to it being lifted,
+ * along with the size and configuration of the view it was made on. Recorded by a
+ * {@link GestureRecorder} and played back by a {@link GestureReplayer}.
+ * <p>
+ * Each event keeps its historical samples, in order, followed by its current sample. Times are
+ * in milliseconds since the finger went down.
+ * <p>
+ * The binary form is compact enough to collect from the field. All numbers are big endian and
+ * varints are unsigned LEB128.
+ * <pre>
+ * size    field
+ *    4    magic, "PLGR"
+ *    1    version
+ * varint  view width, view height
+ * varint  row count, column count
+ *    1    flags, 1 if the dots are a grid and 2 if the view is in stealth mode
+ *    4    hit factor, as a float
+ * varint  path width, dot normal size, dot selected size
+ * varint  dot animation duration, path end animation duration
+ * varint  event count
+ *         then for every event:
+ *    1      action
+ * varint    sample count
+ *           then for every sample:
+ * varint      time since the previous sample (since the finger went down for the first one)
+ *    8        x and y, as floats
+ * </pre>
+ */
+public final class GestureRecording {
+
+    static final int MAGIC = 0x504C4752;
+    static final int VERSION = 1;
+
+    private static final int FLAG_GRID = 1;
+    private static final int FLAG_STEALTH_MODE = 2;
+
+    private final int mViewWidth;
+    private final int mViewHeight;
+    private final int mRowCount;
+    private final int mColumnCount;
+    private final boolean mGrid;
+    private final boolean mInStealthMode;
+    private final float mHitFactor;
+    private final int mPathWidth;
+    private final int mDotNormalSize;
+    private final int mDotSelectedSize;
+    private final int mDotAnimationDuration;
+    private final int mPathEndAnimationDuration;
+
+    private final int mEventCount;
+    private final byte[] mActions;
+    // The index of the first sample of each event, followed by the total number of samples
+    private final int[] mEventStarts;
+    private final int[] mTimes;
+    private final float[] mXs;
+    private final float[] mYs;
+
+    GestureRecording(int viewWidth, int viewHeight, int rowCount, int columnCount, boolean grid,
+                     boolean inStealthMode, float hitFactor, int pathWidth, int dotNormalSize,
+                     int dotSelectedSize, int dotAnimationDuration, int pathEndAnimationDuration,
+                     int eventCount, byte[] actions, int[] eventStarts, int[] times, float[] xs,
+                     float[] ys) {
+        mViewWidth = viewWidth;
+        mViewHeight = viewHeight;
+        mRowCount = rowCount;
+        mColumnCount = columnCount;
+        mGrid = grid;
+        mInStealthMode = inStealthMode;
+        mHitFactor = hitFactor;
+        mPathWidth = pathWidth;
+        mDotNormalSize = dotNormalSize;
+        mDotSelectedSize = dotSelectedSize;
+        mDotAnimationDuration = dotAnimationDuration;
+        mPathEndAnimationDuration = pathEndAnimationDuration;
+        mEventCount = eventCount;
+        mActions = actions;
+        mEventStarts = eventStarts;
+        mTimes = times;
+        mXs = xs;
+        mYs = ys;
+    }
+
+    public int getViewWidth() {
+        return mViewWidth;
+    }
+
+    public int getViewHeight() {
+        return mViewHeight;
+    }
+
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    public int getColumnCount() {
+        return mColumnCount;
+    }
+
+    /**
+     * Whether the dots were laid out as a grid. Other layouts can't be restored from a recording
+     */
+    public boolean isGrid() {
+        return mGrid;
+    }
+
+    public boolean isInStealthMode() {
+        return mInStealthMode;
+    }
+
+    public float getHitFactor() {
+        return mHitFactor;
+    }
+
+    public int getPathWidth() {
+        return mPathWidth;
+    }
+
+    public int getDotNormalSize() {
+        return mDotNormalSize;
+    }
+
+    public int getDotSelectedSize() {
+        return mDotSelectedSize;
+    }
+
+    public int getDotAnimationDuration() {
+        return mDotAnimationDuration;
+    }
+
+    public int getPathEndAnimationDuration() {
+        return mPathEndAnimationDuration;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    /**
+     * The action of an event, one of {@link MotionEvent#ACTION_DOWN},
+     * {@link MotionEvent#ACTION_MOVE}, {@link MotionEvent#ACTION_UP} and
+     * {@link MotionEvent#ACTION_CANCEL}
+     */
+    public int getAction(int event) {
+        return mActions[event];
+    }
+
+    /**
+     * The number of samples of an event, which is its history size plus one
+     */
+    public int getSampleCount(int event) {
+        return mEventStarts[event + 1] - mEventStarts[event];
+    }
+
+    /**
+     * The time of a sample, in milliseconds since the finger went down
+     */
+    public long getSampleTime(int event, int sample) {
+        return mTimes[mEventStarts[event] + sample];
+    }
+
+    public float getX(int event, int sample) {
+        return mXs[mEventStarts[event] + sample];
+    }
+
+    public float getY(int event, int sample) {
+        return mYs[mEventStarts[event] + sample];
+    }
+
+    /**
+     * The time from the finger going down to the last event, in milliseconds
+     */
+    public long getDuration() {
+        int sampleCount = mEventStarts[mEventCount];
+        return sampleCount == 0 ? 0 : mTimes[sampleCount - 1];
+    }
+
+    /**
+     * Configures a view the way the view this was recorded on was configured, except for its size
+     * and for layouts other than grids
+     */
+    public void applyConfig(@NonNull PatternLockView view) {
+        PatternLockView.Editor editor = view.edit()
+                .setInStealthMode(mInStealthMode)
+                .setPathWidth(mPathWidth)
+                .setDotNormalSize(mDotNormalSize)
+                .setDotSelectedSize(mDotSelectedSize)
+                .setDotAnimationDuration(mDotAnimationDuration)
+                .setPathEndAnimationDuration(mPathEndAnimationDuration);
+        if (mGrid) {
+            editor.setMatrixSize(mRowCount, mColumnCount);
+        }
+        editor.apply();
+        view.getDotLayout().setHitFactor(mHitFactor);
+    }
+
+    public void writeTo(@NonNull OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        writeVarint(data, mViewWidth);
+        writeVarint(data, mViewHeight);
+        writeVarint(data, mRowCount);
+        writeVarint(data, mColumnCount);
+        data.writeByte((mGrid ? FLAG_GRID : 0) | (mInStealthMode ? FLAG_STEALTH_MODE : 0));
+        data.writeFloat(mHitFactor);
+        writeVarint(data, mPathWidth);
+        writeVarint(data, mDotNormalSize);
+        writeVarint(data, mDotSelectedSize);
+        writeVarint(data, mDotAnimationDuration);
+        writeVarint(data, mPathEndAnimationDuration);
+        writeVarint(data, mEventCount);
+        int previousTime = 0;
+        for (int event = 0; event < mEventCount; event++) {
+            data.writeByte(mActions[event]);
+            writeVarint(data, getSampleCount(event));
+            for (int sample = mEventStarts[event]; sample < mEventStarts[event + 1]; sample++) {
+                writeVarint(data, mTimes[sample] - previousTime);
+                data.writeFloat(mXs[sample]);
+                data.writeFloat(mYs[sample]);
+                previousTime = mTimes[sample];
+            }
+        }
+        data.flush();
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + 9 * mEventStarts[mEventCount]);
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            // Not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads a recording written by {@link #writeTo(OutputStream)}
+     *
+     * @throws IOException If the stream ends early or doesn't hold a recording of a supported
+     *                     version
+     */
+    public static GestureRecording readFrom(@NonNull InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a gesture recording");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported gesture recording version " + version);
+        }
+        int viewWidth = readVarint(data);
+        int viewHeight = readVarint(data);
+        int rowCount = readVarint(data);
+        int columnCount = readVarint(data);
+        int flags = data.readUnsignedByte();
+        float hitFactor = data.readFloat();
+        int pathWidth = readVarint(data);
+        int dotNormalSize = readVarint(data);
+        int dotSelectedSize = readVarint(data);
+        int dotAnimationDuration = readVarint(data);
+        int pathEndAnimationDuration = readVarint(data);
+
+        int eventCount = readVarint(data);
+        // Every array is grown as events and samples are read, rather than sized from the counts,
+        // so that a corrupt count ends the stream early instead of allocating a huge array
+        byte[] actions = new byte[Math.min(eventCount, 64)];
+        int[] eventStarts = new int[actions.length + 1];
+        int[] times = new int[Math.min(eventCount, 1024)];
+        float[] xs = new float[times.length];
+        float[] ys = new float[times.length];
+        int sampleCount = 0;
+        int time = 0;
+        for (int event = 0; event < eventCount; event++) {
+            if (event == actions.length) {
+                int capacity = Math.min(Math.max(16, event * 2), eventCount);
+                actions = Arrays.copyOf(actions, capacity);
+                eventStarts = Arrays.copyOf(eventStarts, capacity + 1);
+            }
+            actions[event] = (byte) readAction(data);
+            eventStarts[event] = sampleCount;
+            int eventSamples = readVarint(data);
+            if (eventSamples == 0) {
+                throw new IOException("Event " + event + " has no samples");
+            }
+            for (int sample = 0; sample < eventSamples; sample++) {
+                if (sampleCount == times.length) {
+                    int capacity = Math.max(16, sampleCount * 2);
+                    times = Arrays.copyOf(times, capacity);
+                    xs = Arrays.copyOf(xs, capacity);
+                    ys = Arrays.copyOf(ys, capacity);
+                }
+                time += readVarint(data);
+                times[sampleCount] = time;
+                xs[sampleCount] = data.readFloat();
+                ys[sampleCount] = data.readFloat();
+                sampleCount++;
+            }
+        }
+        eventStarts[eventCount] = sampleCount;
+        return new GestureRecording(viewWidth, viewHeight, rowCount, columnCount,
+                (flags & FLAG_GRID) != 0, (flags & FLAG_STEALTH_MODE) != 0, hitFactor, pathWidth,
+                dotNormalSize, dotSelectedSize, dotAnimationDuration, pathEndAnimationDuration,
+                eventCount, actions, eventStarts, times, xs, ys);
+    }
+
+    public static GestureRecording fromByteArray(@NonNull byte[] bytes) throws IOException {
+        return readFrom(new ByteArrayInputStream(bytes));
+    }
+
+    private static int readAction(DataInputStream data) throws IOException {
+        int action = data.readUnsignedByte();
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                return action;
+            default:
+                throw new IOException("Unsupported action " + action);
+        }
+    }
+
+    private static void writeVarint(DataOutputStream data, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            data.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Negative varint");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,193 @@
+package com.andrognito.patternlockview.replay;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.MotionEvent;
+
+import com.andrognito.patternlockview.PatternLockClock;
+import com.andrognito.patternlockview.PatternLockFrameScheduler;
+import com.andrognito.patternlockview.PatternLockView;
+
+/**
+ * Plays a {@link GestureRecording} back into a {@link PatternLockView}, through the same
+ * {@code dispatchTouchEvent} path as real input. Coordinates are scaled when the view isn't the
+ * size the gesture was recorded on, and the view should be configured like the original one,
+ * see {@link GestureRecording#applyConfig(PatternLockView)}.
+ * <p>
+ * A replay either runs at once with {@link #replayNow()}, which is how regression suites go
+ * through thousands of gestures, or over time with {@link #start()}. Either way the events carry
+ * the times they would have at the chosen speed, taken from the clock when the replay starts, so
+ * the same recording always produces the same events.
+ */
+public class GestureReplayer {
+
+    /**
+     * Notified when a replay started with {@link GestureReplayer#start()} has dispatched its last
+     * event
+     */
+    public interface OnReplayFinishedListener {
+
+        void onReplayFinished(GestureReplayer replayer);
+    }
+
+    private final PatternLockView mView;
+    private final GestureRecording mRecording;
+    // The frame scheduler of the view unless set
+    private PatternLockClock mClock;
+    private float mSpeed = 1f;
+    private OnReplayFinishedListener mListener;
+
+    private boolean mRunning;
+    private long mStartTime;
+    private int mNextEvent;
+    private float mScaleX;
+    private float mScaleY;
+
+    private final Runnable mFrame = new Runnable() {
+
+        @Override
+        public void run() {
+            if (!mRunning) {
+                return;
+            }
+            long elapsed = getClock().uptimeMillis() - mStartTime;
+            int eventCount = mRecording.getEventCount();
+            while (mNextEvent < eventCount && scaleTime(getEventTime(mNextEvent)) <= elapsed) {
+                dispatchEvent(mNextEvent++);
+            }
+            if (mNextEvent < eventCount) {
+                mView.getFrameScheduler().postFrameCallback(this);
+            } else {
+                mRunning = false;
+                if (mListener != null) {
+                    mListener.onReplayFinished(GestureReplayer.this);
+                }
+            }
+        }
+    };
+
+    public GestureReplayer(@NonNull PatternLockView view, @NonNull GestureRecording recording) {
+        mView = view;
+        mRecording = recording;
+    }
+
+    /**
+     * Sets the clock replays are timed with. By default, it is the frame scheduler of the view,
+     * see {@link PatternLockView#setFrameScheduler(PatternLockFrameScheduler)}
+     */
+    public void setClock(@Nullable PatternLockClock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Sets how much faster than the original gesture replays run, {@code 1} being the original
+     * speed
+     */
+    public void setSpeed(float speed) {
+        if (!(speed > 0f)) {
+            throw new IllegalArgumentException("Speed must be greater than 0");
+        }
+        mSpeed = speed;
+    }
+
+    public void setOnReplayFinishedListener(@Nullable OnReplayFinishedListener listener) {
+        mListener = listener;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Dispatches every event of the recording right away
+     */
+    public void replayNow() {
+        cancel();
+        prepare();
+        for (int event = 0; event < mRecording.getEventCount(); event++) {
+            dispatchEvent(event);
+        }
+    }
+
+    /**
+     * Starts dispatching the events of the recording on the animation frames of the view, each
+     * one once the clock has reached its time
+     */
+    public void start() {
+        cancel();
+        prepare();
+        mRunning = true;
+        mFrame.run();
+    }
+
+    /**
+     * Stops a replay started with {@link #start()}. A gesture stopped halfway is cancelled, so
+     * that the view doesn't wait for the finger to be lifted
+     */
+    public void cancel() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mView.getFrameScheduler().removeFrameCallback(mFrame);
+        if (mNextEvent > 0) {
+            int lastEvent = mNextEvent - 1;
+            MotionEvent event = MotionEvent.obtain(mStartTime,
+                    mStartTime + scaleTime(getEventTime(lastEvent)), MotionEvent.ACTION_CANCEL,
+                    scaleX(lastEvent), scaleY(lastEvent), 0);
+            mView.dispatchTouchEvent(event);
+            event.recycle();
+        }
+    }
+
+    private void prepare() {
+        if (mView.getWidth() == 0 || mView.getHeight() == 0) {
+            throw new IllegalStateException("The view must be laid out before replaying into it");
+        }
+        mScaleX = mRecording.getViewWidth() == 0
+                ? 1f : (float) mView.getWidth() / mRecording.getViewWidth();
+        mScaleY = mRecording.getViewHeight() == 0
+                ? 1f : (float) mView.getHeight() / mRecording.getViewHeight();
+        mStartTime = getClock().uptimeMillis();
+        mNextEvent = 0;
+    }
+
+    private void dispatchEvent(int event) {
+        int action = mRecording.getAction(event);
+        int sampleCount = mRecording.getSampleCount(event);
+        MotionEvent motionEvent = MotionEvent.obtain(mStartTime,
+                mStartTime + scaleTime(mRecording.getSampleTime(event, 0)), action,
+                mRecording.getX(event, 0) * mScaleX, mRecording.getY(event, 0) * mScaleY, 0);
+        // Every sample but the last one ends up in the history of the event
+        for (int sample = 1; sample < sampleCount; sample++) {
+            motionEvent.addBatch(mStartTime + scaleTime(mRecording.getSampleTime(event, sample)),
+                    mRecording.getX(event, sample) * mScaleX,
+                    mRecording.getY(event, sample) * mScaleY, 1f, 1f, 0);
+        }
+        mView.dispatchTouchEvent(motionEvent);
+        motionEvent.recycle();
+    }
+
+    private PatternLockClock getClock() {
+        return mClock != null ? mClock : mView.getFrameScheduler();
+    }
+
+    /**
+     * The time of the current sample of an event
+     */
+    private long getEventTime(int event) {
+        return mRecording.getSampleTime(event, mRecording.getSampleCount(event) - 1);
+    }
+
+    private float scaleX(int event) {
+        return mRecording.getX(event, mRecording.getSampleCount(event) - 1) * mScaleX;
+    }
+
+    private float scaleY(int event) {
+        return mRecording.getY(event, mRecording.getSampleCount(event) - 1) * mScaleY;
+    }
+
+    private long scaleTime(long time) {
+        return (long) (time / mSpeed);
+    }
+}
@@ -17,21 +17,21 @@
 package com.andrognito.patternlockview.utils;
 
 import com.andrognito.patternlockview.PatternLockView;
+import com.andrognito.patternlockview.core.PatternCodec;
+import com.andrognito.patternlockview.core.PatternGenerator;
+import com.andrognito.patternlockview.core.PatternHasher;
+import com.andrognito.patternlockview.core.WidePattern;
 
-import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
+/**
+ * Android facing helpers for {@link PatternLockView.Dot} patterns. The actual encoding, hashing
+ * and generation live in the platform independent {@code patternlockview-core} module, so
+ * patterns can be re-validated on a server with the exact same rules
+ */
 public class PatternLockUtils {
 
-    private static final String UTF8 = "UTF-8";
-    private static final String SHA1 = "SHA-1";
-    private static final String MD5 = "MD5";
-
     private PatternLockUtils() {
         throw new AssertionError("You can not instantiate this class. Use its static utility " +
                 "methods instead");
@@ -49,14 +49,7 @@ public class PatternLockUtils {
         if (pattern == null) {
             return "";
         }
-        int patternSize = pattern.size();
-        StringBuilder stringBuilder = new StringBuilder();
-
-        for (int i = 0; i < patternSize; i++) {
-            PatternLockView.Dot dot = pattern.get(i);
-            stringBuilder.append((dot.getRow() * patternLockView.getDotCount() + dot.getColumn()));
-        }
-        return stringBuilder.toString();
+        return PatternCodec.patternToString(toIds(pattern));
     }
 
     /**
@@ -67,12 +60,37 @@ public class PatternLockUtils {
      */
     public static List<PatternLockView.Dot> stringToPattern(PatternLockView patternLockView,
                                                             String string) {
-        List<PatternLockView.Dot> result = new ArrayList<>();
+        int[] ids = PatternCodec.stringToPattern(string);
+        List<PatternLockView.Dot> result = new ArrayList<>(ids.length);
+
+        for (int id : ids) {
+            result.add(patternLockView.getDot(id));
+        }
+        return result;
+    }
+
+    /**
+     * Packs a given pattern into one 16 bit {@code char} per dot. Unlike the string form, this
+     * stays unambiguous on matrices larger than {@code 3x3}
+     *
+     * @param pattern The actual pattern
+     * @return The pattern packed with {@link WidePattern}
+     */
+    public static char[] patternToWide(List<PatternLockView.Dot> pattern) {
+        if (pattern == null) {
+            return new char[0];
+        }
+        return WidePattern.pack(toIds(pattern), pattern.size());
+    }
 
-        for (int i = 0; i < string.length(); i++) {
-            int number = Character.getNumericValue(string.charAt(i));
-            result.add(PatternLockView.Dot.of(number / patternLockView.getDotCount(),
-                    number % patternLockView.getDotCount()));
+    /**
+     * Unpacks a pattern packed with {@link #patternToWide}, into dots of the given view
+     */
+    public static List<PatternLockView.Dot> wideToPattern(PatternLockView patternLockView,
+                                                          char[] packed) {
+        List<PatternLockView.Dot> result = new ArrayList<>(packed.length);
+        for (char id : packed) {
+            result.add(patternLockView.getDot(id));
         }
         return result;
     }
@@ -86,19 +104,7 @@ public class PatternLockUtils {
      */
     public static String patternToSha1(PatternLockView patternLockView,
                                        List<PatternLockView.Dot> pattern) {
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance(SHA1);
-            messageDigest.update(patternToString(patternLockView, pattern).getBytes(UTF8));
-
-            byte[] digest = messageDigest.digest();
-            BigInteger bigInteger = new BigInteger(1, digest);
-            return String.format((Locale) null,
-                    "%0" + (digest.length * 2) + "x", bigInteger).toLowerCase();
-        } catch (NoSuchAlgorithmException e) {
-            return null;
-        } catch (UnsupportedEncodingException e) {
-            return null;
-        }
+        return PatternHasher.sha1(patternToString(patternLockView, pattern));
     }
 
     /**
@@ -110,27 +116,17 @@ public class PatternLockUtils {
      */
     public static String patternToMD5(PatternLockView patternLockView,
                                       List<PatternLockView.Dot> pattern) {
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance(MD5);
-            messageDigest.update(patternToString(patternLockView, pattern).getBytes(UTF8));
-
-            byte[] digest = messageDigest.digest();
-            BigInteger bigInteger = new BigInteger(1, digest);
-            return String.format((Locale) null,
-                    "%0" + (digest.length * 2) + "x", bigInteger).toLowerCase();
-        } catch (NoSuchAlgorithmException e) {
-            return null;
-        } catch (UnsupportedEncodingException e) {
-            return null;
-        }
+        return PatternHasher.md5(patternToString(patternLockView, pattern));
     }
 
     /**
      * Generates a random "CAPTCHA" pattern. The generated pattern is easy for the user to re-draw.
      * <p>
-     * NOTE: This method is <b>not</b> optimized and <b>not</b> benchmarked yet for large mSize
-     * of the pattern's matrix. Currently it works fine with a matrix of {@code 3x3} cells.
-     * Be careful when the mSize increases. </p>
+     * Each dot is picked from the closest ring of free dots around the previous one, and used dots
+     * are tracked in a bitset, so large matrices stay cheap. It is measured on matrices of up to
+     * {@code 9x9} by {@code PatternGeneratorBenchmark}. </p>
+     *
+     * @see PatternGenerator#generateRandomPattern(int, int, int)
      */
     public static ArrayList<PatternLockView.Dot> generateRandomPattern(PatternLockView patternLockView,
                                                                        int size)
@@ -139,134 +135,23 @@ public class PatternLockUtils {
             throw new IllegalArgumentException("PatternLockView can not be null.");
         }
 
-        if (size <= 0 || size > patternLockView.getDotCount()) {
-            throw new IndexOutOfBoundsException("Size must be in range [1, " +
-                    patternLockView.getDotCount() + "]");
+        int[] ids = PatternGenerator.generateRandomPattern(patternLockView.getRowCount(),
+                patternLockView.getColumnCount(), size);
+        ArrayList<PatternLockView.Dot> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(patternLockView.getDot(id));
         }
 
-        List<Integer> usedIds = new ArrayList<>();
-        int lastId = RandomUtils.randInt(patternLockView.getDotCount());
-        usedIds.add(lastId);
-
-        while (usedIds.size() < size) {
-            // We start from an empty matrix, so there's always a break point to
-            // exit this loop
-            final int lastRow = lastId / patternLockView.getDotCount();
-            final int lastCol = lastId % patternLockView.getDotCount();
-
-            // This is the max available rows/ columns that we can reach from
-            // the cell of `lastId` to the border of the matrix.
-            final int maxDistance = Math.max(
-                    Math.max(lastRow, patternLockView.getDotCount() - lastRow),
-                    Math.max(lastCol, patternLockView.getDotCount() - lastCol));
-
-            lastId = -1;
-
-            // Starting from `distance` = 1, find the closest-available
-            // neighbour value of the cell [lastRow, lastCol].
-            for (int distance = 1; distance <= maxDistance; distance++) {
-
-                // Now we have a square surrounding the current cell. We call it
-                // ABCD, in which A is top-left, and C is bottom-right.
-                final int rowA = lastRow - distance;
-                final int colA = lastCol - distance;
-                final int rowC = lastRow + distance;
-                final int colC = lastCol + distance;
-
-                int[] randomValues;
-
-                // Process randomly AB, BC, CD, and DA. Break the loop as soon
-                // as we find one value.
-                final int[] lines = RandomUtils.randIntArray(4);
-                for (int line : lines) {
-                    switch (line) {
-                        case 0: {
-                            if (rowA >= 0) {
-                                randomValues = RandomUtils.randIntArray(Math.max(0, colA),
-                                        Math.min(patternLockView.getDotCount(),
-                                                colC + 1));
-                                for (int c : randomValues) {
-                                    lastId = rowA * patternLockView.getDotCount()
-                                            + c;
-                                    if (usedIds.contains(lastId))
-                                        lastId = -1;
-                                    else
-                                        break;
-                                }
-                            }
-
-                            break;
-                        }
-
-                        case 1: {
-                            if (colC < patternLockView.getDotCount()) {
-                                randomValues = RandomUtils.randIntArray(Math.max(0, rowA + 1),
-                                        Math.min(patternLockView.getDotCount(),
-                                                rowC + 1));
-                                for (int r : randomValues) {
-                                    lastId = r * patternLockView.getDotCount()
-                                            + colC;
-                                    if (usedIds.contains(lastId))
-                                        lastId = -1;
-                                    else
-                                        break;
-                                }
-                            }
-
-                            break;
-                        }
-
-                        case 2: {
-                            if (rowC < patternLockView.getDotCount()) {
-                                randomValues = RandomUtils.randIntArray(Math.max(0, colA),
-                                        Math.min(patternLockView.getDotCount(),
-                                                colC));
-                                for (int c : randomValues) {
-                                    lastId = rowC * patternLockView.getDotCount()
-                                            + c;
-                                    if (usedIds.contains(lastId))
-                                        lastId = -1;
-                                    else
-                                        break;
-                                }
-                            }
-
-                            break;
-                        }
-
-                        case 3: {
-                            if (colA >= 0) {
-                                randomValues = RandomUtils.randIntArray(Math.max(0, rowA + 1),
-                                        Math.min(patternLockView.getDotCount(),
-                                                rowC));
-                                for (int r : randomValues) {
-                                    lastId = r * patternLockView.getDotCount()
-                                            + colA;
-                                    if (usedIds.contains(lastId))
-                                        lastId = -1;
-                                    else
-                                        break;
-                                }
-                            }
-
-                            break;
-                        }
-                    }
-
-                    if (lastId >= 0) break;
-                }
-
-                if (lastId >= 0) break;
-            }
+        return result;
+    }
 
-            usedIds.add(lastId);
-        }
+    private static int[] toIds(List<PatternLockView.Dot> pattern) {
+        int patternSize = pattern.size();
+        int[] ids = new int[patternSize];
 
-        ArrayList<PatternLockView.Dot> result = new ArrayList<>();
-        for (int id : usedIds) {
-            result.add(PatternLockView.Dot.of(id));
+        for (int i = 0; i < patternSize; i++) {
+            ids[i] = pattern.get(i).getId();
         }
-
-        return result;
+        return ids;
     }
 }
@@ -0,0 +1,90 @@
+package com.andrognito.patternlockview;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails when steady-state input or drawing allocates. Once a gesture has been drawn, moving the
+ * finger, adding a dot, lifting the finger and drawing a frame must not create any garbage, so
+ * that a view left on screen for days never triggers a collection. The same goes for starting
+ * the animations of the dots and running their frames.
+ * <p>
+ * A path that allocates does so on every gesture, whereas the JIT may add a few bytes to one
+ * gesture while it swaps compiled code in. Each path is therefore checked against the gesture
+ * where it allocated the least.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class AllocationContractTest {
+
+    private static final int SAMPLES_PER_SEGMENT = 8;
+    // Loads the classes and creates the animations the gestures use
+    private static final int WARM_UP_GESTURES = 2;
+    private static final int MEASURED_GESTURES = 3;
+
+    /**
+     * A Z across the default matrix, whose dots and segments animate
+     */
+    @Test
+    public void zOn3x3() {
+        checkContract(3, new int[]{0, 1, 2, 4, 6, 7, 8});
+    }
+
+    /**
+     * Every dot of the largest matrix that still animates its dots, row by row
+     */
+    @Test
+    public void snakeOn6x6() {
+        checkContract(6, DrawBudgetTest.snake(6));
+    }
+
+    /**
+     * Every dot of a matrix drawn in the large grid mode, where nothing animates
+     */
+    @Test
+    public void snakeOn9x9() {
+        checkContract(9, DrawBudgetTest.snake(9));
+    }
+
+    private void checkContract(int dotCount, int[] dotIds) {
+        assumeTrue("The JVM doesn't measure allocations", DrawCostHarness.canMeasureAllocations());
+        DrawCostHarness harness = new DrawCostHarness(dotCount);
+        for (int i = 0; i < WARM_UP_GESTURES; i++) {
+            harness.drawGesture(dotIds, SAMPLES_PER_SEGMENT);
+        }
+        DrawCostHarness.Stats least = harness.drawGesture(dotIds, SAMPLES_PER_SEGMENT);
+        for (int i = 1; i < MEASURED_GESTURES; i++) {
+            DrawCostHarness.Stats stats = harness.drawGesture(dotIds, SAMPLES_PER_SEGMENT);
+            least.maxMoveBytes = Math.min(least.maxMoveBytes, stats.maxMoveBytes);
+            least.maxDotAddedBytes = Math.min(least.maxDotAddedBytes, stats.maxDotAddedBytes);
+            least.maxLiftBytes = Math.min(least.maxLiftBytes, stats.maxLiftBytes);
+            least.maxAnimationBytes = Math.min(least.maxAnimationBytes, stats.maxAnimationBytes);
+            least.maxAllocatedBytes = Math.min(least.maxAllocatedBytes, stats.maxAllocatedBytes);
+        }
+        String scenario = dotCount + "x" + dotCount;
+        System.out.println(scenario + ": " + least.toAllocationString());
+
+        List<String> exceeded = new ArrayList<>();
+        check(exceeded, "move", least.maxMoveBytes);
+        check(exceeded, "dot added", least.maxDotAddedBytes);
+        check(exceeded, "lift", least.maxLiftBytes);
+        check(exceeded, "animation frame", least.maxAnimationBytes);
+        check(exceeded, "draw", least.maxAllocatedBytes);
+        assertTrue(scenario + " allocates: " + exceeded + ", measured "
+                + least.toAllocationString(), exceeded.isEmpty());
+    }
+
+    private static void check(List<String> exceeded, String path, long bytes) {
+        if (bytes > 0) {
+            exceeded.add(path + " " + bytes + " B");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.andrognito.patternlockview;
+
+import android.view.animation.AccelerateInterpolator;
+
+import com.andrognito.patternlockview.core.PatternLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks where the AUTO_DRAW path is over time, on a 3x3 grid whose cells are 100 pixels wide
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class AutoDrawTimelineTest {
+
+    private static final int VIEW_SIZE = 300;
+    private static final long HOLD = 700;
+    // One pixel per millisecond
+    private static final float SPEED = 10f;
+    private static final float DELTA = 0.01f;
+
+    private final AutoDrawTimeline mTimeline = new AutoDrawTimeline();
+    private PatternLockView mView;
+    private PatternLayout mLayout;
+
+    @Before
+    public void setUp() {
+        mView = TestViews.createView(VIEW_SIZE, null);
+        mLayout = mView.getDotLayout();
+    }
+
+    @Test
+    public void pathMovesAtConstantSpeed() {
+        // A step to a neighbour, then a diagonal about 141 pixels long
+        mTimeline.build(mLayout, pattern(0, 1, 5), SPEED, 0, HOLD, null);
+        assertEquals(HOLD + 100 + 141 + HOLD, mTimeline.getCycleDuration());
+
+        seek(HOLD - 1, 0, 50, 50);
+        seek(HOLD, 1, 50, 50);
+        seek(HOLD + 50, 1, 100, 50);
+        seek(HOLD + 100, 2, 150, 50);
+        seek(HOLD + 100 + 141 / 2, 2, 199.65f, 99.65f);
+        seek(HOLD + 100 + 141, 3, 250, 150);
+        // The complete pattern is held until the cycle ends
+        seek(mTimeline.getCycleDuration() - 1, 3, 250, 150);
+    }
+
+    @Test
+    public void pathPausesOnEveryDot() {
+        mTimeline.build(mLayout, pattern(0, 1, 2), SPEED, 40, HOLD, null);
+        assertEquals(HOLD + 2 * (40 + 100) + HOLD, mTimeline.getCycleDuration());
+
+        seek(HOLD + 40, 1, 50, 50);
+        seek(HOLD + 40 + 50, 1, 100, 50);
+        seek(HOLD + 140, 2, 150, 50);
+        seek(HOLD + 140 + 40, 2, 150, 50);
+        seek(HOLD + 140 + 40 + 25, 2, 175, 50);
+    }
+
+    @Test
+    public void segmentsAreEased() {
+        mTimeline.build(mLayout, pattern(0, 1), SPEED, 0, HOLD,
+                new AccelerateInterpolator());
+        // A quarter of the way on the clock is a sixteenth of the way along the segment
+        seek(HOLD + 25, 1, 50 + 100 / 16f, 50);
+    }
+
+    @Test
+    public void timeWrapsAroundEveryCycle() {
+        mTimeline.build(mLayout, pattern(4, 0), SPEED, 0, HOLD, null);
+        long cycle = mTimeline.getCycleDuration();
+        // The diagonal takes 141 milliseconds
+        seek(3 * cycle + HOLD + 70, 1, 150 - 100 * 70 / 141f, 150 - 100 * 70 / 141f);
+        seek(3 * cycle, 0, 150, 150);
+    }
+
+    @Test
+    public void timelineIsStaleOnceTheDotsMove() {
+        mTimeline.build(mLayout, pattern(0, 1), SPEED, 0, HOLD, null);
+        assertEquals(false, mTimeline.isStale(mLayout));
+        mLayout.setBounds(0, 0, 600, 600);
+        assertEquals(true, mTimeline.isStale(mLayout));
+    }
+
+    private void seek(long time, int reachedCount, float x, float y) {
+        mTimeline.seek(time);
+        assertEquals(reachedCount, mTimeline.getReachedCount());
+        assertEquals(x, mTimeline.getX(), DELTA);
+        assertEquals(y, mTimeline.getY(), DELTA);
+    }
+
+    private List<PatternLockView.Dot> pattern(int... ids) {
+        PatternLockView.Dot[] dots = new PatternLockView.Dot[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            dots[i] = mView.getDot(ids[i]);
+        }
+        return Arrays.asList(dots);
+    }
+}
@@ -0,0 +1,51 @@
+package com.andrognito.patternlockview;
+
+import android.content.Context;
+import android.graphics.Rect;
+
+/**
+ * Keeps the union of everything the view invalidates, so that frames can be drawn with the clip
+ * they would get when drawing in software. The view is never attached, so invalidating does
+ * nothing else, and the shadow of {@code View} isn't called as it allocates.
+ */
+class DamageRecordingPatternLockView extends PatternLockView {
+
+    // Null while the view constructor runs, which may already invalidate
+    private final Rect mDamage = new Rect();
+
+    DamageRecordingPatternLockView(Context context) {
+        super(context);
+    }
+
+    @Override
+    public void invalidate() {
+        if (mDamage != null) {
+            mDamage.set(0, 0, getWidth(), getHeight());
+        }
+    }
+
+    @Override
+    public void invalidate(Rect dirty) {
+        if (mDamage != null) {
+            mDamage.union(dirty);
+        }
+    }
+
+    @Override
+    public void invalidate(int l, int t, int r, int b) {
+        if (mDamage != null) {
+            mDamage.union(l, t, r, b);
+        }
+    }
+
+    /**
+     * Moves the damage since the last call into the given rectangle, clipped to the view
+     *
+     * @return Whether anything was damaged, and so a frame would be drawn
+     */
+    boolean takeDamage(Rect out) {
+        out.set(mDamage);
+        mDamage.setEmpty();
+        return out.intersect(0, 0, getWidth(), getHeight());
+    }
+}
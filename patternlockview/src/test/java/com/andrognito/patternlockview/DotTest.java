@@ -0,0 +1,89 @@
+package com.andrognito.patternlockview;
+
+import android.content.Context;
+import android.os.Parcel;
+
+import com.andrognito.patternlockview.utils.PatternLockUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Checks that the dots of views with different matrices keep their own ids
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class DotTest {
+
+    private PatternLockView mSmallView;
+    private PatternLockView mLargeView;
+
+    @Before
+    public void setUp() {
+        Context context = TestViews.createContext();
+        mSmallView = new PatternLockView(context);
+        mLargeView = new PatternLockView(context);
+        mLargeView.setMatrixSize(4, 5);
+    }
+
+    @Test
+    public void dotsAreIdentifiedInTheirOwnMatrix() {
+        assertEquals(4, mSmallView.getDot(1, 1).getId());
+        assertEquals(6, mLargeView.getDot(1, 1).getId());
+        assertEquals(mSmallView.getDot(4), mSmallView.getDot(1, 1));
+        assertNotEquals(mSmallView.getDot(1, 1), mLargeView.getDot(1, 1));
+
+        PatternLockView.Dot last = mLargeView.getDot(19);
+        assertEquals(3, last.getRow());
+        assertEquals(4, last.getColumn());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecatedFactoriesUseTheViewThatSetItsMatrixLast() {
+        assertEquals(mLargeView.getDot(6), PatternLockView.Dot.of(1, 1));
+        assertEquals(mLargeView.getDot(6), PatternLockView.Dot.of(6));
+    }
+
+    @Test
+    public void dotsSurviveParcels() {
+        Parcel parcel = Parcel.obtain();
+        mLargeView.getDot(7).writeToParcel(parcel, 0);
+        // As written by older versions, with only the column and row
+        parcel.writeInt(2);
+        parcel.writeInt(3);
+        parcel.setDataPosition(0);
+
+        assertEquals(mLargeView.getDot(7), PatternLockView.Dot.CREATOR.createFromParcel(parcel));
+        assertEquals(mLargeView.getDot(3, 2),
+                PatternLockView.Dot.CREATOR.createFromParcel(parcel));
+        parcel.recycle();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dotOutOfTheMatrixIsRejected() {
+        mSmallView.getDot(9);
+    }
+
+    @Test
+    public void patternsAreConvertedWithTheDotsOfTheirView() {
+        List<PatternLockView.Dot> pattern = Arrays.asList(mLargeView.getDot(19),
+                mLargeView.getDot(6), mLargeView.getDot(0));
+        assertEquals(pattern, PatternLockUtils.wideToPattern(mLargeView,
+                PatternLockUtils.patternToWide(pattern)));
+
+        List<PatternLockView.Dot> small = PatternLockUtils.stringToPattern(mSmallView, "048");
+        assertEquals(2, small.get(2).getRow());
+        assertEquals(2, small.get(2).getColumn());
+        assertEquals("048", PatternLockUtils.patternToString(mSmallView, small));
+    }
+}
@@ -0,0 +1,113 @@
+package com.andrognito.patternlockview;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails when drawing a scripted gesture costs more draw calls, paint state changes or allocations
+ * per frame than the budgets checked in to {@code draw-budgets.properties}.
+ * <p>
+ * A regression in the dot or path loops of {@code onDraw}, such as dots no longer being batched,
+ * shows up here before it shows up on a device. When a change is intended, update the budgets
+ * from the numbers this test prints.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class DrawBudgetTest {
+
+    private static final String BUDGETS = "/draw-budgets.properties";
+    private static final int SAMPLES_PER_SEGMENT = 8;
+
+    private final Properties mBudgets = new Properties();
+
+    @Before
+    public void setUp() throws IOException {
+        InputStream in = DrawBudgetTest.class.getResourceAsStream(BUDGETS);
+        try {
+            mBudgets.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A Z across the default matrix
+     */
+    @Test
+    public void zOn3x3() {
+        checkBudgets("zOn3x3", 3, new int[]{0, 1, 2, 4, 6, 7, 8});
+    }
+
+    /**
+     * Every dot of the largest matrix that still animates its dots, row by row
+     */
+    @Test
+    public void snakeOn6x6() {
+        checkBudgets("snakeOn6x6", 6, snake(6));
+    }
+
+    /**
+     * Every dot of a matrix drawn in the large grid mode, row by row
+     */
+    @Test
+    public void snakeOn9x9() {
+        checkBudgets("snakeOn9x9", 9, snake(9));
+    }
+
+    /**
+     * The ids of every dot, left to right on even rows and right to left on odd ones
+     */
+    static int[] snake(int dotCount) {
+        int[] ids = new int[dotCount * dotCount];
+        for (int row = 0; row < dotCount; row++) {
+            for (int column = 0; column < dotCount; column++) {
+                int id = row * dotCount + (row % 2 == 0 ? column : dotCount - 1 - column);
+                ids[row * dotCount + column] = id;
+            }
+        }
+        return ids;
+    }
+
+    private void checkBudgets(String scenario, int dotCount, int[] dotIds) {
+        DrawCostHarness harness = new DrawCostHarness(dotCount);
+        // Loads the classes used while drawing, which would otherwise count as allocations
+        harness.drawGesture(dotIds, SAMPLES_PER_SEGMENT);
+        DrawCostHarness.Stats stats = harness.drawGesture(dotIds, SAMPLES_PER_SEGMENT);
+        System.out.println(scenario + ": " + stats);
+
+        List<String> exceeded = new ArrayList<>();
+        check(exceeded, scenario, "maxDrawCallsPerFrame", stats.maxDrawCalls);
+        check(exceeded, scenario, "maxPaintChangesPerFrame", stats.maxPaintChanges);
+        check(exceeded, scenario, "totalDrawCalls", stats.drawCalls);
+        assertTrue(scenario + " is over budget: " + exceeded + ", measured " + stats,
+                exceeded.isEmpty());
+
+        // Allocations read as 0 bytes when the JVM doesn't measure them, which would always pass
+        assumeTrue("The JVM doesn't measure allocations", DrawCostHarness.canMeasureAllocations());
+        check(exceeded, scenario, "allocatedBytesPerFrame", stats.allocatedBytes / stats.frames);
+        assertTrue(scenario + " is over budget: " + exceeded + ", measured " + stats,
+                exceeded.isEmpty());
+    }
+
+    private void check(List<String> exceeded, String scenario, String metric, long value) {
+        String budget = mBudgets.getProperty(scenario + "." + metric);
+        if (budget == null) {
+            throw new IllegalStateException("No budget for " + scenario + "." + metric);
+        }
+        if (value > Long.parseLong(budget)) {
+            exceeded.add(metric + " " + value + " > " + budget);
+        }
+    }
+}
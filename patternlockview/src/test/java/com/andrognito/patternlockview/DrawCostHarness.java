@@ -0,0 +1,230 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Rect;
+import android.view.MotionEvent;
+
+import com.andrognito.patternlockview.listener.PatternLockViewListener;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Drives a {@link PatternLockView} through a scripted gesture, one touch sample per frame, and
+ * measures what {@code onDraw} issues in every frame that has damage.
+ * <p>
+ * Each frame is drawn with the damaged area as its clip, the way the view is drawn in software,
+ * into a {@link DrawOpRecorder}. The view is timed by a {@link ManualFrameScheduler}, which
+ * advances animations by one frame between touch samples and plays them to the end after the
+ * finger is lifted.
+ * <p>
+ * Allocations are the bytes the JVM allocates on the main thread while handling each touch
+ * event, running the animations of a frame and drawing it. They include the allocations of
+ * Robolectric's shadows, so run the tests with {@link LeanShadowPath}, and of classes loaded on
+ * first use, so draw a gesture once to warm up before measuring it.
+ */
+class DrawCostHarness {
+
+    static final int VIEW_SIZE = 1080;
+    // Longer than any animation of the view
+    private static final int MAX_SETTLE_FRAMES = 120;
+
+    private final DamageRecordingPatternLockView mView;
+    private final DrawOpRecorder mCanvas = new DrawOpRecorder();
+    private final Rect mClip = new Rect();
+    private final ThreadMXBean mThreads = ManagementFactory.getThreadMXBean();
+    private final ManualFrameScheduler mFrames = new ManualFrameScheduler();
+    private Stats mStats = new Stats();
+    private long mDownTime;
+    // Counted by a listener, as reading the pattern of the view would allocate a copy
+    private int mDotsAdded;
+
+    DrawCostHarness(int dotCount) {
+        mView = new DamageRecordingPatternLockView(TestViews.createContext());
+        mView.setFrameScheduler(mFrames);
+        mView.setDotCount(dotCount);
+        mView.addPatternLockListener(new PatternLockViewListener() {
+
+            @Override
+            public void onStarted() {
+            }
+
+            @Override
+            public void onProgress(List<PatternLockView.Dot> progressPattern) {
+                mDotsAdded++;
+            }
+
+            @Override
+            public void onComplete(List<PatternLockView.Dot> pattern) {
+            }
+
+            @Override
+            public void onCleared() {
+            }
+        });
+        TestViews.layout(mView, VIEW_SIZE);
+        // The first frame draws the whole view
+        mView.invalidate();
+        drawFrame();
+    }
+
+    PatternLockView getView() {
+        return mView;
+    }
+
+    /**
+     * Draws a gesture through the centers of the given dots, with the given number of touch
+     * samples between consecutive dots
+     *
+     * @return The stats of the frames drawn for this gesture
+     */
+    Stats drawGesture(int[] dotIds, int samplesPerSegment) {
+        mStats = new Stats();
+        int columnCount = mView.getColumnCount();
+        float cellSize = (float) VIEW_SIZE / columnCount;
+        float lastX = centerOf(dotIds[0] % columnCount, cellSize);
+        float lastY = centerOf(dotIds[0] / columnCount, cellSize);
+
+        mDownTime = mFrames.uptimeMillis();
+        dispatch(MotionEvent.ACTION_DOWN, lastX, lastY);
+        for (int i = 1; i < dotIds.length; i++) {
+            float x = centerOf(dotIds[i] % columnCount, cellSize);
+            float y = centerOf(dotIds[i] / columnCount, cellSize);
+            for (int sample = 1; sample <= samplesPerSegment; sample++) {
+                float t = (float) sample / samplesPerSegment;
+                dispatch(MotionEvent.ACTION_MOVE, lastX + t * (x - lastX), lastY + t * (y - lastY));
+            }
+            lastX = x;
+            lastY = y;
+        }
+        dispatch(MotionEvent.ACTION_UP, lastX, lastY);
+
+        for (int i = 0; i < MAX_SETTLE_FRAMES; i++) {
+            advanceFrame();
+        }
+        return mStats;
+    }
+
+    private static float centerOf(int cell, float cellSize) {
+        return cell * cellSize + cellSize / 2f;
+    }
+
+    private void dispatch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(mDownTime, mFrames.uptimeMillis(), action, x, y,
+                0);
+        int dotsAdded = mDotsAdded;
+        long allocatedBefore = getAllocatedBytes();
+        mView.onTouchEvent(event);
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        event.recycle();
+        if (action == MotionEvent.ACTION_UP) {
+            mStats.maxLiftBytes = Math.max(mStats.maxLiftBytes, allocated);
+        } else if (mDotsAdded != dotsAdded) {
+            mStats.maxDotAddedBytes = Math.max(mStats.maxDotAddedBytes, allocated);
+        } else {
+            mStats.maxMoveBytes = Math.max(mStats.maxMoveBytes, allocated);
+        }
+        advanceFrame();
+    }
+
+    private void advanceFrame() {
+        long allocatedBefore = getAllocatedBytes();
+        mFrames.advanceFrame();
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        mStats.maxAnimationBytes = Math.max(mStats.maxAnimationBytes, allocated);
+        drawFrame();
+    }
+
+    private void drawFrame() {
+        if (!mView.takeDamage(mClip)) {
+            return;
+        }
+        mCanvas.beginFrame(mClip);
+        long allocatedBefore = getAllocatedBytes();
+        mView.onDraw(mCanvas);
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        mStats.addFrame(mCanvas, allocated);
+    }
+
+    /**
+     * Whether the JVM measures the bytes allocated by each thread. Without it, every allocation
+     * reads as 0 bytes, so allocation checks must be skipped
+     */
+    static boolean canMeasureAllocations() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        return allocations.isThreadAllocatedMemorySupported()
+                && allocations.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * The bytes allocated so far by the main thread, which is the thread running the test
+     */
+    private long getAllocatedBytes() {
+        if (mThreads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mThreads).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * The totals and per frame maximums of the frames drawn so far
+     */
+    static final class Stats {
+        int frames;
+        long drawCalls;
+        long paintChanges;
+        long allocatedBytes;
+        int maxDrawCalls;
+        int maxCircles;
+        int maxPaths;
+        int maxPoints;
+        int maxPaintChanges;
+        long maxAllocatedBytes;
+        // The most allocated while handling a touch event that adds no dot, one that adds dots,
+        // and the one that lifts the finger
+        long maxMoveBytes;
+        long maxDotAddedBytes;
+        long maxLiftBytes;
+        // The most allocated while running the animations of a frame
+        long maxAnimationBytes;
+
+        void addFrame(DrawOpRecorder canvas, long allocated) {
+            frames++;
+            drawCalls += canvas.getDrawCalls();
+            paintChanges += canvas.getPaintChanges();
+            allocatedBytes += allocated;
+            maxDrawCalls = Math.max(maxDrawCalls, canvas.getDrawCalls());
+            maxCircles = Math.max(maxCircles, canvas.getCircles());
+            maxPaths = Math.max(maxPaths, canvas.getPaths());
+            maxPoints = Math.max(maxPoints, canvas.getPoints());
+            maxPaintChanges = Math.max(maxPaintChanges, canvas.getPaintChanges());
+            maxAllocatedBytes = Math.max(maxAllocatedBytes, allocated);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d frames, %d draw calls (%.1f/frame, max %d: %d " +
+                            "circles, %d paths, %d points), paint changes %.1f/frame (max %d), " +
+                            "allocations %d B/frame (max %d)", frames, drawCalls,
+                    (double) drawCalls / frames, maxDrawCalls, maxCircles, maxPaths, maxPoints,
+                    (double) paintChanges / frames, maxPaintChanges, allocatedBytes / frames,
+                    maxAllocatedBytes);
+        }
+
+        /**
+         * The most allocated by every code path, in bytes
+         */
+        String toAllocationString() {
+            return String.format(Locale.US, "max per move %d, per dot added %d, per lift %d, " +
+                            "per animation frame %d, per draw %d (average %d)", maxMoveBytes,
+                    maxDotAddedBytes, maxLiftBytes, maxAnimationBytes, maxAllocatedBytes,
+                    frames == 0 ? 0 : allocatedBytes / frames);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+/**
+ * A canvas that counts the operations drawn into it instead of rasterizing them. A paint state
+ * change is counted whenever an operation draws with a different paint, color, stroke width or
+ * style than the operation before it, which is what breaks batching on the GPU.
+ */
+class DrawOpRecorder extends Canvas {
+
+    private final Rect mClip = new Rect();
+
+    private int mCircles;
+    private int mPaths;
+    private int mPoints;
+    private int mPaintChanges;
+
+    private Paint mLastPaint;
+    private int mLastColor;
+    private float mLastStrokeWidth;
+    private Paint.Style mLastStyle;
+
+    /**
+     * Starts counting a new frame, clipped to the given area
+     */
+    void beginFrame(Rect clip) {
+        mClip.set(clip);
+        mCircles = 0;
+        mPaths = 0;
+        mPoints = 0;
+        mPaintChanges = 0;
+        mLastPaint = null;
+    }
+
+    int getDrawCalls() {
+        return mCircles + mPaths + mPoints;
+    }
+
+    int getCircles() {
+        return mCircles;
+    }
+
+    int getPaths() {
+        return mPaths;
+    }
+
+    int getPoints() {
+        return mPoints;
+    }
+
+    int getPaintChanges() {
+        return mPaintChanges;
+    }
+
+    @Override
+    public boolean getClipBounds(Rect bounds) {
+        bounds.set(mClip);
+        return !mClip.isEmpty();
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        mCircles++;
+        recordPaint(paint);
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        mPaths++;
+        recordPaint(paint);
+    }
+
+    @Override
+    public void drawPoints(float[] pts, int offset, int count, Paint paint) {
+        mPoints++;
+        recordPaint(paint);
+    }
+
+    @Override
+    public void drawPoints(float[] pts, Paint paint) {
+        mPoints++;
+        recordPaint(paint);
+    }
+
+    private void recordPaint(Paint paint) {
+        int color = paint.getColor();
+        float strokeWidth = paint.getStrokeWidth();
+        Paint.Style style = paint.getStyle();
+        if (paint != mLastPaint || color != mLastColor || strokeWidth != mLastStrokeWidth
+                || style != mLastStyle) {
+            mPaintChanges++;
+        }
+        mLastPaint = paint;
+        mLastColor = color;
+        mLastStrokeWidth = strokeWidth;
+        mLastStyle = style;
+    }
+}
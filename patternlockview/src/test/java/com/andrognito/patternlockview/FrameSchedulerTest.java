@@ -0,0 +1,113 @@
+package com.andrognito.patternlockview;
+
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Steps the animations of a view through a {@link ManualFrameScheduler}, without waiting
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class FrameSchedulerTest {
+
+    private static final int VIEW_SIZE = 300;
+
+    private final ManualFrameScheduler mFrames = new ManualFrameScheduler();
+    private DamageRecordingPatternLockView mView;
+
+    @Before
+    public void setUp() {
+        mView = TestViews.createView(VIEW_SIZE, mFrames);
+    }
+
+    @Test
+    public void dotAnimationEndsAfterItsDuration() {
+        mView.setDotAnimationDuration(160);
+        mView.setPathEndAnimationDuration(100);
+        touch(MotionEvent.ACTION_DOWN, 50, 50);
+        assertTrue(mFrames.hasPendingCallbacks());
+
+        // The dot grows then shrinks back, for twice the duration
+        mFrames.advanceBy(2 * 160 - mFrames.getFrameInterval());
+        assertTrue(mFrames.hasPendingCallbacks());
+        mFrames.advanceFrame();
+        assertFalse(mFrames.hasPendingCallbacks());
+    }
+
+    @Test
+    public void animationsFollowTheDurationScale() {
+        mFrames.setAnimatorDurationScale(2f);
+        mView.setDotAnimationDuration(160);
+        mView.setPathEndAnimationDuration(100);
+        touch(MotionEvent.ACTION_DOWN, 50, 50);
+
+        mFrames.advanceBy(2 * 2 * 160 - mFrames.getFrameInterval());
+        assertTrue(mFrames.hasPendingCallbacks());
+        mFrames.advanceFrame();
+        assertFalse(mFrames.hasPendingCallbacks());
+    }
+
+    @Test
+    public void animationsJumpToTheirEndWhenTurnedOff() {
+        mFrames.setAnimatorDurationScale(0f);
+        touch(MotionEvent.ACTION_DOWN, 50, 50);
+        assertFalse(mFrames.hasPendingCallbacks());
+    }
+
+    @Test
+    public void autoDrawRunsOnEveryFrame() {
+        mView.setPattern(PatternLockView.PatternViewMode.AUTO_DRAW,
+                Collections.singletonList(mView.getDot(0)));
+
+        for (int i = 0; i < 10; i++) {
+            mFrames.advanceFrame();
+            assertTrue(mFrames.hasPendingCallbacks());
+        }
+        // Leaving the mode removes its frame callback right away
+        mView.setViewMode(PatternLockView.PatternViewMode.CORRECT);
+        assertFalse(mFrames.hasPendingCallbacks());
+    }
+
+    @Test
+    public void scheduledFramesFollowTheClock() {
+        final int[] runs = new int[1];
+        Runnable callback = new Runnable() {
+
+            @Override
+            public void run() {
+                runs[0]++;
+            }
+        };
+        mFrames.postFrameCallback(callback);
+        mFrames.advanceTime(1000);
+        assertEquals(0, runs[0]);
+        assertEquals(1000, mFrames.uptimeMillis());
+
+        mFrames.advanceBy(40);
+        assertEquals(1, runs[0]);
+        assertEquals(1040, mFrames.uptimeMillis());
+
+        mFrames.postFrameCallback(callback);
+        mFrames.removeFrameCallback(callback);
+        mFrames.advanceFrame();
+        assertEquals(1, runs[0]);
+    }
+
+    private void touch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(mFrames.uptimeMillis(), mFrames.uptimeMillis(),
+                action, x, y, 0);
+        mView.onTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,176 @@
+package com.andrognito.patternlockview;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.andrognito.patternlockview.replay.GestureRecorder;
+import com.andrognito.patternlockview.replay.GestureRecording;
+import com.andrognito.patternlockview.replay.GestureReplayer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Records gestures, writes them out and reads them back, and replays them into other views
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class GestureReplayTest {
+
+    private static final int[] Z = {0, 1, 2, 4, 6, 7, 8};
+    private static final int VIEW_SIZE = 1080;
+    private static final int SAMPLES_PER_SEGMENT = 8;
+    private static final long SAMPLE_INTERVAL = 8;
+
+    @Test
+    public void recordingSurvivesItsBinaryForm() throws IOException {
+        GestureRecording recording = recordZ();
+        GestureRecording read = GestureRecording.fromByteArray(recording.toByteArray());
+
+        assertEquals(recording.getViewWidth(), read.getViewWidth());
+        assertEquals(recording.getViewHeight(), read.getViewHeight());
+        assertEquals(recording.getRowCount(), read.getRowCount());
+        assertEquals(recording.getColumnCount(), read.getColumnCount());
+        assertEquals(recording.isGrid(), read.isGrid());
+        assertEquals(recording.getHitFactor(), read.getHitFactor(), 0f);
+        assertEquals(recording.getDotSelectedSize(), read.getDotSelectedSize());
+        assertEquals(recording.getDuration(), read.getDuration());
+        assertEquals(recording.getEventCount(), read.getEventCount());
+        for (int event = 0; event < recording.getEventCount(); event++) {
+            assertEquals(recording.getAction(event), read.getAction(event));
+            assertEquals(recording.getSampleCount(event), read.getSampleCount(event));
+            for (int sample = 0; sample < recording.getSampleCount(event); sample++) {
+                assertEquals(recording.getSampleTime(event, sample),
+                        read.getSampleTime(event, sample));
+                assertEquals(recording.getX(event, sample), read.getX(event, sample), 0f);
+                assertEquals(recording.getY(event, sample), read.getY(event, sample), 0f);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptEventCountIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(0x504C4752);
+        data.writeByte(1);
+        // View size, matrix size, flags and hit factor, then sizes and durations, as one byte
+        // varints
+        data.write(new byte[]{100, 100, 3, 3, 1});
+        data.writeFloat(0.6f);
+        data.write(new byte[]{10, 10, 20, 100, 100});
+        // Integer.MAX_VALUE events, of which only one follows
+        data.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        data.write(new byte[]{MotionEvent.ACTION_DOWN, 1, 0});
+        data.writeFloat(50f);
+        data.writeFloat(50f);
+        data.flush();
+
+        GestureRecording.fromByteArray(out.toByteArray());
+    }
+
+    @Test
+    public void everyEventIsRecorded() {
+        GestureRecording recording = recordZ();
+        int moveCount = (Z.length - 1) * SAMPLES_PER_SEGMENT;
+        assertEquals(moveCount + 2, recording.getEventCount());
+        assertEquals(MotionEvent.ACTION_DOWN, recording.getAction(0));
+        assertEquals(MotionEvent.ACTION_MOVE, recording.getAction(1));
+        assertEquals(MotionEvent.ACTION_UP, recording.getAction(moveCount + 1));
+        assertEquals(moveCount * SAMPLE_INTERVAL, recording.getDuration());
+        assertEquals(VIEW_SIZE, recording.getViewWidth());
+    }
+
+    @Test
+    public void replayDrawsTheSamePatternOnAnotherSize() throws IOException {
+        GestureRecording recording = GestureRecording.fromByteArray(recordZ().toByteArray());
+        PatternLockView view = TestViews.createView(540, null);
+        recording.applyConfig(view);
+        new GestureReplayer(view, recording).replayNow();
+
+        assertArrayEquals(Z, ids(view));
+    }
+
+    @Test
+    public void acceleratedReplayCompressesTime() {
+        GestureRecording recording = recordZ();
+        PatternLockView view = TestViews.createView(VIEW_SIZE, null);
+        GestureRecorder recorder = new GestureRecorder(null);
+        view.setGestureRecorder(recorder);
+        GestureReplayer replayer = new GestureReplayer(view, recording);
+        replayer.setClock(new PatternLockClock() {
+
+            @Override
+            public long uptimeMillis() {
+                return 1000;
+            }
+        });
+        replayer.setSpeed(4f);
+        replayer.replayNow();
+
+        GestureRecording replayed = recorder.getLastRecording();
+        assertNotNull(replayed);
+        assertEquals(recording.getDuration() / 4, replayed.getDuration());
+        assertArrayEquals(Z, ids(view));
+    }
+
+    /**
+     * Draws a Z on a 3x3 view. Robolectric's motion events have no history, so every sample is
+     * an event of its own
+     */
+    private GestureRecording recordZ() {
+        PatternLockView view = TestViews.createView(VIEW_SIZE, null);
+        GestureRecorder recorder = new GestureRecorder(null);
+        view.setGestureRecorder(recorder);
+        float cellSize = VIEW_SIZE / 3f;
+        long downTime = 5000;
+        long time = downTime;
+        float lastX = center(Z[0] % 3, cellSize);
+        float lastY = center(Z[0] / 3, cellSize);
+        dispatch(view, MotionEvent.obtain(downTime, time, MotionEvent.ACTION_DOWN, lastX, lastY,
+                0));
+        for (int i = 1; i < Z.length; i++) {
+            float x = center(Z[i] % 3, cellSize);
+            float y = center(Z[i] / 3, cellSize);
+            for (int sample = 1; sample <= SAMPLES_PER_SEGMENT; sample++) {
+                float t = (float) sample / SAMPLES_PER_SEGMENT;
+                time += SAMPLE_INTERVAL;
+                dispatch(view, MotionEvent.obtain(downTime, time, MotionEvent.ACTION_MOVE,
+                        lastX + t * (x - lastX), lastY + t * (y - lastY), 0));
+            }
+            lastX = x;
+            lastY = y;
+        }
+        dispatch(view, MotionEvent.obtain(downTime, time, MotionEvent.ACTION_UP, lastX, lastY,
+                0));
+        assertArrayEquals(Z, ids(view));
+        return recorder.getLastRecording();
+    }
+
+    private static void dispatch(PatternLockView view, MotionEvent event) {
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private static float center(int cell, float cellSize) {
+        return cell * cellSize + cellSize / 2f;
+    }
+
+    private static int[] ids(PatternLockView view) {
+        int[] ids = new int[view.getPattern().size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = view.getPattern().get(i).getId();
+        }
+        return ids;
+    }
+}
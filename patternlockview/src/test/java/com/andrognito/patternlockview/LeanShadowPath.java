@@ -0,0 +1,42 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Path;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+/**
+ * A {@link Path} that only knows whether it is empty. Robolectric's own shadow records every
+ * point and never forgets them, as {@code rewind()} is native, so a path reused across frames
+ * would grow and allocate, and would never be empty.
+ */
+@Implements(Path.class)
+public class LeanShadowPath {
+
+    private boolean mEmpty = true;
+
+    @Implementation
+    public void moveTo(float x, float y) {
+        mEmpty = false;
+    }
+
+    @Implementation
+    public void lineTo(float x, float y) {
+        mEmpty = false;
+    }
+
+    @Implementation
+    public void rewind() {
+        mEmpty = true;
+    }
+
+    @Implementation
+    public void reset() {
+        mEmpty = true;
+    }
+
+    @Implementation
+    public boolean isEmpty() {
+        return mEmpty;
+    }
+}
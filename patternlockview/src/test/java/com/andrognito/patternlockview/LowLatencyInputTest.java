@@ -0,0 +1,83 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Rect;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drags a finger with the low latency input on, on a 3x3 grid whose cells are 100 pixels wide
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class LowLatencyInputTest {
+
+    private static final int VIEW_SIZE = 300;
+    // Between touch samples
+    private static final int SAMPLE_INTERVAL = 8;
+
+    private final ManualFrameScheduler mFrames = new ManualFrameScheduler();
+    private DamageRecordingPatternLockView mView;
+
+    @Before
+    public void setUp() {
+        mView = TestViews.createView(VIEW_SIZE, mFrames);
+        mView.setLowLatencyInputEnabled(true);
+    }
+
+    @Test
+    public void predictorFollowsConstantVelocity() {
+        TouchPredictor predictor = new TouchPredictor();
+        for (int i = 0; i < 10; i++) {
+            predictor.addSample(i * SAMPLE_INTERVAL, 10 + 2 * i, 50 - i);
+        }
+        assertEquals(9 * SAMPLE_INTERVAL, predictor.getTime());
+        // Two pixels then minus one every 8ms, so four and minus two 16ms ahead
+        assertEquals(28 + 4, predictor.predictX(16), 0.01f);
+        assertEquals(41 - 2, predictor.predictY(16), 0.01f);
+
+        predictor.reset();
+        predictor.addSample(100, 70, 70);
+        assertEquals(70, predictor.predictX(16), 0.01f);
+        assertEquals(70, predictor.predictY(16), 0.01f);
+    }
+
+    @Test
+    public void segmentLeadsTheFingerWithoutSelectingDots() {
+        touch(MotionEvent.ACTION_DOWN, 50, 50);
+        Rect damage = new Rect();
+        mView.takeDamage(damage);
+        // Fast enough that the prediction lands on the next dot, which starts at 120
+        for (int x = 65; x <= 95; x += 15) {
+            mFrames.advanceTime(SAMPLE_INTERVAL);
+            touch(MotionEvent.ACTION_MOVE, x, 50);
+        }
+        assertEquals(1, mView.getPattern().size());
+        assertTrue(mView.takeDamage(damage));
+        assertTrue("Damage " + damage + " doesn't cover the prediction",
+                damage.right > 120);
+
+        // Without new samples, the segment falls back to the finger within a few frames
+        mFrames.advanceUntilIdle(100);
+        assertFalse(mFrames.hasPendingCallbacks());
+        assertTrue(mView.takeDamage(damage));
+        assertEquals(1, mView.getPattern().size());
+
+        touch(MotionEvent.ACTION_MOVE, 150, 50);
+        assertEquals(2, mView.getPattern().size());
+    }
+
+    private void touch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(0, mFrames.uptimeMillis(), action, x, y, 0);
+        mView.onTouchEvent(event);
+        event.recycle();
+    }
+}
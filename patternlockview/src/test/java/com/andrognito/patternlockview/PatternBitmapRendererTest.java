@@ -0,0 +1,59 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Bitmap;
+
+import com.andrognito.patternlockview.core.PackedPattern;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks which rendered bitmaps the cache and the pool keep
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PatternBitmapRendererTest {
+
+    private static final int SIZE = 32;
+    private static final int BITMAP_BYTES = SIZE * SIZE * 4;
+
+    private PatternLockStyle mStyle;
+    private long mPattern;
+
+    @Before
+    public void setUp() {
+        mStyle = PatternLockStyle.obtain(TestViews.createContext(), null);
+        mPattern = PackedPattern.pack(new int[]{0, 1, 2, 4}, 4);
+    }
+
+    @Test
+    public void rendersAreCached() {
+        PatternBitmapRenderer renderer = new PatternBitmapRenderer(BITMAP_BYTES, BITMAP_BYTES);
+        Bitmap bitmap = render(renderer, SIZE);
+        assertSame(bitmap, render(renderer, SIZE));
+    }
+
+    @Test
+    public void bitmapsLargerThanTheCacheAreNotPooled() {
+        PatternBitmapRenderer renderer =
+                new PatternBitmapRenderer(BITMAP_BYTES - 1, 4 * BITMAP_BYTES);
+        Bitmap bitmap = render(renderer, SIZE);
+
+        // Neither a cache hit nor a pooled bitmap redrawn under the caller
+        Bitmap other = render(renderer, SIZE);
+        assertNotSame(bitmap, other);
+        assertFalse(bitmap.isRecycled());
+    }
+
+    private Bitmap render(PatternBitmapRenderer renderer, int size) {
+        return renderer.render(mStyle, mPattern, PatternLockView.PatternViewMode.CORRECT, size,
+                size);
+    }
+}
@@ -0,0 +1,55 @@
+package com.andrognito.patternlockview;
+
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks when a drawable strokes the path of its pattern
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PatternDrawableTest {
+
+    private static final int SIZE = 300;
+
+    private PatternDrawable mDrawable;
+    private DrawOpRecorder mCanvas;
+
+    @Before
+    public void setUp() {
+        mDrawable = new PatternDrawable(PatternLockStyle.obtain(TestViews.createContext(), null));
+        mDrawable.setBounds(0, 0, SIZE, SIZE);
+        mCanvas = new DrawOpRecorder();
+        mCanvas.beginFrame(new Rect(0, 0, SIZE, SIZE));
+    }
+
+    @Test
+    public void drawsThePathOfThePattern() {
+        mDrawable.setPattern(new int[]{0, 1, 2, 4}, 4);
+        mDrawable.draw(mCanvas);
+        assertEquals(1, mCanvas.getPaths());
+    }
+
+    @Test
+    public void nullPatternIsEmpty() {
+        mDrawable.setPattern(new int[]{0, 1, 2}, 3);
+        mDrawable.setPattern(null, 3);
+        mDrawable.draw(mCanvas);
+        assertEquals(0, mCanvas.getPaths());
+    }
+
+    @Test
+    public void stealthModeHidesThePath() {
+        mDrawable.setPattern(new int[]{0, 1, 2, 4}, 4);
+        mDrawable.setInStealthMode(true);
+        mDrawable.draw(mCanvas);
+        assertEquals(0, mCanvas.getPaths());
+    }
+}
@@ -0,0 +1,124 @@
+package com.andrognito.patternlockview;
+
+import android.view.MotionEvent;
+
+import com.andrognito.patternlockview.PatternLockQualityController.QualityTier;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds frame durations to a {@link PatternLockQualityController} with a budget of 16ms
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25, shadows = LeanShadowPath.class)
+public class PatternLockQualityControllerTest {
+
+    private static final long BUDGET = 16000000L;
+    private static final long SLOW = 20000000L;
+    // Within the budget, but without room to spare
+    private static final long TIGHT = 12000000L;
+    private static final long FAST = 5000000L;
+
+    private final PatternLockQualityController mController =
+            new PatternLockQualityController(BUDGET);
+
+    @Test
+    public void slowFramesStepDownOneTierAtATime() {
+        frames(1, SLOW);
+        frames(PatternLockQualityController.WINDOW_FRAMES, FAST);
+        assertEquals(QualityTier.FULL, mController.getTier());
+
+        frames(4, SLOW);
+        assertEquals(QualityTier.NO_DITHER, mController.getTier());
+        frames(4 * 4, SLOW);
+        assertEquals(QualityTier.BATCHED_DOTS, mController.getTier());
+        frames(4, SLOW);
+        assertEquals(QualityTier.BATCHED_DOTS, mController.getTier());
+    }
+
+    @Test
+    public void headroomStepsUpAfterSeveralWindows() {
+        frames(4, SLOW);
+        assertEquals(QualityTier.NO_DITHER, mController.getTier());
+
+        // Frames that only just fit hold the tier
+        windows(10, TIGHT);
+        assertEquals(QualityTier.NO_DITHER, mController.getTier());
+
+        windows(1, FAST);
+        assertEquals(QualityTier.NO_DITHER, mController.getTier());
+        windows(1, FAST);
+        assertEquals(QualityTier.FULL, mController.getTier());
+    }
+
+    @Test
+    public void stepUpThatDoesNotHoldTakesLongerToRetry() {
+        frames(4, SLOW);
+        windows(2, FAST);
+        assertEquals(QualityTier.FULL, mController.getTier());
+
+        // The full quality is too slow again
+        frames(4, SLOW);
+        assertEquals(QualityTier.NO_DITHER, mController.getTier());
+        windows(3, FAST);
+        assertEquals(QualityTier.NO_DITHER, mController.getTier());
+        windows(1, FAST);
+        assertEquals(QualityTier.FULL, mController.getTier());
+
+        mController.reset();
+        frames(4, SLOW);
+        windows(2, FAST);
+        assertEquals(QualityTier.FULL, mController.getTier());
+    }
+
+    @Test
+    public void viewDrawTimesCountTwice() {
+        // 9ms of drawing leaves less than half of the frame to the rest of it
+        for (int i = 0; i < 4; i++) {
+            mController.onDraw(9000000L);
+        }
+        assertEquals(QualityTier.NO_DITHER, mController.getTier());
+        assertFalse(mController.isUsingFrameMetrics());
+    }
+
+    @Test
+    public void lowestTierAnimatesNothing() {
+        ManualFrameScheduler frames = new ManualFrameScheduler();
+        PatternLockView view = TestViews.createView(300, frames);
+
+        frames(4 * 4, SLOW);
+        view.setQualityController(mController);
+        assertEquals(QualityTier.BATCHED_DOTS, view.getQualityTier());
+
+        MotionEvent event = MotionEvent.obtain(frames.uptimeMillis(), frames.uptimeMillis(),
+                MotionEvent.ACTION_DOWN, 50, 50, 0);
+        view.onTouchEvent(event);
+        event.recycle();
+        assertFalse(frames.hasPendingCallbacks());
+
+        view.setQualityController(null);
+        assertEquals(QualityTier.FULL, view.getQualityTier());
+        event = MotionEvent.obtain(frames.uptimeMillis(), frames.uptimeMillis(),
+                MotionEvent.ACTION_DOWN, 150, 150, 0);
+        view.onTouchEvent(event);
+        event.recycle();
+        assertTrue(frames.hasPendingCallbacks());
+    }
+
+    private void windows(int count, long durationNanos) {
+        frames(count * PatternLockQualityController.WINDOW_FRAMES, durationNanos);
+    }
+
+    private void frames(int count, long durationNanos) {
+        for (int i = 0; i < count; i++) {
+            mController.onFrame(durationNanos);
+        }
+    }
+}
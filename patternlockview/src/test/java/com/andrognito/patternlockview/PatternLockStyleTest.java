@@ -0,0 +1,50 @@
+package com.andrognito.patternlockview;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that resolved styles are shared, but not across configurations
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PatternLockStyleTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = TestViews.createContext();
+    }
+
+    @Test
+    public void styleIsSharedWithinATheme() {
+        assertSame(PatternLockStyle.obtain(mContext, null),
+                PatternLockStyle.obtain(mContext, null));
+    }
+
+    @Test
+    public void styleIsResolvedAgainAfterAConfigurationChange() {
+        PatternLockStyle portrait = PatternLockStyle.obtain(mContext, null);
+
+        Resources resources = mContext.getResources();
+        Configuration configuration = new Configuration(resources.getConfiguration());
+        configuration.orientation = configuration.orientation == Configuration.ORIENTATION_LANDSCAPE
+                ? Configuration.ORIENTATION_PORTRAIT : Configuration.ORIENTATION_LANDSCAPE;
+        resources.updateConfiguration(configuration, resources.getDisplayMetrics());
+
+        PatternLockStyle landscape = PatternLockStyle.obtain(mContext, null);
+        assertNotSame(portrait, landscape);
+        assertSame(landscape, PatternLockStyle.obtain(mContext, null));
+    }
+}
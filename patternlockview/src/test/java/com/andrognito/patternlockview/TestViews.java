@@ -0,0 +1,47 @@
+package com.andrognito.patternlockview;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Creates the views the tests drive, themed and laid out the same way
+ */
+final class TestViews {
+
+    private TestViews() {
+        throw new AssertionError("You can not instantiate this class. Use its static utility " +
+                "methods instead");
+    }
+
+    /**
+     * A context with a theme, as the library has no application theme of its own
+     */
+    static Context createContext() {
+        return new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.R.style.Theme_Material_Light);
+    }
+
+    /**
+     * Creates a view laid out as a square of the given size
+     *
+     * @param frames The frame scheduler timing the view, or null for the default one
+     */
+    static DamageRecordingPatternLockView createView(int size, PatternLockFrameScheduler frames) {
+        DamageRecordingPatternLockView view = new DamageRecordingPatternLockView(createContext());
+        view.setFrameScheduler(frames);
+        layout(view, size);
+        return view;
+    }
+
+    /**
+     * Measures the view and lays it out as a square of the given size
+     */
+    static void layout(View view, int size) {
+        int spec = View.MeasureSpec.makeMeasureSpec(size, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, size, size);
+    }
+}